@@ -16,8 +16,10 @@
 package io.netty.contrib.microbenchmarks.http.multipart;
 
 import io.netty.contrib.handler.codec.http.multipart.DefaultHttpDataFactory;
+import io.netty.contrib.handler.codec.http.multipart.HttpPostMultipartRequestDecoder;
 import io.netty.contrib.handler.codec.http.multipart.HttpPostRequestDecoder;
 import io.netty.contrib.handler.codec.http.multipart.InterfaceHttpData;
+import io.netty.contrib.handler.codec.http.multipart.InterfaceHttpPostRequestDecoder;
 import io.netty5.buffer.Buffer;
 import io.netty5.buffer.BufferAllocator;
 import io.netty5.handler.codec.http.DefaultHttpContent;
@@ -90,6 +92,10 @@ public class HttpPostMultipartRequestDecoderBenchmark
     }
 
     public double testHighNumberChunks(Context ctx, boolean big, boolean noDisk) {
+        return testHighNumberChunks(ctx, big, noDisk, false);
+    }
+
+    public double testHighNumberChunks(Context ctx, boolean big, boolean noDisk, boolean zeroCopy) {
         int chunkNumber = 64;
 
         Buffer firstBuf = ctx.bodyStartBytesSupplier.get();
@@ -103,8 +109,15 @@ public class HttpPostMultipartRequestDecoderBenchmark
 
         DefaultHttpDataFactory defaultHttpDataFactory =
                 new DefaultHttpDataFactory(noDisk? 1024 * 1024 : 16 * 1024);
-        HttpPostRequestDecoder decoder =
-                new HttpPostRequestDecoder(defaultHttpDataFactory, req);
+        InterfaceHttpPostRequestDecoder decoder;
+        if (zeroCopy) {
+            HttpPostMultipartRequestDecoder multipartDecoder =
+                    new HttpPostMultipartRequestDecoder(defaultHttpDataFactory, req);
+            multipartDecoder.setZeroCopy(true);
+            decoder = multipartDecoder;
+        } else {
+            decoder = new HttpPostRequestDecoder(defaultHttpDataFactory, req);
+        }
 
         try (firstBuf) {
             decoder.offer(new DefaultHttpContent(firstBuf));
@@ -141,4 +154,14 @@ public class HttpPostMultipartRequestDecoderBenchmark
     public double multipartRequestDecoderBig(Context ctx) {
         return testHighNumberChunks(ctx,true, true);
     }
+
+    @Benchmark
+    public double multipartRequestDecoderHighZeroCopy(Context ctx) {
+        return testHighNumberChunks(ctx, false, true, true);
+    }
+
+    @Benchmark
+    public double multipartRequestDecoderBigZeroCopy(Context ctx) {
+        return testHighNumberChunks(ctx, true, true, true);
+    }
 }
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.contrib.microbenchmarks.http.multipart;
+
+import io.netty.contrib.handler.codec.http.multipart.MemoryFileUpload;
+import io.netty5.buffer.Buffer;
+import io.netty5.buffer.BufferAllocator;
+import io.netty5.microbench.util.AbstractMicrobenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of receiving a 1 MB in memory upload in small fragments, and of reading it back.
+ */
+@Threads(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(jvmArgsAppend = {"-dsa",
+        "-da",
+        "-XX:+HeapDumpOnOutOfMemoryError",
+        "-XX:+UnlockDiagnosticVMOptions",
+        "-XX:+DebugNonSafepoints",
+        "-Dio.netty5.leakDetection.level=disabled",        // changed to paranoid for detecting buffer leaks
+        "-Dio.netty5.buffer.leakDetectionEnabled=false",   // changed to true for detecting buffer leaks
+        "-Dio.netty5.buffer.lifecycleTracingEnabled=false" // changed to true for detecting buffer leaks
+})
+public class MemoryHttpDataBenchmark extends AbstractMicrobenchmark {
+    private static final int SIZE = 1024 * 1024;
+
+    @State(Scope.Benchmark)
+    public static class Context {
+        @Param({ "1024", "16384" })
+        int fragmentSize;
+
+        @Param({ "false", "true" })
+        boolean declaredSize;
+
+        byte[] fragment;
+        MemoryFileUpload upload;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            fragment = new byte[fragmentSize];
+            upload = newUpload(this);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            upload.close();
+        }
+    }
+
+    static MemoryFileUpload newUpload(Context ctx) throws IOException {
+        MemoryFileUpload upload = new MemoryFileUpload("file", "file.bin", "application/octet-stream", null,
+                StandardCharsets.UTF_8, ctx.declaredSize ? SIZE : 0);
+        for (int written = 0; written < SIZE; written += ctx.fragmentSize) {
+            Buffer buffer = BufferAllocator.onHeapUnpooled().copyOf(ctx.fragment);
+            upload.addContent(buffer, written + ctx.fragmentSize >= SIZE);
+        }
+        return upload;
+    }
+
+    @Benchmark
+    public void addContent(Context ctx) throws IOException {
+        newUpload(ctx).close();
+    }
+
+    @Benchmark
+    public byte[] get(Context ctx) {
+        return ctx.upload.get();
+    }
+
+    @Benchmark
+    public String getString(Context ctx) {
+        return ctx.upload.getString(StandardCharsets.ISO_8859_1);
+    }
+
+    @Benchmark
+    public void readChunks(Context ctx, Blackhole blackhole) throws IOException {
+        BufferAllocator allocator = BufferAllocator.onHeapUnpooled();
+        for (long position = 0; position < SIZE; position += 8192) {
+            try (Buffer chunk = ctx.upload.readChunk(position, 8192, allocator)) {
+                blackhole.consume(chunk.readableBytes());
+            }
+        }
+    }
+}
@@ -16,9 +16,10 @@
 package io.netty.contrib.handler.codec.http.multipart;
 
 import io.netty5.buffer.Buffer;
-import io.netty5.buffer.DefaultBufferAllocators;
+import io.netty5.buffer.BufferAllocator;
 import io.netty5.channel.ChannelException;
 import io.netty5.handler.codec.http.HttpConstants;
+import io.netty5.util.Send;
 import io.netty5.util.internal.EmptyArrays;
 import io.netty5.util.internal.ObjectUtil;
 import io.netty5.util.internal.PlatformDependent;
@@ -31,9 +32,15 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
-import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 /**
  * Abstract Disk HttpData implementation
@@ -45,6 +52,26 @@ public abstract class AbstractDiskHttpData extends AbstractHttpData {
     private File file;
     private boolean isRenamed;
     private FileChannel fileChannel;
+    /**
+     * Channel shared by the positional reads of readChunk
+     */
+    private FileChannel readChannel;
+    private Executor writeExecutor;
+    private FsyncPolicy fsyncPolicy = FsyncPolicy.ALWAYS;
+    private ReadMode readMode = ReadMode.COPY;
+    private TempFileSource tempFileSource;
+    /**
+     * Source the current file was leased from, if any
+     */
+    private TempFileSource leasedFrom;
+    /**
+     * Memory mapped views of the current file, if any was given
+     */
+    private MappedBuffers.FileViews mappedViews;
+    /**
+     * Completed once the writes queued to the writeExecutor are done
+     */
+    private CompletableFuture<Void> pendingWrites = CompletableFuture.completedFuture(null);
 
     protected AbstractDiskHttpData(String name, Charset charset, long size) {
         super(name, charset, size);
@@ -55,6 +82,86 @@ public abstract class AbstractDiskHttpData extends AbstractHttpData {
         this.file = copy.file;
         this.isRenamed = copy.isRenamed;
         this.fileChannel = copy.fileChannel;
+        this.readChannel = copy.readChannel;
+        this.writeExecutor = copy.writeExecutor;
+        this.fsyncPolicy = copy.fsyncPolicy;
+        this.readMode = copy.readMode;
+        this.tempFileSource = copy.tempFileSource;
+        this.leasedFrom = copy.leasedFrom;
+        this.mappedViews = copy.mappedViews;
+        this.pendingWrites = copy.pendingWrites;
+    }
+
+    /**
+     * Set the executor writing to disk the content given to {@link #addContent(Buffer, boolean)}, or null
+     * (the default) to write it from the calling thread.
+     * <p>
+     * With an executor, {@code addContent} only checks the size and queues the buffer, so that the calling
+     * thread (typically an event loop) is never blocked by a slow disk or by the final
+     * {@link FileChannel#force(boolean)}. The writes are done in order, {@link #writeFuture()} being completed
+     * once they are all done. A failed write is reported by the next call to {@code addContent}. The methods
+     * reading, replacing or moving the file fail with an {@link IOException} while writes are pending, rather than
+     * blocking the calling thread: call them once {@link #writeFuture()} is completed, or move the file with
+     * {@link #renameToAsync(File)}. {@link #delete()} is done once the pending writes are.
+     */
+    public void setWriteExecutor(Executor writeExecutor) {
+        this.writeExecutor = writeExecutor;
+    }
+
+    /**
+     * @return the executor writing the content to disk, or null if it is written from the calling thread
+     */
+    public Executor getWriteExecutor() {
+        return writeExecutor;
+    }
+
+    /**
+     * Set when the content is forced to the storage device, {@link FsyncPolicy#ALWAYS} by default.
+     */
+    public void setFsyncPolicy(FsyncPolicy fsyncPolicy) {
+        this.fsyncPolicy = ObjectUtil.checkNotNullWithIAE(fsyncPolicy, "fsyncPolicy");
+    }
+
+    /**
+     * @return when the content is forced to the storage device
+     */
+    public FsyncPolicy getFsyncPolicy() {
+        return fsyncPolicy;
+    }
+
+    /**
+     * Set how the content is read as a whole, {@link ReadMode#COPY} by default.
+     */
+    public void setReadMode(ReadMode readMode) {
+        this.readMode = ObjectUtil.checkNotNullWithIAE(readMode, "readMode");
+    }
+
+    /**
+     * @return how the content is read as a whole
+     */
+    public ReadMode getReadMode() {
+        return readMode;
+    }
+
+    /**
+     * Set the source to lease the file from, such as a {@link TempFilePool}, instead of creating a new temporary
+     * file in the base directory, or null (the default) to create one. The file is given back to the source when
+     * this data is deleted.
+     */
+    public void setTempFileSource(TempFileSource tempFileSource) {
+        this.tempFileSource = tempFileSource;
+    }
+
+    /**
+     * @return the source to lease the file from, or null if a new temporary file is created
+     */
+    public TempFileSource getTempFileSource() {
+        return tempFileSource;
+    }
+
+    @Override
+    public CompletableFuture<Void> writeFuture() {
+        return pendingWrites.copy();
     }
 
     /**
@@ -87,6 +194,11 @@ public abstract class AbstractDiskHttpData extends AbstractHttpData {
      * @return a new Temp File from getDiskFilename(), default prefix, postfix and baseDirectory
      */
     private File tempFile() throws IOException {
+        if (tempFileSource != null) {
+            File leased = tempFileSource.lease(definedSize);
+            leasedFrom = tempFileSource;
+            return leased;
+        }
         String newpostfix;
         String diskFilename = getDiskFilename();
         if (diskFilename != null) {
@@ -113,25 +225,28 @@ public abstract class AbstractDiskHttpData extends AbstractHttpData {
     public void setContent(Buffer buffer) throws IOException {
         try (buffer) {
             checkAccessible();
+            checkWritesDone();
             ObjectUtil.checkNotNullWithIAE(buffer, "buffer");
+            closeReadChannel();
             size = buffer.readableBytes();
             checkSize(size);
             if (definedSize > 0 && definedSize < size) {
                 throw new IOException("Out of size: " + size + " > " + definedSize);
             }
+            if (file != null && mappedViews != null && mappedViews.isOpen()) {
+                if (isRenamed) {
+                    throw new IOException("Cannot replace the content of a memory mapped file: " + file);
+                }
+                // The file can't be truncated under its open views, so the content goes to a new one
+                deleteFile();
+            }
             if (file == null) {
                 file = tempFile();
             }
             if (buffer.readableBytes() == 0) {
-                // empty file
-                if (!file.createNewFile()) {
-                    if (file.length() == 0) {
-                        return;
-                    } else {
-                        if (!file.delete() || !file.createNewFile()) {
-                            throw new IOException("file exists already: " + file);
-                        }
-                    }
+                // empty file, truncated rather than recreated since it may be leased from a source
+                try (RandomAccessFile accessFile = new RandomAccessFile(file, "rw")) {
+                    accessFile.setLength(0);
                 }
                 return;
             }
@@ -147,7 +262,9 @@ public abstract class AbstractDiskHttpData extends AbstractHttpData {
                         }
                         length = -written;
                     } while (length > 0);
-                    localfileChannel.force(false);
+                    if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+                        localfileChannel.force(false);
+                    }
                     setCompleted();
                 }
             }
@@ -157,6 +274,10 @@ public abstract class AbstractDiskHttpData extends AbstractHttpData {
     @Override
     public void addContent(Buffer buffer, boolean last)
             throws IOException {
+        if (writeExecutor != null) {
+            addContentAsync(buffer, last);
+            return;
+        }
         if (buffer != null) {
             try (buffer) {
                 checkAccessible();
@@ -166,49 +287,156 @@ public abstract class AbstractDiskHttpData extends AbstractHttpData {
                     throw new IOException("Out of size: " + (size + localsize) +
                             " > " + definedSize);
                 }
-                if (file == null) {
-                    file = tempFile();
+                size += writeContent(buffer);
+            }
+        }
+        if (last) {
+            closeContent();
+            setCompleted();
+        } else {
+            ObjectUtil.checkNotNullWithIAE(buffer, "buffer");
+        }
+    }
+
+    /**
+     * Same as addContent, the buffer being written by the writeExecutor
+     */
+    private void addContentAsync(Buffer buffer, boolean last) throws IOException {
+        if (buffer != null) {
+            Send<Buffer> send;
+            try (buffer) {
+                checkAccessible();
+                checkWriteFailure();
+                int localsize = buffer.readableBytes();
+                checkSize(size + localsize);
+                if (definedSize > 0 && definedSize < size + localsize) {
+                    throw new IOException("Out of size: " + (size + localsize) +
+                            " > " + definedSize);
                 }
-                if (fileChannel == null) {
-                    RandomAccessFile accessFile = new RandomAccessFile(file, "rw");
-                    fileChannel = accessFile.getChannel();
+                size += localsize;
+                send = buffer.send();
+            }
+            queueWrite(() -> {
+                try (Buffer received = send.receive()) {
+                    writeContent(received);
                 }
+            }, send);
+        }
+        if (last) {
+            checkWriteFailure();
+            queueWrite(this::closeContent, null);
+            setCompleted();
+        } else {
+            ObjectUtil.checkNotNullWithIAE(buffer, "buffer");
+        }
+    }
 
-                int written;
-                int remaining = localsize;
-                do
-                {
-                    if ((written = buffer.transferTo(fileChannel, remaining)) == -1) {
-                        break;
-                    }
-                    remaining -= written;
-                } while (remaining > 0);
-                size += localsize - remaining;
+    /**
+     * Write the buffer at the end of the file, creating it if needed
+     *
+     * @return the number of bytes written
+     */
+    private int writeContent(Buffer buffer) throws IOException {
+        if (file == null) {
+            file = tempFile();
+        }
+        if (fileChannel == null) {
+            RandomAccessFile accessFile = new RandomAccessFile(file, "rw");
+            fileChannel = accessFile.getChannel();
+        }
+
+        int written;
+        int localsize = buffer.readableBytes();
+        int remaining = localsize;
+        do
+        {
+            if ((written = buffer.transferTo(fileChannel, remaining)) == -1) {
+                break;
             }
+            remaining -= written;
+        } while (remaining > 0);
+        return localsize - remaining;
+    }
+
+    /**
+     * Force the content to disk according to the fsync policy and close the file, creating it if needed
+     */
+    private void closeContent() throws IOException {
+        if (file == null) {
+            file = tempFile();
         }
-        if (last) {
-            if (file == null) {
-                file = tempFile();
+        if (fileChannel == null) {
+            RandomAccessFile accessFile = new RandomAccessFile(file, "rw");
+            fileChannel = accessFile.getChannel();
+        }
+        try {
+            if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+                fileChannel.force(false);
             }
-            if (fileChannel == null) {
-                RandomAccessFile accessFile = new RandomAccessFile(file, "rw");
-                fileChannel = accessFile.getChannel();
+        } finally {
+            fileChannel.close();
+        }
+        fileChannel = null;
+    }
+
+    /**
+     * Queue a write to the writeExecutor, after the previous ones. Once a write failed, the following ones
+     * are skipped and their content is released.
+     */
+    private void queueWrite(DiskWrite write, Send<Buffer> content) {
+        pendingWrites = pendingWrites.handleAsync((ignored, cause) -> {
+            if (cause != null) {
+                if (content != null) {
+                    content.close();
+                }
+                throw cause instanceof CompletionException ?
+                        (CompletionException) cause : new CompletionException(cause);
             }
             try {
-                fileChannel.force(false);
-            } finally {
-                fileChannel.close();
+                write.run();
+            } catch (IOException e) {
+                throw new CompletionException(e);
             }
-            fileChannel = null;
-            setCompleted();
-        } else {
-            ObjectUtil.checkNotNullWithIAE(buffer, "buffer");
+            return null;
+        }, writeExecutor);
+    }
+
+    /**
+     * Throw the failure of a previous write, if any
+     */
+    private void checkWriteFailure() throws IOException {
+        if (pendingWrites.isCompletedExceptionally()) {
+            try {
+                pendingWrites.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException(e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Fail fast while writes are queued to the writeExecutor, rather than blocking the calling thread until they
+     * are done, and throw the failure of a previous write, if any
+     */
+    private void checkWritesDone() throws IOException {
+        if (!pendingWrites.isDone()) {
+            throw new IOException("Content of " + getName() + " not yet written, wait for writeFuture()");
         }
+        checkWriteFailure();
+    }
+
+    @FunctionalInterface
+    private interface DiskWrite {
+        void run() throws IOException;
     }
 
     @Override
     public void setContent(File file) throws IOException {
         checkAccessible();
+        checkWritesDone();
         long size = file.length();
         checkSize(size);
         this.size = size;
@@ -217,17 +445,22 @@ public abstract class AbstractDiskHttpData extends AbstractHttpData {
         }
         this.file = file;
         isRenamed = true;
+        mappedViews = null;
         setCompleted();
     }
 
     @Override
     public void setContent(InputStream inputStream) throws IOException {
         checkAccessible();
+        checkWritesDone();
         ObjectUtil.checkNotNullWithIAE(inputStream, "inputStream");
         if (file != null) {
             delete();
         }
         file = tempFile();
+        // A temporary file of this data, deleted or given back to its source with it
+        isRenamed = false;
+        mappedViews = null;
         RandomAccessFile accessFile = new RandomAccessFile(file, "rw");
         int written = 0;
         try {
@@ -242,27 +475,43 @@ public abstract class AbstractDiskHttpData extends AbstractHttpData {
                 checkSize(written);
                 read = inputStream.read(bytes);
             }
-            localfileChannel.force(false);
+            if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+                localfileChannel.force(false);
+            }
         } finally {
             accessFile.close();
         }
         size = written;
         if (definedSize > 0 && definedSize < size) {
-            if (!file.delete()) {
-                logger.warn("Failed to delete: {}", file);
-            }
-            file = null;
+            deleteFile();
             throw new IOException("Out of size: " + size + " > " + definedSize);
         }
-        isRenamed = true;
         setCompleted();
     }
 
     @Override
     public void delete() {
+        if (!pendingWrites.isDone()) {
+            // Delete once the queued writes are done, from the thread of the last one if the executor was removed
+            BiFunction<Void, Throwable, Void> delete = (ignored, cause) -> {
+                deleteFile();
+                return null;
+            };
+            Executor executor = writeExecutor;
+            pendingWrites = executor != null ?
+                    pendingWrites.handleAsync(delete, executor) : pendingWrites.handle(delete);
+            return;
+        }
+        deleteFile();
+    }
+
+    private void deleteFile() {
+        closeReadChannel();
         if (fileChannel != null) {
             try {
-                fileChannel.force(false);
+                if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+                    fileChannel.force(false);
+                }
             } catch (IOException e) {
                 logger.warn("Failed to force.", e);
             } finally {
@@ -275,27 +524,51 @@ public abstract class AbstractDiskHttpData extends AbstractHttpData {
             fileChannel = null;
         }
         if (!isRenamed) {
-            String filePath = null;
-
-            if (file != null && file.exists()) {
-                filePath = file.getPath();
-                if (!file.delete()) {
-                    filePath = null;
-                    logger.warn("Failed to delete: {}", file);
+            File oldFile = file;
+            TempFileSource source = leasedFrom;
+            MappedBuffers.FileViews views = mappedViews;
+            file = null;
+            leasedFrom = null;
+            mappedViews = null;
+            if (oldFile != null) {
+                if (views != null) {
+                    // Given back, and possibly truncated, only once the mapped views are closed
+                    views.release(() -> releaseFile(oldFile, source));
+                } else {
+                    releaseFile(oldFile, source);
                 }
             }
+        }
+    }
+
+    /**
+     * Give the file back to the source it was leased from, or else delete it
+     */
+    private void releaseFile(File file, TempFileSource source) {
+        if (source != null) {
+            source.release(file);
+            return;
+        }
+        String filePath = null;
 
-            // If you turn on deleteOnExit make sure it is executed.
-            if (deleteOnExit() && filePath != null) {
-                DeleteFileOnExitHook.remove(filePath);
+        if (file.exists()) {
+            filePath = file.getPath();
+            if (!file.delete()) {
+                filePath = null;
+                logger.warn("Failed to delete: {}", file);
             }
-            file = null;
+        }
+
+        // If you turn on deleteOnExit make sure it is executed.
+        if (deleteOnExit() && filePath != null) {
+            DeleteFileOnExitHook.remove(filePath);
         }
     }
 
     @Override
     public byte[] get() throws IOException {
         checkAccessible();
+        checkWritesDone();
         if (file == null) {
             return EmptyArrays.EMPTY_BYTES;
         }
@@ -317,20 +590,52 @@ public abstract class AbstractDiskHttpData extends AbstractHttpData {
         }
     }
 
+    /**
+     * Give the content to the callback as read-only views over consecutive regions of the file mapped in memory,
+     * whatever the {@link ReadMode}. Unlike {@link #usingBuffer}, this is not limited to 2GB of content.
+     * Each view is closed once the callback returns, unless the callback closed it.
+     *
+     * @param maxSegmentSize the maximum number of bytes of each view
+     */
+    public <E extends Exception> void usingSegments(int maxSegmentSize, ThrowingConsumer<Buffer, E> callback)
+            throws IOException, E {
+        ObjectUtil.checkPositive(maxSegmentSize, "maxSegmentSize");
+        checkAccessible();
+        checkWritesDone();
+        if (file == null || size == 0) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            for (long position = 0; position < size; position += maxSegmentSize) {
+                int length = (int) Math.min(maxSegmentSize, size - position);
+                Buffer segment = MappedBuffers.wrap(MappedBuffers.map(channel, position, length), getAllocator(),
+                        mappedViews());
+                try {
+                    callback.accept(segment);
+                } finally {
+                    if (segment.isAccessible()) {
+                        segment.close();
+                    }
+                }
+            }
+        }
+    }
+
     @Override
     public Buffer getChunk(int length) throws IOException {
         checkAccessible();
+        checkWritesDone();
         int remaining = length;
         int read;
 
         if (file == null || length == 0) {
-            return DefaultBufferAllocators.preferredAllocator().allocate(0);
+            return getAllocator().allocate(0);
         }
         if (fileChannel == null) {
             RandomAccessFile accessFile = new RandomAccessFile(file, "r");
             fileChannel = accessFile.getChannel();
         }
-        Buffer buffer = DefaultBufferAllocators.onHeapAllocator().allocate(length);
+        Buffer buffer = getAllocator().allocate(length);
         try {
             do {
                 if ((read = buffer.transferFrom(fileChannel, remaining)) < 0) {
@@ -347,6 +652,43 @@ public abstract class AbstractDiskHttpData extends AbstractHttpData {
         return buffer;
     }
 
+    @Override
+    public Buffer readChunk(long position, int length, BufferAllocator allocator) throws IOException {
+        checkAccessible();
+        checkWritesDone();
+        if (file == null || length == 0 || position >= size) {
+            return allocator.allocate(0);
+        }
+        if (readChannel == null) {
+            readChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        }
+        int remaining = (int) Math.min(length, size - position);
+        Buffer buffer = allocator.allocate(remaining);
+        try {
+            int read;
+            while (remaining > 0 && (read = buffer.transferFrom(readChannel, position, remaining)) > 0) {
+                position += read;
+                remaining -= read;
+            }
+        } catch (IOException e) {
+            closeReadChannel();
+            buffer.close();
+            throw e;
+        }
+        return buffer;
+    }
+
+    private void closeReadChannel() {
+        if (readChannel != null) {
+            try {
+                readChannel.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close a file.", e);
+            }
+            readChannel = null;
+        }
+    }
+
     @Override
     public String getString() throws IOException {
         return getString(HttpConstants.DEFAULT_CHARSET);
@@ -355,12 +697,21 @@ public abstract class AbstractDiskHttpData extends AbstractHttpData {
     @Override
     public String getString(Charset encoding) throws IOException {
         checkAccessible();
+        checkWritesDone();
         if (file == null) {
             return "";
         }
         if (encoding == null) {
-            byte[] array = readFrom(file);
-            return new String(array, HttpConstants.DEFAULT_CHARSET.name());
+            encoding = HttpConstants.DEFAULT_CHARSET;
+        }
+        if (readMode == ReadMode.MEMORY_MAPPED) {
+            // Decoded straight from the page cache, without an intermediate array of bytes
+            MappedByteBuffer mapped = mapContent();
+            try {
+                return encoding.decode(mapped).toString();
+            } finally {
+                MappedBuffers.unmap(mapped);
+            }
         }
         byte[] array = readFrom(file);
         return new String(array, encoding.name());
@@ -374,10 +725,51 @@ public abstract class AbstractDiskHttpData extends AbstractHttpData {
     @Override
     public boolean renameTo(File dest) throws IOException {
         checkAccessible();
+        checkWritesDone();
+        return moveFile(dest);
+    }
+
+    /**
+     * With a write executor, the file is moved from the executor after the pending writes, so that neither the
+     * writes nor a copy of the file to another volume make the calling thread wait. The following operations on
+     * this data, such as {@link #delete()}, are done after the move.
+     */
+    @Override
+    public CompletableFuture<Boolean> renameToAsync(File dest) {
+        Executor executor = writeExecutor;
+        if (executor == null && pendingWrites.isDone()) {
+            return super.renameToAsync(dest);
+        }
+        checkAccessible();
+        ObjectUtil.checkNotNullWithIAE(dest, "dest");
+        Function<Void, Boolean> move = ignored -> {
+            try {
+                return moveFile(dest);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        };
+        CompletableFuture<Void> writes = pendingWrites;
+        // From the thread of the last write if the executor was removed
+        CompletableFuture<Boolean> moved = executor != null ?
+                writes.thenApplyAsync(move, executor) : writes.thenApply(move);
+        // The following operations wait for the move, a failed write staying reported
+        pendingWrites = moved.handle((ignored, cause) -> null).thenCompose(ignored -> writes);
+        return moved;
+    }
+
+    private boolean moveFile(File dest) throws IOException {
         ObjectUtil.checkNotNullWithIAE(dest, "dest");
         if (file == null) {
             throw new IOException("No file defined so cannot be renamed");
         }
+        closeReadChannel();
+        if (fsyncPolicy == FsyncPolicy.ON_RENAME) {
+            // The content must be on the device before the file is visible under its new name
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                channel.force(false);
+            }
+        }
         if (!file.renameTo(dest)) {
             // must copy
             IOException exception = null;
@@ -396,6 +788,9 @@ public abstract class AbstractDiskHttpData extends AbstractHttpData {
                     }
                     position += in.transferTo(position, chunkSize, out);
                 }
+                if (fsyncPolicy != FsyncPolicy.NEVER) {
+                    out.force(false);
+                }
             } catch (IOException e) {
                 exception = e;
             } finally {
@@ -429,8 +824,10 @@ public abstract class AbstractDiskHttpData extends AbstractHttpData {
                 if (!file.delete()) {
                     logger.warn("Failed to delete: {}", file);
                 }
+                detachFile();
                 file = dest;
                 isRenamed = true;
+                mappedViews = null;
                 return true;
             } else {
                 if (!dest.delete()) {
@@ -439,39 +836,83 @@ public abstract class AbstractDiskHttpData extends AbstractHttpData {
                 return false;
             }
         }
+        detachFile();
         file = dest;
         isRenamed = true;
+        // The views of the moved file stay valid, and the new one has none
+        mappedViews = null;
         return true;
     }
 
+    /**
+     * Let the source the file was leased from know that the file left it, once moved
+     */
+    private void detachFile() {
+        if (leasedFrom != null) {
+            leasedFrom.detach(file);
+            leasedFrom = null;
+        }
+    }
+
     /**
      * Utility function
      *
-     * @return the array of bytes
+     * @return the array of the bytes of the content
      */
-    private static byte[] readFrom(File src) throws IOException {
-        return Files.readAllBytes(src.toPath());
+    private byte[] readFrom(File src) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("File too big to be loaded in memory");
+        }
+        byte[] array = new byte[(int) size];
+        try (RandomAccessFile accessFile = new RandomAccessFile(src, "r")) {
+            accessFile.readFully(array);
+        }
+        return array;
     }
 
     /**
-     * Returns a copy of the current file content. The buffer ownership is returned to the caller
+     * Returns a copy of the current file content, or a read-only view of it with {@link ReadMode#MEMORY_MAPPED}.
+     * The buffer ownership is returned to the caller
      */
     protected Buffer getContent() {
         try {
-            return (file == null) ? DefaultBufferAllocators.preferredAllocator().allocate(0) : getBufferFrom(file);
+            checkWritesDone();
+            if (file == null) {
+                return getAllocator().allocate(0);
+            }
+            if (readMode == ReadMode.MEMORY_MAPPED) {
+                return MappedBuffers.wrap(mapContent(), getAllocator(), mappedViews());
+            }
+            return getBufferFrom(file);
         }
         catch (IOException e) {
             throw new ChannelException(e);
         }
     }
 
-    private static Buffer getBufferFrom(File src) throws IOException {
-        long srcsize = src.length();
+    private MappedBuffers.FileViews mappedViews() {
+        if (mappedViews == null) {
+            mappedViews = new MappedBuffers.FileViews();
+        }
+        return mappedViews;
+    }
+
+    private MappedByteBuffer mapContent() throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("File too big to be mapped in one buffer, use usingSegments");
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return MappedBuffers.map(channel, 0, (int) size);
+        }
+    }
+
+    private Buffer getBufferFrom(File src) throws IOException {
+        long srcsize = size;
         if (srcsize > Integer.MAX_VALUE) {
             throw new IllegalArgumentException(
                     "File too big to be loaded in memory");
         }
-        Buffer buf = DefaultBufferAllocators.onHeapAllocator().allocate((int) srcsize);
+        Buffer buf = getAllocator().allocate((int) srcsize);
 
         try (RandomAccessFile raf = new RandomAccessFile(src, "r"); FileChannel channel = raf.getChannel()) {
             int remaining = (int) srcsize;
@@ -494,6 +935,7 @@ public abstract class AbstractDiskHttpData extends AbstractHttpData {
 
     @Override
     public File getFile() throws IOException {
+        checkWritesDone();
         return file;
     }
 }
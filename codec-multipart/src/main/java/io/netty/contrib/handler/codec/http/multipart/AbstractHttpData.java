@@ -16,6 +16,8 @@
 package io.netty.contrib.handler.codec.http.multipart;
 
 import io.netty5.buffer.Buffer;
+import io.netty5.buffer.BufferAllocator;
+import io.netty5.buffer.DefaultBufferAllocators;
 import io.netty5.buffer.Drop;
 import io.netty5.buffer.internal.ResourceSupport;
 import io.netty5.channel.ChannelException;
@@ -44,6 +46,7 @@ public abstract class AbstractHttpData extends ResourceSupport<HttpData, Abstrac
     private Charset charset = HttpConstants.DEFAULT_CHARSET;
     private boolean completed;
     private long maxSize = DefaultHttpDataFactory.MAXSIZE;
+    private BufferAllocator allocator = DefaultBufferAllocators.onHeapAllocator();
 
     private final static Drop<AbstractHttpData> drop = new Drop<AbstractHttpData>() {
         @Override
@@ -83,6 +86,7 @@ public abstract class AbstractHttpData extends ResourceSupport<HttpData, Abstrac
         this.size = copy.size;
         this.completed = copy.completed;
         this.maxSize = copy.maxSize;
+        this.allocator = copy.allocator;
     }
 
     @Override
@@ -95,6 +99,16 @@ public abstract class AbstractHttpData extends ResourceSupport<HttpData, Abstrac
         this.maxSize = maxSize;
     }
 
+    @Override
+    public BufferAllocator getAllocator() {
+        return allocator;
+    }
+
+    @Override
+    public void setAllocator(BufferAllocator allocator) {
+        this.allocator = ObjectUtil.checkNotNullWithIAE(allocator, "allocator");
+    }
+
     @Override
     public void checkSize(long newSize) throws IOException {
         if (maxSize >= 0 && newSize > maxSize) {
@@ -17,7 +17,6 @@ package io.netty.contrib.handler.codec.http.multipart;
 
 import io.netty5.buffer.Buffer;
 import io.netty5.buffer.CompositeBuffer;
-import io.netty5.buffer.DefaultBufferAllocators;
 import io.netty5.buffer.internal.InternalBufferUtils;
 import io.netty5.handler.codec.http.HttpConstants;
 import io.netty5.util.internal.ObjectUtil;
@@ -35,12 +34,25 @@ import java.util.Arrays;
  * Abstract Memory HttpData implementation
  */
 public abstract class AbstractMemoryHttpData extends AbstractHttpData {
+    /**
+     * Chunks smaller than this are copied into slabs rather than added as components of the content, so
+     * that content received in many small fragments stays made of a few large buffers
+     */
+    static final int SLAB_COPY_THRESHOLD = 4096;
+    /**
+     * Minimum capacity of a slab
+     */
+    static final int SLAB_SIZE = 16 * 1024;
+    /**
+     * Maximum capacity of a slab
+     */
+    static final int MAX_SLAB_SIZE = 1024 * 1024;
 
     protected Buffer byteBuf;
 
     protected AbstractMemoryHttpData(String name, Charset charset, long size) {
         super(name, charset, size);
-        byteBuf = DefaultBufferAllocators.preferredAllocator().allocate(0);
+        byteBuf = getAllocator().allocate(0);
     }
 
     @Override
@@ -80,7 +92,7 @@ public abstract class AbstractMemoryHttpData extends AbstractHttpData {
 
         ObjectUtil.checkNotNullWithIAE(inputStream, "inputStream");
         byte[] bytes = new byte[4096 * 4];
-        Buffer buffer = DefaultBufferAllocators.preferredAllocator().allocate(0);
+        Buffer buffer = getAllocator().allocate(0);
         int written = 0;
         try {
             int read;
@@ -132,11 +144,10 @@ public abstract class AbstractMemoryHttpData extends AbstractHttpData {
                 // Previous buffer is empty, so just replace it
                 byteBuf.close();
                 byteBuf = buffer;
-            } else if (CompositeBuffer.isComposite(this.byteBuf)) {
-                CompositeBuffer cbb = (CompositeBuffer) this.byteBuf;
-                cbb.extendWith(buffer.send());
+            } else if (localsize < SLAB_COPY_THRESHOLD) {
+                addToSlab(buffer);
             } else {
-                byteBuf = DefaultBufferAllocators.onHeapAllocator().compose(Arrays.asList(this.byteBuf.send(), buffer.send()));
+                append(buffer);
             }
         }
         if (last) {
@@ -146,6 +157,48 @@ public abstract class AbstractMemoryHttpData extends AbstractHttpData {
         }
     }
 
+    /**
+     * Copy a small chunk at the end of the content, filling the remaining room of the current slab first, then
+     * a new slab, instead of adding one more component per chunk.
+     */
+    private void addToSlab(Buffer buffer) {
+        try (buffer) {
+            int room = byteBuf.readOnly() ? 0 : byteBuf.writableBytes();
+            if (room > 0) {
+                try (Buffer part = buffer.readSplit(Math.min(room, buffer.readableBytes()))) {
+                    byteBuf.writeBytes(part);
+                }
+            }
+            if (buffer.readableBytes() > 0) {
+                Buffer slab = getAllocator().allocate(slabCapacity(buffer.readableBytes()));
+                slab.writeBytes(buffer);
+                append(slab);
+            }
+        }
+    }
+
+    /**
+     * @return the capacity of a new slab: the size of the content received so far, between {@link #SLAB_SIZE} and
+     * {@link #MAX_SLAB_SIZE}, so that the slabs grow geometrically with the bytes actually received and the unused
+     * room stays within the size of the content. The declared size only caps it: a part declaring a large size
+     * but sending a few bytes does not keep a large slab.
+     */
+    private int slabCapacity(int minCapacity) {
+        long capacity = Math.min(Math.max(size, SLAB_SIZE), MAX_SLAB_SIZE);
+        if (definedSize > 0) {
+            capacity = Math.min(capacity, definedSize - size + minCapacity);
+        }
+        return (int) Math.max(capacity, minCapacity);
+    }
+
+    private void append(Buffer buffer) {
+        if (CompositeBuffer.isComposite(byteBuf)) {
+            ((CompositeBuffer) byteBuf).extendWith(buffer.send());
+        } else {
+            byteBuf = getAllocator().compose(Arrays.asList(byteBuf.send(), buffer.send()));
+        }
+    }
+
     @Override
     public void setContent(File file) throws IOException {
         checkAccessible();
@@ -156,7 +209,7 @@ public abstract class AbstractMemoryHttpData extends AbstractHttpData {
             throw new IllegalArgumentException("File too big to be loaded in memory");
         }
         checkSize(newsize);
-        Buffer buf = DefaultBufferAllocators.onHeapAllocator().allocate((int) newsize);
+        Buffer buf = getAllocator().allocate((int) newsize);
         try (RandomAccessFile accessFile = new RandomAccessFile(file, "r");
              FileChannel fileChannel = accessFile.getChannel()) {
             int bytesRead = 0;
@@ -225,11 +278,23 @@ public abstract class AbstractMemoryHttpData extends AbstractHttpData {
         callback.accept(byteBuf);
     }
 
+    /**
+     * Give away the content without copying it, leaving this data empty
+     *
+     * @return the content, owned by the caller
+     */
+    Buffer takeContent() {
+        Buffer content = byteBuf != null ? byteBuf : getAllocator().allocate(0);
+        byteBuf = getAllocator().allocate(0);
+        size = 0;
+        return content;
+    }
+
     @Override
     public Buffer getChunk(int length) {
         int readableBytes = byteBuf.readableBytes();
         if (byteBuf == null || length == 0 || readableBytes == 0) {
-            return DefaultBufferAllocators.preferredAllocator().allocate(0);
+            return getAllocator().allocate(0);
         }
         return byteBuf.readSplit(Math.min(readableBytes, length));
     }
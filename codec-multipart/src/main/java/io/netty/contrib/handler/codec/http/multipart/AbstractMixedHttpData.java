@@ -16,19 +16,33 @@
 package io.netty.contrib.handler.codec.http.multipart;
 
 import io.netty5.buffer.Buffer;
+import io.netty5.buffer.BufferAllocator;
 import io.netty5.buffer.Drop;
 import io.netty5.buffer.internal.ResourceSupport;
+import io.netty5.util.internal.ObjectUtil;
 import io.netty.contrib.handler.codec.http.multipart.Helpers.ThrowingConsumer;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 abstract class AbstractMixedHttpData<D extends HttpData> extends ResourceSupport<HttpData, AbstractMixedHttpData<? extends HttpData>> implements HttpData {
     final String baseDir;
     final boolean deleteOnExit;
     D wrapped;
+    Executor writeExecutor;
+    FsyncPolicy fsyncPolicy = FsyncPolicy.ALWAYS;
+    ReadMode readMode = ReadMode.COPY;
+    TempFileSource tempFileSource;
+    HttpDataMemoryBudget memoryBudget;
+    /**
+     * Number of bytes of the in memory content reserved from the memory budget
+     */
+    long reservedBytes;
 
     protected final long limitSize;
 
@@ -58,6 +72,121 @@ abstract class AbstractMixedHttpData<D extends HttpData> extends ResourceSupport
 
     abstract D makeDiskData();
 
+    /**
+     * @return a new disk based data, using the write executor, the fsync policy and the read mode
+     */
+    D newDiskData() {
+        D diskData = makeDiskData();
+        diskData.setAllocator(wrapped.getAllocator());
+        ((AbstractDiskHttpData) diskData).setWriteExecutor(writeExecutor);
+        ((AbstractDiskHttpData) diskData).setFsyncPolicy(fsyncPolicy);
+        ((AbstractDiskHttpData) diskData).setReadMode(readMode);
+        ((AbstractDiskHttpData) diskData).setTempFileSource(tempFileSource);
+        return diskData;
+    }
+
+    /**
+     * Set the executor writing the content to disk once it is stored in a file, or null (the default)
+     * to write it from the calling thread.
+     *
+     * @see AbstractDiskHttpData#setWriteExecutor(Executor)
+     */
+    public void setWriteExecutor(Executor writeExecutor) {
+        this.writeExecutor = writeExecutor;
+        if (wrapped instanceof AbstractDiskHttpData) {
+            ((AbstractDiskHttpData) wrapped).setWriteExecutor(writeExecutor);
+        }
+    }
+
+    /**
+     * Set when the content is forced to the storage device once it is stored in a file.
+     *
+     * @see AbstractDiskHttpData#setFsyncPolicy(FsyncPolicy)
+     */
+    public void setFsyncPolicy(FsyncPolicy fsyncPolicy) {
+        this.fsyncPolicy = ObjectUtil.checkNotNullWithIAE(fsyncPolicy, "fsyncPolicy");
+        if (wrapped instanceof AbstractDiskHttpData) {
+            ((AbstractDiskHttpData) wrapped).setFsyncPolicy(fsyncPolicy);
+        }
+    }
+
+    /**
+     * Set how the content is read as a whole once it is stored in a file.
+     *
+     * @see AbstractDiskHttpData#setReadMode(ReadMode)
+     */
+    public void setReadMode(ReadMode readMode) {
+        this.readMode = ObjectUtil.checkNotNullWithIAE(readMode, "readMode");
+        if (wrapped instanceof AbstractDiskHttpData) {
+            ((AbstractDiskHttpData) wrapped).setReadMode(readMode);
+        }
+    }
+
+    /**
+     * Set the source to lease the file from once the content is stored in a file, or null (the default)
+     * to create a new temporary file.
+     *
+     * @see AbstractDiskHttpData#setTempFileSource(TempFileSource)
+     */
+    public void setTempFileSource(TempFileSource tempFileSource) {
+        this.tempFileSource = tempFileSource;
+        if (wrapped instanceof AbstractDiskHttpData) {
+            ((AbstractDiskHttpData) wrapped).setTempFileSource(tempFileSource);
+        }
+    }
+
+    /**
+     * Set the budget shared with other data for the bytes kept in memory, or null (the default) to only
+     * compare the content to the limit size of this data.
+     *
+     * @see HttpDataMemoryBudget
+     */
+    public void setMemoryBudget(HttpDataMemoryBudget memoryBudget) {
+        releaseReservedBytes();
+        this.memoryBudget = memoryBudget;
+        if (memoryBudget != null && wrapped instanceof AbstractMemoryHttpData && wrapped.length() == 0 &&
+            definedLength() > memoryBudget.maxBytes() - memoryBudget.usedBytes()) {
+            // The declared content would not fit in the budget, so store it on disk from the start
+            D oldWrapped = wrapped;
+            try (oldWrapped) {
+                wrapped = newDiskData();
+            }
+        } else if (memoryBudget != null && wrapped.isInMemory()) {
+            // The content already in memory is accounted if the budget has room for it, else once it changes
+            reserveBytes(wrapped.length());
+        }
+    }
+
+    /**
+     * Reserve from the memory budget the bytes of the new length of the in memory content
+     *
+     * @return {@code false} if the budget has no room for them, the content then has to be moved to disk
+     */
+    boolean reserveBytes(long length) {
+        if (memoryBudget == null) {
+            return true;
+        }
+        long delta = length - reservedBytes;
+        if (delta > 0 && !memoryBudget.tryReserve(delta)) {
+            return false;
+        }
+        if (delta < 0) {
+            memoryBudget.release(-delta);
+        }
+        reservedBytes = length;
+        return true;
+    }
+
+    /**
+     * Give back to the memory budget the bytes of the in memory content, once it is moved to disk or deleted
+     */
+    void releaseReservedBytes() {
+        if (memoryBudget != null && reservedBytes > 0) {
+            memoryBudget.release(reservedBytes);
+        }
+        reservedBytes = 0;
+    }
+
     @Override
     public long getMaxSize() {
         return wrapped.getMaxSize();
@@ -69,6 +198,16 @@ abstract class AbstractMixedHttpData<D extends HttpData> extends ResourceSupport
         wrapped.setMaxSize(maxSize);
     }
 
+    @Override
+    public BufferAllocator getAllocator() {
+        return wrapped.getAllocator();
+    }
+
+    @Override
+    public void setAllocator(BufferAllocator allocator) {
+        wrapped.setAllocator(allocator);
+    }
+
     @Override
     public <E extends Exception> void usingContent(ThrowingConsumer<Buffer, E> callback) throws E {
         wrapped.usingContent(callback);
@@ -100,19 +239,15 @@ abstract class AbstractMixedHttpData<D extends HttpData> extends ResourceSupport
         checkAccessible(buffer);
         if (wrapped instanceof AbstractMemoryHttpData) {
             try {
-                checkSize(wrapped.length() + buffer.readableBytes());
-                if (wrapped.length() + buffer.readableBytes() > limitSize) {
-                    D diskData = makeDiskData();
-                    // Because the diskData.addContent method throws an exception, use
-                    // the Helpers.ThrowingConsumer.unchecked helper which allows
-                    // to wrap a throwing consumer into a regular consumer
-                    ((AbstractMemoryHttpData) wrapped).usingBuffer(data -> {
-                        if (data != null && data.readableBytes() > 0) {
-                            diskData.addContent(data, false); // data will be closed by this method
-                        }
-                    });
+                long newLength = wrapped.length() + buffer.readableBytes();
+                checkSize(newLength);
+                if (newLength > limitSize || !reserveBytes(newLength)) {
+                    D diskData = newDiskData();
+                    Buffer content = ((AbstractMemoryHttpData) wrapped).takeContent();
                     wrapped.close();
                     wrapped = diskData;
+                    releaseReservedBytes();
+                    buffer = withContentBefore(content, buffer);
                 }
             } catch (IOException e) {
                 buffer.close();
@@ -122,9 +257,27 @@ abstract class AbstractMixedHttpData<D extends HttpData> extends ResourceSupport
         wrapped.addContent(buffer, last);
     }
 
+    /**
+     * Put the content moved out of memory before the new buffer, without copying them, so that the disk data
+     * writes both of them with one gathering write
+     */
+    private Buffer withContentBefore(Buffer content, Buffer buffer) throws IOException {
+        if (content.readableBytes() == 0) {
+            content.close();
+            return buffer;
+        }
+        if (content.readOnly() != buffer.readOnly()) {
+            // A composite buffer can't mix read-only and writable buffers, so write the content on its own
+            wrapped.addContent(content, false);
+            return buffer;
+        }
+        return getAllocator().compose(Arrays.asList(content.send(), buffer.send()));
+    }
+
     @Override
     public void delete() {
         wrapped.delete();
+        releaseReservedBytes();
     }
 
     @Override
@@ -137,6 +290,21 @@ abstract class AbstractMixedHttpData<D extends HttpData> extends ResourceSupport
         wrapped.usingBuffer(callback);
     }
 
+    /**
+     * Give the content to the callback as consecutive read-only views: the regions of the file mapped in memory
+     * if the content is stored in a file, or else the whole content at once.
+     *
+     * @see AbstractDiskHttpData#usingSegments(int, ThrowingConsumer)
+     */
+    public <E extends Exception> void usingSegments(int maxSegmentSize, ThrowingConsumer<Buffer, E> callback)
+            throws IOException, E {
+        if (wrapped instanceof AbstractDiskHttpData) {
+            ((AbstractDiskHttpData) wrapped).usingSegments(maxSegmentSize, callback);
+        } else {
+            wrapped.usingBuffer(callback);
+        }
+    }
+
     @Override
     public String getString() throws IOException {
         return wrapped.getString();
@@ -152,6 +320,11 @@ abstract class AbstractMixedHttpData<D extends HttpData> extends ResourceSupport
         return wrapped.isInMemory();
     }
 
+    @Override
+    public CompletableFuture<Void> writeFuture() {
+        return wrapped.writeFuture();
+    }
+
     @Override
     public long length() {
         return wrapped.length();
@@ -162,6 +335,11 @@ abstract class AbstractMixedHttpData<D extends HttpData> extends ResourceSupport
         return wrapped.renameTo(dest);
     }
 
+    @Override
+    public CompletableFuture<Boolean> renameToAsync(File dest) {
+        return wrapped.renameToAsync(dest);
+    }
+
     @Override
     public void setCharset(Charset charset) {
         wrapped.setCharset(charset);
@@ -176,14 +354,14 @@ abstract class AbstractMixedHttpData<D extends HttpData> extends ResourceSupport
             buffer.close();
             throw e;
         }
-        if (buffer.readableBytes() > limitSize) {
-            if (wrapped instanceof AbstractMemoryHttpData) {
-                // change to Disk
-                D oldWrapped = wrapped;
-                try (oldWrapped) {
-                    wrapped = makeDiskData();
-                }
+        if (wrapped instanceof AbstractMemoryHttpData &&
+            (buffer.readableBytes() > limitSize || !reserveBytes(buffer.readableBytes()))) {
+            // change to Disk
+            D oldWrapped = wrapped;
+            try (oldWrapped) {
+                wrapped = newDiskData();
             }
+            releaseReservedBytes();
         }
         wrapped.setContent(buffer);
     }
@@ -192,14 +370,14 @@ abstract class AbstractMixedHttpData<D extends HttpData> extends ResourceSupport
     public void setContent(File file) throws IOException {
         checkAccessible();
         checkSize(file.length());
-        if (file.length() > limitSize) {
-            if (wrapped instanceof AbstractMemoryHttpData) {
-                // change to Disk
-                D oldWrapped = wrapped;
-                try (oldWrapped) {
-                    wrapped = makeDiskData();
-                }
+        if (wrapped instanceof AbstractMemoryHttpData &&
+            (file.length() > limitSize || !reserveBytes(file.length()))) {
+            // change to Disk
+            D oldWrapped = wrapped;
+            try (oldWrapped) {
+                wrapped = newDiskData();
             }
+            releaseReservedBytes();
         }
         wrapped.setContent(file);
     }
@@ -211,8 +389,9 @@ abstract class AbstractMixedHttpData<D extends HttpData> extends ResourceSupport
             // change to Disk even if we don't know the size
             D oldWrapped = wrapped;
             try(oldWrapped) {
-                wrapped = makeDiskData();
+                wrapped = newDiskData();
             }
+            releaseReservedBytes();
         }
         wrapped.setContent(inputStream);
     }
@@ -252,6 +431,11 @@ abstract class AbstractMixedHttpData<D extends HttpData> extends ResourceSupport
         return wrapped.getChunk(length);
     }
 
+    @Override
+    public Buffer readChunk(long position, int length, BufferAllocator allocator) throws IOException {
+        return wrapped.readChunk(position, length, allocator);
+    }
+
     @Override
     public File getFile() throws IOException {
         return wrapped.getFile();
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.contrib.handler.codec.http.multipart;
+
+import io.netty5.buffer.Buffer;
+import io.netty5.handler.codec.http.HttpConstants;
+
+import java.nio.charset.Charset;
+
+/**
+ * Precompiled multipart delimiter (--boundary), shared by all the chunks of one request.
+ * <p>
+ * It keeps the delimiter as bytes together with its Boyer-Moore-Horspool skip table and its
+ * LF and CRLF prefixed forms, so that searching the delimiter in a chunk does not allocate.
+ */
+final class BoundaryMatcher {
+    private final String delimiter;
+    private final byte[] bytes;
+    private final int[] skipTable;
+    private final byte[] lfBytes;
+    private final byte[] crlfBytes;
+
+    /**
+     * @param delimiter the delimiter of the form --string, such that '--' is already included
+     * @param charset the charset used to encode the delimiter
+     */
+    BoundaryMatcher(String delimiter, Charset charset) {
+        this.delimiter = delimiter;
+        bytes = delimiter.getBytes(charset);
+        skipTable = HttpPostBodyUtil.computeSkipTable(bytes);
+        lfBytes = new byte[bytes.length + 1];
+        lfBytes[0] = HttpConstants.LF;
+        System.arraycopy(bytes, 0, lfBytes, 1, bytes.length);
+        crlfBytes = new byte[bytes.length + 2];
+        crlfBytes[0] = HttpConstants.CR;
+        crlfBytes[1] = HttpConstants.LF;
+        System.arraycopy(bytes, 0, crlfBytes, 2, bytes.length);
+    }
+
+    /**
+     * @return the delimiter of the form --string
+     */
+    String delimiter() {
+        return delimiter;
+    }
+
+    /**
+     * @return the length in bytes of the delimiter, without any line break
+     */
+    int length() {
+        return bytes.length;
+    }
+
+    /**
+     * Try to find the delimiter, with LF or CRLF in front of it if needed
+     *
+     * @param buffer the buffer to search in
+     * @param index the index to start from in the buffer
+     * @param precededByLineBreak true if it must be preceded by LF or CRLF, else false
+     * @param lineStartAtReaderOffset true if the readerOffset follows a line break already consumed, or is the
+     *        start of the body, so that a delimiter there needs no LF or CRLF in front of it
+     * @return a relative position from readerOffset >= 0 designing the start of the delimiter
+     *         (including LF or CRLF if asked), or a number < 0 if the delimiter is not found
+     * @see HttpPostBodyUtil#findDelimiter(Buffer, int, byte[], int[], boolean, boolean)
+     */
+    int findDelimiter(Buffer buffer, int index, boolean precededByLineBreak, boolean lineStartAtReaderOffset) {
+        return HttpPostBodyUtil.findDelimiter(buffer, index, bytes, skipTable, precededByLineBreak,
+                lineStartAtReaderOffset);
+    }
+
+    /**
+     * Find the start of the readable bytes which could be the beginning of a delimiter preceded by LF or CRLF
+     * (or of a bare delimiter if it is at the readerOffset and this one is at the start of a line), the remaining
+     * bytes of the delimiter being not yet received.
+     * <p>
+     * All the bytes before this position can safely be considered as content, while the following ones must
+     * be kept until the next chunk arrives.
+     *
+     * @param buffer the buffer to search in, where the full delimiter was not found
+     * @param lineStartAtReaderOffset true if the readerOffset follows a line break already consumed
+     * @return a relative position from readerOffset >= 0 of the possible partial delimiter,
+     *         or a number < 0 if the last bytes cannot be the beginning of a delimiter
+     */
+    int findPartialDelimiter(Buffer buffer, boolean lineStartAtReaderOffset) {
+        final int readerIndex = buffer.readerOffset();
+        final int writerIndex = buffer.writerOffset();
+        for (int i = Math.max(readerIndex, writerIndex - crlfBytes.length + 1); i < writerIndex; i++) {
+            final byte value = buffer.getByte(i);
+            if (value == HttpConstants.CR) {
+                if (startsWith(buffer, i, writerIndex, crlfBytes)) {
+                    return i - readerIndex;
+                }
+            } else if (value == HttpConstants.LF) {
+                if (startsWith(buffer, i, writerIndex, lfBytes)) {
+                    return i - readerIndex;
+                }
+            } else if (i == readerIndex && lineStartAtReaderOffset && startsWith(buffer, i, writerIndex, bytes)) {
+                return 0;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return true if all the bytes from offset to end are the first bytes of the pattern
+     */
+    private static boolean startsWith(Buffer buffer, int offset, int end, byte[] pattern) {
+        if (end - offset > pattern.length) {
+            return false;
+        }
+        for (int i = offset; i < end; i++) {
+            if (buffer.getByte(i) != pattern[i - offset]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return delimiter;
+    }
+}
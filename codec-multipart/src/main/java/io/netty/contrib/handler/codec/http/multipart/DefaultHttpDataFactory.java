@@ -15,9 +15,12 @@
  */
 package io.netty.contrib.handler.codec.http.multipart;
 
+import io.netty5.buffer.BufferAllocator;
+import io.netty5.buffer.DefaultBufferAllocators;
 import io.netty5.handler.codec.http.DefaultHttpRequest;
 import io.netty5.handler.codec.http.HttpConstants;
 import io.netty5.handler.codec.http.HttpRequest;
+import io.netty5.util.internal.ObjectUtil;
 
 import java.io.IOException;
 import java.nio.charset.Charset;
@@ -28,6 +31,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.Executor;
 
 /**
  * Default factory giving {@link Attribute} and {@link FileUpload} according to constructor.
@@ -72,6 +76,18 @@ public class DefaultHttpDataFactory implements HttpDataFactory {
 
     private boolean deleteOnExit; // false is a good default cause true leaks
 
+    private Executor writeExecutor;
+
+    private FsyncPolicy fsyncPolicy = FsyncPolicy.ALWAYS;
+
+    private ReadMode readMode = ReadMode.COPY;
+
+    private BufferAllocator allocator = DefaultBufferAllocators.onHeapAllocator();
+
+    private HttpDataMemoryBudget memoryBudget;
+
+    private TempFileSource tempFileSource;
+
     /**
      * Keep all {@link HttpData}s until cleaning methods are called.
      * We need to use {@link IdentityHashMap} because different requests may be equal.
@@ -143,6 +159,88 @@ public class DefaultHttpDataFactory implements HttpDataFactory {
         this.deleteOnExit = deleteOnExit;
     }
 
+    /**
+     * Set the executor writing to disk the content of the disk and mixed attributes and file uploads,
+     * instead of the thread decoding the request.
+     *
+     * @param writeExecutor the executor dedicated to the disk writes, or null (the default) to write
+     *                      from the decoding thread.
+     * @see AbstractDiskHttpData#setWriteExecutor(Executor)
+     */
+    public void setWriteExecutor(Executor writeExecutor) {
+        this.writeExecutor = writeExecutor;
+    }
+
+    /**
+     * Set when the content of the disk and mixed attributes and file uploads is forced to the storage device.
+     *
+     * @param fsyncPolicy the policy, {@link FsyncPolicy#ALWAYS} by default.
+     * @see AbstractDiskHttpData#setFsyncPolicy(FsyncPolicy)
+     */
+    public void setFsyncPolicy(FsyncPolicy fsyncPolicy) {
+        this.fsyncPolicy = ObjectUtil.checkNotNullWithIAE(fsyncPolicy, "fsyncPolicy");
+    }
+
+    /**
+     * Set how the content of the disk and mixed attributes and file uploads is read as a whole once it is stored
+     * in a file.
+     *
+     * @param readMode the mode, {@link ReadMode#COPY} by default.
+     * @see AbstractDiskHttpData#setReadMode(ReadMode)
+     */
+    public void setReadMode(ReadMode readMode) {
+        this.readMode = ObjectUtil.checkNotNullWithIAE(readMode, "readMode");
+    }
+
+    /**
+     * Set the allocator of the buffers created by the attributes and file uploads, as well as by the
+     * decoders and encoders using this factory.
+     *
+     * @param allocator the allocator, the on-heap allocator by default: a pooled or direct allocator may be given
+     *        instead.
+     */
+    public void setAllocator(BufferAllocator allocator) {
+        this.allocator = ObjectUtil.checkNotNullWithIAE(allocator, "allocator");
+    }
+
+    /**
+     * Set the source of the temporary files used by the disk and mixed attributes and file uploads, instead of
+     * creating a file in the base directory for each of them: a {@link TempFilePool} reusing the files of one
+     * directory, or a {@link StripedTempFileSource} spreading them over several directories.
+     *
+     * @param tempFileSource the source, or null (the default) to create a file for each data.
+     * @see AbstractDiskHttpData#setTempFileSource(TempFileSource)
+     */
+    public void setTempFileSource(TempFileSource tempFileSource) {
+        this.tempFileSource = tempFileSource;
+    }
+
+    /**
+     * Set the budget of the bytes kept in memory by all the mixed attributes and file uploads created by this
+     * factory, which may be shared with other factories. Once it is reached, the mixed data move their content
+     * to disk, whatever their size.
+     * <p>
+     * Only the mixed data, created when the factory is given a minimum size, are accounted: the data of a factory
+     * keeping everything in memory can't be moved to disk.
+     *
+     * @param memoryBudget the budget, or null (the default) to only compare each data to the minimum size.
+     */
+    public void setMemoryBudget(HttpDataMemoryBudget memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * @return the budget of the bytes kept in memory by the mixed data, or null if there is none
+     */
+    public HttpDataMemoryBudget getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    @Override
+    public BufferAllocator getAllocator() {
+        return allocator;
+    }
+
     @Override
     public void setMaxLimit(long maxSize) {
         this.maxSize = maxSize;
@@ -165,6 +263,7 @@ public class DefaultHttpDataFactory implements HttpDataFactory {
         if (useDisk) {
             Attribute attribute = new DiskAttribute(name, charset, baseDir, deleteOnExit);
             attribute.setMaxSize(maxSize);
+            applyDiskOptions(attribute);
             List<HttpData> list = getList(request);
             list.add(attribute);
             return attribute;
@@ -172,12 +271,14 @@ public class DefaultHttpDataFactory implements HttpDataFactory {
         if (checkSize) {
             Attribute attribute = new MixedAttribute(name, minSize, charset, baseDir, deleteOnExit);
             attribute.setMaxSize(maxSize);
+            applyDiskOptions(attribute);
             List<HttpData> list = getList(request);
             list.add(attribute);
             return attribute;
         }
         MemoryAttribute attribute = new MemoryAttribute(name);
         attribute.setMaxSize(maxSize);
+        attribute.setAllocator(allocator);
         return attribute;
     }
 
@@ -186,6 +287,7 @@ public class DefaultHttpDataFactory implements HttpDataFactory {
         if (useDisk) {
             Attribute attribute = new DiskAttribute(name, definedSize, charset, baseDir, deleteOnExit);
             attribute.setMaxSize(maxSize);
+            applyDiskOptions(attribute);
             List<HttpData> list = getList(request);
             list.add(attribute);
             return attribute;
@@ -193,15 +295,36 @@ public class DefaultHttpDataFactory implements HttpDataFactory {
         if (checkSize) {
             Attribute attribute = new MixedAttribute(name, definedSize, minSize, charset, baseDir, deleteOnExit);
             attribute.setMaxSize(maxSize);
+            applyDiskOptions(attribute);
             List<HttpData> list = getList(request);
             list.add(attribute);
             return attribute;
         }
         MemoryAttribute attribute = new MemoryAttribute(name, definedSize);
         attribute.setMaxSize(maxSize);
+        attribute.setAllocator(allocator);
         return attribute;
     }
 
+    /**
+     * Utility method
+     */
+    private void applyDiskOptions(HttpData data) {
+        data.setAllocator(allocator);
+        if (data instanceof AbstractDiskHttpData) {
+            ((AbstractDiskHttpData) data).setWriteExecutor(writeExecutor);
+            ((AbstractDiskHttpData) data).setFsyncPolicy(fsyncPolicy);
+            ((AbstractDiskHttpData) data).setReadMode(readMode);
+            ((AbstractDiskHttpData) data).setTempFileSource(tempFileSource);
+        } else if (data instanceof AbstractMixedHttpData) {
+            ((AbstractMixedHttpData<?>) data).setWriteExecutor(writeExecutor);
+            ((AbstractMixedHttpData<?>) data).setFsyncPolicy(fsyncPolicy);
+            ((AbstractMixedHttpData<?>) data).setReadMode(readMode);
+            ((AbstractMixedHttpData<?>) data).setTempFileSource(tempFileSource);
+            ((AbstractMixedHttpData<?>) data).setMemoryBudget(memoryBudget);
+        }
+    }
+
     /**
      * Utility method
      */
@@ -216,14 +339,18 @@ public class DefaultHttpDataFactory implements HttpDataFactory {
     @Override
     public Attribute createAttribute(HttpRequest request, String name, String value) {
         if (useDisk) {
-            Attribute attribute;
+            Attribute attribute = new DiskAttribute(name, charset, baseDir, deleteOnExit);
+            attribute.setMaxSize(maxSize);
+            applyDiskOptions(attribute);
             try {
-                attribute = new DiskAttribute(name, value, charset, baseDir, deleteOnExit);
-                attribute.setMaxSize(maxSize);
+                attribute.setValue(value);
             } catch (IOException e) {
                 // revert to Mixed mode
-                attribute = new MixedAttribute(name, value, minSize, charset, baseDir, deleteOnExit);
+                attribute.close();
+                attribute = new MixedAttribute(name, minSize, charset, baseDir, deleteOnExit);
                 attribute.setMaxSize(maxSize);
+                applyDiskOptions(attribute);
+                setValue(attribute, value);
             }
             checkHttpDataSize(attribute);
             List<HttpData> list = getList(request);
@@ -231,19 +358,31 @@ public class DefaultHttpDataFactory implements HttpDataFactory {
             return attribute;
         }
         if (checkSize) {
-            Attribute attribute = new MixedAttribute(name, value, minSize, charset, baseDir, deleteOnExit);
+            Attribute attribute = new MixedAttribute(name, minSize, charset, baseDir, deleteOnExit);
             attribute.setMaxSize(maxSize);
+            applyDiskOptions(attribute);
+            setValue(attribute, value);
             checkHttpDataSize(attribute);
             List<HttpData> list = getList(request);
             list.add(attribute);
             return attribute;
         }
+        MemoryAttribute attribute = new MemoryAttribute(name, charset);
+        attribute.setMaxSize(maxSize);
+        attribute.setAllocator(allocator);
+        setValue(attribute, value);
+        checkHttpDataSize(attribute);
+        return attribute;
+    }
+
+    /**
+     * Utility method
+     */
+    private static void setValue(Attribute attribute, String value) {
         try {
-            MemoryAttribute attribute = new MemoryAttribute(name, value, charset);
-            attribute.setMaxSize(maxSize);
-            checkHttpDataSize(attribute);
-            return attribute;
+            attribute.setValue(value);
         } catch (IOException e) {
+            attribute.close();
             throw new IllegalArgumentException(e);
         }
     }
@@ -257,6 +396,7 @@ public class DefaultHttpDataFactory implements HttpDataFactory {
                     contentTransferEncoding, charset, size, baseDir, deleteOnExit);
             fileUpload.setMaxSize(maxSize);
             checkHttpDataSize(fileUpload);
+            applyDiskOptions(fileUpload);
             List<HttpData> list = getList(request);
             list.add(fileUpload);
             return fileUpload;
@@ -266,6 +406,7 @@ public class DefaultHttpDataFactory implements HttpDataFactory {
                     contentTransferEncoding, charset, size, minSize, baseDir, deleteOnExit);
             fileUpload.setMaxSize(maxSize);
             checkHttpDataSize(fileUpload);
+            applyDiskOptions(fileUpload);
             List<HttpData> list = getList(request);
             list.add(fileUpload);
             return fileUpload;
@@ -273,6 +414,7 @@ public class DefaultHttpDataFactory implements HttpDataFactory {
         MemoryFileUpload fileUpload = new MemoryFileUpload(name, filename, contentType,
                 contentTransferEncoding, charset, size);
         fileUpload.setMaxSize(maxSize);
+        fileUpload.setAllocator(allocator);
         checkHttpDataSize(fileUpload);
         return fileUpload;
     }
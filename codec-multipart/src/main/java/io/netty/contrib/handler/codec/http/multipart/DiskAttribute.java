@@ -16,7 +16,6 @@
 package io.netty.contrib.handler.codec.http.multipart;
 
 import io.netty5.buffer.Buffer;
-import io.netty5.buffer.DefaultBufferAllocators;
 import io.netty5.buffer.Owned;
 import io.netty5.channel.ChannelException;
 import io.netty5.handler.codec.http.HttpConstants;
@@ -124,7 +123,7 @@ public class DiskAttribute extends AbstractDiskHttpData implements Attribute {
         ObjectUtil.checkNotNullWithIAE(value, "value");
         byte [] bytes = value.getBytes(getCharset());
         checkSize(bytes.length);
-        Buffer buffer = DefaultBufferAllocators.onHeapAllocator().copyOf(bytes);
+        Buffer buffer = getAllocator().copyOf(bytes);
         if (definedSize > 0) {
             definedSize = buffer.readableBytes();
         }
@@ -210,7 +209,7 @@ public class DiskAttribute extends AbstractDiskHttpData implements Attribute {
 
     @Override
     public Attribute copy() {
-        return replace(getContent()); // for disk based content, getContent() always returns a copy
+        return replace(getContent()); // a copy, or a mapped view, written by the replacement to its own file
     }
 
     @Override
@@ -178,7 +178,7 @@ public class DiskFileUpload extends AbstractDiskHttpData implements FileUpload {
 
     @Override
     public FileUpload copy() {
-        return replace(getContent()); // for disk based content, getContent() always returns a copy
+        return replace(getContent()); // a copy, or a mapped view, written by the replacement to its own file
     }
 
     @Override
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.contrib.handler.codec.http.multipart;
+
+import java.io.File;
+import java.nio.channels.FileChannel;
+
+/**
+ * When the content of a disk based {@link HttpData} is forced to the storage device
+ * (see {@link FileChannel#force(boolean)}).
+ */
+public enum FsyncPolicy {
+    /**
+     * Force the file once its content is complete, as well as a file copied by
+     * {@link HttpData#renameTo(File)}. This is the default.
+     */
+    ALWAYS,
+    /**
+     * Never force the file, leaving it to the operating system. Suited to temporary files which are
+     * processed and deleted shortly, and which don't have to survive a crash.
+     */
+    NEVER,
+    /**
+     * Only force the file when it is kept, that is when {@link HttpData#renameTo(File)} is called.
+     */
+    ON_RENAME
+}
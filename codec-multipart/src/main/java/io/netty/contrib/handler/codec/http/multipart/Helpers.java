@@ -15,6 +15,7 @@
  */package io.netty.contrib.handler.codec.http.multipart;
 
 import io.netty5.buffer.Buffer;
+import io.netty5.buffer.BufferAllocator;
 import io.netty5.buffer.DefaultBufferAllocators;
 import io.netty5.handler.codec.http.DefaultLastHttpContent;
 import io.netty5.handler.codec.http.EmptyLastHttpContent;
@@ -53,7 +54,11 @@ public class Helpers {
     }
 
     static Buffer copiedBuffer(String str, Charset charset) {
-        return DefaultBufferAllocators.onHeapAllocator().copyOf(str, charset);
+        return copiedBuffer(DefaultBufferAllocators.onHeapAllocator(), str, charset);
+    }
+
+    static Buffer copiedBuffer(BufferAllocator allocator, String str, Charset charset) {
+        return allocator.copyOf(str, charset);
     }
 
     static Buffer copiedBuffer(byte[] bytes, int offset, int length) {
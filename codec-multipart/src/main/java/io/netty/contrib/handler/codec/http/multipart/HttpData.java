@@ -16,12 +16,15 @@
 package io.netty.contrib.handler.codec.http.multipart;
 
 import io.netty5.buffer.Buffer;
+import io.netty5.buffer.BufferAllocator;
+import io.netty5.buffer.DefaultBufferAllocators;
 import io.netty.contrib.handler.codec.http.multipart.Helpers.ThrowingConsumer;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Extended interface for InterfaceHttpData
@@ -41,6 +44,22 @@ public interface HttpData extends InterfaceHttpData {
      */
     void setMaxSize(long maxSize);
 
+    /**
+     * Returns the allocator of the buffers created by this HttpData.
+     */
+    default BufferAllocator getAllocator() {
+        return DefaultBufferAllocators.onHeapAllocator();
+    }
+
+    /**
+     * Set the allocator of the buffers created by this HttpData, the on-heap allocator by default.
+     * Ignored by default, by the implementations always using the on-heap allocator.
+     *
+     * By default, to be set from the HttpDataFactory.
+     */
+    default void setAllocator(BufferAllocator allocator) {
+    }
+
     /**
      * Check if the new size is not reaching the max limit allowed.
      * The limit is always computed in terms of bytes.
@@ -135,7 +154,7 @@ public interface HttpData extends InterfaceHttpData {
      * Calls the passed callback to operate on the file item as a Buffer.<br>
      * Note: this method will allocate a lot of memory, if the data is currently stored on the file system.
      *
-     * <p>Buffer ownersip:</p>
+     * <p>Buffer ownership:</p>
      * The ownership of the buffer passed to the callack is not transferred and remains to this HttpData interface.
      * <ul>
      *     <li> for memory based http data, the internal buffer is directly passed to the callback.</li>
@@ -156,12 +175,38 @@ public interface HttpData extends InterfaceHttpData {
      * read. Once it arrives at the end, it returns an EMPTY_BUFFER and it
      * resets the current position to 0.
      *
-     * <p>Buffer ownersip: The buffer ownership of the returned buffer is transferred to the caller
+     * <p>Buffer ownership: The buffer ownership of the returned buffer is transferred to the caller
      * @return a ChannelBuffer for the content from the current position or an
      *         EMPTY_BUFFER if there is no more data to return
      */
     Buffer getChunk(int length) throws IOException;
 
+    /**
+     * Returns a Buffer allocated from the given allocator with at most length bytes of the content, starting
+     * at the given position. Unlike {@link #getChunk(int)}, it neither changes the content nor depends on
+     * a current position, and it can read any part of a content larger than 2GB.
+     *
+     * <p>Buffer ownership: The buffer ownership of the returned buffer is transferred to the caller
+     * @param position the position in the content of the first byte to read
+     * @param length the maximum number of bytes to read
+     * @param allocator the allocator of the returned buffer
+     * @return a Buffer with the bytes read, empty if the position is at or beyond the end of the content
+     */
+    default Buffer readChunk(long position, int length, BufferAllocator allocator) throws IOException {
+        // Copied from the content passed to usingBuffer, which loads a content stored on the file system
+        Buffer[] chunk = new Buffer[1];
+        usingBuffer(content -> {
+            int readableBytes = content == null ? 0 : content.readableBytes();
+            int toRead = position >= readableBytes ? 0 : (int) Math.min(length, readableBytes - position);
+            chunk[0] = allocator.allocate(toRead);
+            if (toRead > 0) {
+                content.copyInto(content.readerOffset() + (int) position, chunk[0], 0, toRead);
+                chunk[0].skipWritableBytes(toRead);
+            }
+        });
+        return chunk[0];
+    }
+
     /**
      * Returns the contents of the file item as a String, using the default
      * character encoding.
@@ -212,6 +257,24 @@ public interface HttpData extends InterfaceHttpData {
      */
     boolean renameTo(File dest) throws IOException;
 
+    /**
+     * Same as {@link #renameTo(File)}, done once the content is stored (see {@link #writeFuture()}) without making
+     * the calling thread wait for the disk, so that it may be called from an event loop. This data must not be used
+     * until the returned future is completed.
+     *
+     * @param dest
+     *            destination file - must be not null
+     * @return a future completed with the result of {@link #renameTo(File)}, or completed exceptionally if the
+     *         content could not be stored or moved
+     */
+    default CompletableFuture<Boolean> renameToAsync(File dest) {
+        try {
+            return CompletableFuture.completedFuture(renameTo(dest));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
     /**
      * Provides a hint as to whether or not the file contents will be read from
      * memory.
@@ -220,6 +283,16 @@ public interface HttpData extends InterfaceHttpData {
      */
     boolean isInMemory();
 
+    /**
+     * Returns a future completed once all the contents given so far are stored, or completed exceptionally
+     * if they can't be. It is already completed unless the content is written to disk by a write executor,
+     * see {@link AbstractDiskHttpData#setWriteExecutor(java.util.concurrent.Executor)}: the methods reading,
+     * replacing or moving such a content then fail until it is completed.
+     */
+    default CompletableFuture<Void> writeFuture() {
+        return CompletableFuture.completedFuture(null);
+    }
+
     /**
      *
      * @return the associated File if this data is represented in a file
@@ -232,7 +305,7 @@ public interface HttpData extends InterfaceHttpData {
      * Calls the passed callback to operate on the file item as a Buffer.<br>
      * Note: this method will allocate a lot of memory, if the data is currently stored on the file system.
      *
-     * <p>Buffer ownersip:</p>
+     * <p>Buffer ownership:</p>
      * The ownership of the buffer passed to the callack is not transferred and remains to this HttpData interface.
      * <ul>
      *     <li> for memory based http data, the internal buffer is directly passed to the callback.</li>
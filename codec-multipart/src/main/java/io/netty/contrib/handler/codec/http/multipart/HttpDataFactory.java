@@ -15,6 +15,8 @@
  */
 package io.netty.contrib.handler.codec.http.multipart;
 
+import io.netty5.buffer.BufferAllocator;
+import io.netty5.buffer.DefaultBufferAllocators;
 import io.netty5.handler.codec.http.HttpRequest;
 
 import java.nio.charset.Charset;
@@ -30,6 +32,14 @@ public interface HttpDataFactory {
      */
     void setMaxLimit(long max);
 
+    /**
+     * Returns the allocator of the buffers created by the InterfaceHttpData of this factory, as well as by the
+     * decoders and encoders using it. The on-heap allocator by default.
+     */
+    default BufferAllocator getAllocator() {
+        return DefaultBufferAllocators.onHeapAllocator();
+    }
+
     /**
      *
      * @param request associated request
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.contrib.handler.codec.http.multipart;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index by name, ignoring case, of the data decoded by a decoder, built lazily from the list of the data.
+ * <p>
+ * Nothing is indexed until the first lookup, so that a consumer only iterating over the data does not pay for it,
+ * and each lookup only indexes the data added to the list since the previous one. The names are folded to one case
+ * and kept in a {@link HashMap}, which turns its buckets of colliding keys into balanced trees once they grow: names
+ * chosen by a client so that their hashes collide cannot degrade the lookups into linear scans.
+ */
+final class HttpDataIndex {
+    private final List<InterfaceHttpData> datas;
+    private final Map<String, List<InterfaceHttpData>> index = new HashMap<String, List<InterfaceHttpData>>();
+    private int indexed;
+    private int taken;
+
+    /**
+     * @param datas the decoded data, in their order of decoding; a data is taken out of this list with
+     *              {@link #take(int)}, never removed directly
+     */
+    HttpDataIndex(List<InterfaceHttpData> datas) {
+        this.datas = datas;
+    }
+
+    /**
+     * @return the data with the given name (ignoring case) in their order of decoding, or null if there is none
+     */
+    List<InterfaceHttpData> get(String name) {
+        for (int size = datas.size(); indexed < size; indexed++) {
+            InterfaceHttpData data = datas.get(indexed);
+            if (data == null) {
+                // Taken out of the list
+                continue;
+            }
+            String key = fold(data.getName());
+            List<InterfaceHttpData> list = index.get(key);
+            if (list == null) {
+                list = new ArrayList<InterfaceHttpData>(1);
+                index.put(key, list);
+            }
+            list.add(data);
+        }
+        return index.get(fold(name));
+    }
+
+    /**
+     * Take a data out of the list and of the index. Its slot in the list is emptied (set to null) rather than
+     * removed, so that taking the data one after the other does not shift all the following ones each time: the
+     * empty slots are dropped at once by {@link #compact(int)}.
+     *
+     * @param position the position of the data in the list
+     * @return the data taken out
+     */
+    InterfaceHttpData take(int position) {
+        InterfaceHttpData data = datas.set(position, null);
+        taken++;
+        if (position < indexed) {
+            String key = fold(data.getName());
+            List<InterfaceHttpData> list = index.get(key);
+            for (int i = 0; i < list.size(); i++) {
+                // Different data may be equal, so the identity is checked
+                if (list.get(i) == data) {
+                    list.remove(i);
+                    break;
+                }
+            }
+            if (list.isEmpty()) {
+                index.remove(key);
+            }
+        }
+        return data;
+    }
+
+    /**
+     * @return true if at least half of the slots of the list are empty, so that dropping them with
+     * {@link #compact(int)} costs no more than the data taken out since the previous compaction
+     */
+    boolean isSparse() {
+        return taken > 0 && taken >= datas.size() - taken;
+    }
+
+    /**
+     * Drop the empty slots left in the list by {@link #take(int)}, shifting each remaining data only once
+     *
+     * @param position a position in the list
+     * @return the position, once the list is compacted, of the first data at or after the given position
+     */
+    int compact(int position) {
+        if (taken == 0) {
+            return position;
+        }
+        int size = datas.size();
+        int kept = 0;
+        int newPosition = position;
+        int newIndexed = indexed;
+        for (int i = 0; i < size; i++) {
+            InterfaceHttpData data = datas.get(i);
+            if (data != null) {
+                datas.set(kept++, data);
+            } else {
+                if (i < position) {
+                    newPosition--;
+                }
+                if (i < indexed) {
+                    newIndexed--;
+                }
+            }
+        }
+        datas.subList(kept, size).clear();
+        indexed = newIndexed;
+        taken = 0;
+        return newPosition;
+    }
+
+    /**
+     * Fold the name to one case, the same way as {@link String#equalsIgnoreCase(String)} compares the characters
+     *
+     * @return the folded name, which is the given one if it is already folded
+     */
+    static String fold(String name) {
+        int length = name.length();
+        for (int i = 0; i < length; i++) {
+            char c = name.charAt(i);
+            if (fold(c) != c) {
+                char[] folded = new char[length];
+                name.getChars(0, i, folded, 0);
+                for (; i < length; i++) {
+                    folded[i] = fold(name.charAt(i));
+                }
+                return new String(folded);
+            }
+        }
+        return name;
+    }
+
+    private static char fold(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+}
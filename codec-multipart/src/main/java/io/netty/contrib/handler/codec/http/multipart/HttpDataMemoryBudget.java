@@ -0,0 +1,79 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.contrib.handler.codec.http.multipart;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.netty5.util.internal.ObjectUtil.checkPositiveOrZero;
+
+/**
+ * Number of bytes that the mixed attributes and file uploads may keep in memory all together, shared by the
+ * requests of one or more {@link DefaultHttpDataFactory}.
+ * <p>
+ * A {@link MixedAttribute} or {@link MixedFileUpload} using a budget moves its content to disk as soon as the
+ * budget has no room left for it, even if it is smaller than its own limit, so that the memory used by the
+ * uploads stays bounded whatever the number of requests in flight. The bytes are given back to the budget once
+ * the data is moved to disk, deleted or closed.
+ */
+public final class HttpDataMemoryBudget {
+    private final long maxBytes;
+    private final AtomicLong usedBytes = new AtomicLong();
+
+    /**
+     * @param maxBytes the maximum number of bytes kept in memory by the data using this budget
+     */
+    public HttpDataMemoryBudget(long maxBytes) {
+        this.maxBytes = checkPositiveOrZero(maxBytes, "maxBytes");
+    }
+
+    /**
+     * @return the maximum number of bytes kept in memory by the data using this budget
+     */
+    public long maxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * @return the number of bytes currently kept in memory by the data using this budget
+     */
+    public long usedBytes() {
+        return usedBytes.get();
+    }
+
+    /**
+     * Reserve some bytes, if the budget has room for them
+     *
+     * @return {@code true} if the bytes are reserved, {@code false} if they would exceed the budget
+     */
+    boolean tryReserve(long bytes) {
+        for (;;) {
+            long used = usedBytes.get();
+            if (used + bytes > maxBytes) {
+                return false;
+            }
+            if (usedBytes.compareAndSet(used, used + bytes)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Give back some bytes previously reserved
+     */
+    void release(long bytes) {
+        usedBytes.addAndGet(-bytes);
+    }
+}
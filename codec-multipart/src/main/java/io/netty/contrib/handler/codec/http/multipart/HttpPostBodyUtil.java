@@ -17,8 +17,13 @@ package io.netty.contrib.handler.codec.http.multipart;
 
 import io.netty5.buffer.Buffer;
 import io.netty5.buffer.ByteCursor;
+import io.netty5.buffer.DefaultBufferAllocators;
 import io.netty5.handler.codec.http.HttpConstants;
 import io.netty5.util.ByteProcessor;
+import io.netty5.util.internal.StringUtil;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
 
 /**
  * Shared Static object between HttpMessageDecoder, HttpPostRequestDecoder and HttpPostRequestEncoder
@@ -42,6 +47,11 @@ final class HttpPostBodyUtil {
      */
     private final static ByteProcessor.IndexOfProcessor LF_PROCESSOR = new ByteProcessor.IndexOfProcessor(HttpConstants.LF);
 
+    /**
+     * Processor used to lookup url encoded bytes.
+     */
+    private static final ByteProcessor FIND_ESCAPE = value -> value != '%' && value != '+';
+
     /**
      * Allowed mechanism for multipart
      * mechanism := "7bit"
@@ -135,37 +145,20 @@ final class HttpPostBodyUtil {
     }
 
     /**
-     * Try to find last LF or CRLF as Line Breaking
+     * Compute the Boyer-Moore-Horspool bad character skip table for the given delimiter.
      *
-     * @param buffer the buffer to search in
-     * @param index the index to start from in the buffer
-     * @return a relative position from index > 0 if LF or CRLF is found
-     *         or < 0 if not found
+     * @param delimiter the delimiter as byte array
+     * @return for each possible byte value, the shift to apply when this byte is found
+     *         in front of the last byte of the delimiter
      */
-    static int findLastLineBreak(Buffer buffer, int index) {
-        // TODO, see if we can allocate one single Cursor, and pass it as arguments to the
-        // findLineBreak method
-        int candidate = findLineBreak(buffer, index);
-        int findCRLF = 0;
-        if (candidate >= 0) {
-            if (buffer.getByte(index + candidate) == HttpConstants.CR) {
-                findCRLF = 2;
-            } else {
-                findCRLF = 1;
-            }
-            candidate += findCRLF;
-        }
-        int next;
-        while (candidate > 0 && (next = findLineBreak(buffer, index + candidate)) >= 0) {
-            candidate += next;
-            if (buffer.getByte(index + candidate) == HttpConstants.CR) {
-                findCRLF = 2;
-            } else {
-                findCRLF = 1;
-            }
-            candidate += findCRLF;
+    static int[] computeSkipTable(byte[] delimiter) {
+        final int delimiterLength = delimiter.length;
+        int[] skipTable = new int[256];
+        Arrays.fill(skipTable, delimiterLength);
+        for (int i = 0; i < delimiterLength - 1; i++) {
+            skipTable[delimiter[i] & 0xFF] = delimiterLength - 1 - i;
         }
-        return candidate - findCRLF;
+        return skipTable;
     }
 
     /**
@@ -182,55 +175,119 @@ final class HttpPostBodyUtil {
      *         if {@code offset + delimiter.length} is greater than {@code buffer.capacity}
      */
     static int findDelimiter(Buffer buffer, int index, byte[] delimiter, boolean precededByLineBreak) {
-        final int delimiterLength = delimiter.length;
+        return findDelimiter(buffer, index, delimiter, computeSkipTable(delimiter), precededByLineBreak, true);
+    }
+
+    /**
+     * Try to find the delimiter, with LF or CRLF in front of it (added as delimiters) if needed.
+     * <p>
+     * The search uses the Boyer-Moore-Horspool algorithm: the last byte of the current window is
+     * checked first, and the window is shifted according to the skip table, so that most of the
+     * bytes of a payload are never read, even when the payload contains many '-'.
+     *
+     * @param buffer the buffer to search in
+     * @param index the index to start from in the buffer
+     * @param delimiter the delimiter as byte array
+     * @param skipTable the skip table computed by {@link #computeSkipTable(byte[])} for this delimiter
+     * @param precededByLineBreak true if it must be preceded by LF or CRLF, else false
+     * @param lineStartAtReaderOffset true if the readerOffset is at the start of a line, so that a delimiter
+     *        found there without LF or CRLF in front of it is accepted
+     * @return a relative position from readerOffset >= 0 if delimiter found designing the start of it
+     *         (including LF or CRLF is asked)
+     *         or a number < 0 if delimiter is not found
+     */
+    static int findDelimiter(Buffer buffer, int index, byte[] delimiter, int[] skipTable,
+                             boolean precededByLineBreak, boolean lineStartAtReaderOffset) {
         final int readerIndex = buffer.readerOffset();
-        final int writerIndex = buffer.writerOffset();
-        int toRead = writerIndex - index;
-        int newOffset = index;
-        boolean delimiterNotFound = true;
-        // TODO refactor the following loop in order to avoid loops and instead
-        // rely on Cursors more appropriately
-        while (delimiterNotFound && delimiterLength <= toRead) {
-            // Find first position: delimiter
-            ByteCursor cursor = buffer.openCursor(newOffset, toRead);
-            int posDelimiter = cursor.process(value -> value != delimiter[0]);
-            if (posDelimiter < 0) {
-                return -1;
-            }
-            newOffset += posDelimiter;
-            toRead -= posDelimiter;
-            // Now check for delimiter
-            if (toRead >= delimiterLength) {
-                delimiterNotFound = false;
-                for (int i = 0; i < delimiterLength; i++) {
-                    if (buffer.getByte(newOffset + i) != delimiter[i]) {
-                        newOffset++;
-                        toRead--;
-                        delimiterNotFound = true;
-                        break;
-                    }
+        final int lastIndex = delimiter.length - 1;
+        final int lastStart = buffer.writerOffset() - delimiter.length;
+        final byte lastByte = delimiter[lastIndex];
+        int offset = index;
+        while (offset <= lastStart) {
+            final byte current = buffer.getByte(offset + lastIndex);
+            if (current == lastByte && matchesAt(buffer, offset, delimiter, lastIndex)) {
+                if (!precededByLineBreak || offset == readerIndex && lineStartAtReaderOffset) {
+                    return offset - readerIndex;
                 }
-            }
-            if (!delimiterNotFound) {
-                // Delimiter found, find if necessary: LF or CRLF
-                if (precededByLineBreak && newOffset > readerIndex) {
-                    if (buffer.getByte(newOffset - 1) == HttpConstants.LF) {
-                        newOffset--;
-                        // Check if CR before: not mandatory to be there
-                        if (newOffset > readerIndex && buffer.getByte(newOffset - 1) == HttpConstants.CR) {
-                            newOffset--;
-                        }
-                    } else {
-                        // Delimiter with Line Break could be further: iterate after first char of delimiter
-                        newOffset++;
-                        toRead--;
-                        delimiterNotFound = true;
-                        continue;
+                if (offset > readerIndex && buffer.getByte(offset - 1) == HttpConstants.LF) {
+                    int start = offset - 1;
+                    // Check if CR before: not mandatory to be there
+                    if (start > readerIndex && buffer.getByte(start - 1) == HttpConstants.CR) {
+                        start--;
                     }
+                    return start - readerIndex;
                 }
-                return newOffset - readerIndex;
+                // Delimiter with Line Break could be further
             }
+            offset += skipTable[current & 0xFF];
         }
         return -1;
     }
+
+    /**
+     * @return true if the first {@code length} bytes of the delimiter are found at {@code offset}
+     */
+    private static boolean matchesAt(Buffer buffer, int offset, byte[] delimiter, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (buffer.getByte(offset + i) != delimiter[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the offset of the first byte between from and to for which the processor returns false, or -1
+     */
+    static int indexOf(Buffer buffer, int from, int to, ByteProcessor processor) {
+        int index = buffer.openCursor(from, to - from).process(processor);
+        return index == -1 ? -1 : from + index;
+    }
+
+    /**
+     * Decode the url encoded bytes in one pass: the plain bytes between two escapes are copied in bulk
+     *
+     * @return the decoded buffer, of the same kind of memory as the given one, or null if there is nothing to decode
+     * @throws HttpPostRequestDecoder.ErrorDataDecoderException if a hex byte is invalid
+     */
+    static Buffer decodeUrlEncoded(Buffer b, Charset charset) {
+        int start = b.readerOffset();
+        int end = b.writerOffset();
+        int escaped = indexOf(b, start, end, FIND_ESCAPE);
+        if (escaped == -1) {
+            return null; // nothing to decode
+        }
+
+        Buffer buf = b.isDirect() ? DefaultBufferAllocators.offHeapAllocator().allocate(b.readableBytes()) :
+                DefaultBufferAllocators.onHeapAllocator().allocate(b.readableBytes());
+        int position = start;
+        while (escaped != -1) {
+            copyPlainBytes(b, position, escaped, buf);
+            if (b.getByte(escaped) == '+') {
+                buf.writeByte((byte) ' ');
+                position = escaped + 1;
+            } else {
+                int hi = escaped + 1 < end ? StringUtil.decodeHexNibble((char) b.getByte(escaped + 1)) : -1;
+                int lo = escaped + 2 < end ? StringUtil.decodeHexNibble((char) b.getByte(escaped + 2)) : -1;
+                if (hi == -1 || lo == -1) {
+                    buf.close();
+                    throw new HttpPostRequestDecoder.ErrorDataDecoderException(String.format(
+                            "Invalid hex byte at index '%d' in string: '%s'", escaped - start, b.toString(charset)));
+                }
+                buf.writeByte((byte) ((hi << 4) + lo));
+                position = escaped + 3;
+            }
+            escaped = indexOf(b, position, end, FIND_ESCAPE);
+        }
+        copyPlainBytes(b, position, end, buf);
+        return buf;
+    }
+
+    private static void copyPlainBytes(Buffer b, int from, int to, Buffer output) {
+        int length = to - from;
+        if (length > 0) {
+            b.copyInto(from, output, output.writerOffset(), length);
+            output.skipWritableBytes(length);
+        }
+    }
 }
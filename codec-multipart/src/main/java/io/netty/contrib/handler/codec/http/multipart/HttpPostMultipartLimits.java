@@ -0,0 +1,110 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.contrib.handler.codec.http.multipart;
+
+import io.netty5.handler.codec.http.FullHttpRequest;
+
+/**
+ * Limits of the resources a multipart request may use, given to the constructor of a
+ * {@link HttpPostMultipartRequestDecoder} or {@link HttpPostRequestDecoder}, so that they also apply to a
+ * {@link FullHttpRequest} decoded by the constructor. Every limit is -1 (no limit) by default.
+ * <p>
+ * The decoder copies the limits when it is created: changing them afterwards does not change the decoders already
+ * created, so one instance may be shared by all the requests.
+ *
+ * @see HttpPostMultipartRequestDecoder#setMaxParts(int)
+ * @see HttpPostMultipartRequestDecoder#setMaxPartHeaderBytes(int)
+ * @see HttpPostMultipartRequestDecoder#setMaxPartHeaderLines(int)
+ * @see HttpPostMultipartRequestDecoder#setMaxBodyBytes(long)
+ * @see HttpPostMultipartRequestDecoder#setMaxInMemoryBytes(long)
+ */
+public final class HttpPostMultipartLimits {
+    private int maxParts = -1;
+    private int maxPartHeaderBytes = -1;
+    private int maxPartHeaderLines = -1;
+    private long maxBodyBytes = -1;
+    private long maxInMemoryBytes = -1;
+
+    /**
+     * Set the maximum number of parts of the request, including the files of the mixed parts, or -1 for no limit.
+     */
+    public void setMaxParts(int maxParts) {
+        this.maxParts = maxParts;
+    }
+
+    /**
+     * Return the maximum number of parts of the request, or -1 for no limit.
+     */
+    public int getMaxParts() {
+        return maxParts;
+    }
+
+    /**
+     * Set the maximum number of bytes of the headers of a part, or -1 for no limit.
+     */
+    public void setMaxPartHeaderBytes(int maxPartHeaderBytes) {
+        this.maxPartHeaderBytes = maxPartHeaderBytes;
+    }
+
+    /**
+     * Return the maximum number of bytes of the headers of a part, or -1 for no limit.
+     */
+    public int getMaxPartHeaderBytes() {
+        return maxPartHeaderBytes;
+    }
+
+    /**
+     * Set the maximum number of header lines of a part, or -1 for no limit.
+     */
+    public void setMaxPartHeaderLines(int maxPartHeaderLines) {
+        this.maxPartHeaderLines = maxPartHeaderLines;
+    }
+
+    /**
+     * Return the maximum number of header lines of a part, or -1 for no limit.
+     */
+    public int getMaxPartHeaderLines() {
+        return maxPartHeaderLines;
+    }
+
+    /**
+     * Set the maximum number of bytes of the body of the request, or -1 for no limit.
+     */
+    public void setMaxBodyBytes(long maxBodyBytes) {
+        this.maxBodyBytes = maxBodyBytes;
+    }
+
+    /**
+     * Return the maximum number of bytes of the body of the request, or -1 for no limit.
+     */
+    public long getMaxBodyBytes() {
+        return maxBodyBytes;
+    }
+
+    /**
+     * Set the maximum number of bytes that the data of the request may keep in memory, or -1 for no limit.
+     */
+    public void setMaxInMemoryBytes(long maxInMemoryBytes) {
+        this.maxInMemoryBytes = maxInMemoryBytes;
+    }
+
+    /**
+     * Return the maximum number of bytes that the data of the request may keep in memory, or -1 for no limit.
+     */
+    public long getMaxInMemoryBytes() {
+        return maxInMemoryBytes;
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.contrib.handler.codec.http.multipart;
+
+import io.netty5.buffer.Buffer;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+/**
+ * Listener notified by a {@link HttpPostMultipartRequestDecoder} of the parts of a multipart body while
+ * they are decoded.
+ * <p>
+ * When a listener is given to the decoder, no {@link InterfaceHttpData} is created: the content of the
+ * parts is pushed to the listener as soon as it is decoded, and is never held in memory or in a temporary
+ * file by the decoder. For each part, {@link #onPartStart} is called once, followed by one or more calls
+ * to {@link #onPartContent}, the last one having {@code last} set to true, followed by {@link #onPartEnd()}.
+ * <p>
+ * The methods are called from {@link HttpPostMultipartRequestDecoder#offer}, in the calling thread.
+ * Any {@link IOException} they throw is raised as an {@link HttpPostRequestDecoder.ErrorDataDecoderException}.
+ */
+public interface HttpPostMultipartListener {
+
+    /**
+     * A new part is found.
+     *
+     * @param name the name of the part
+     * @param filename the filename of the part, or null if the part is a field
+     * @param contentType the Content-Type of the part, or null if none is given for a field
+     * @param contentTransferEncoding the Content-Transfer-Encoding of a file part, or null for a field
+     * @param charset the charset of the part, or null if none is given for a field
+     * @param definedLength the Content-Length of the part, or 0 if unknown
+     */
+    void onPartStart(String name, String filename, String contentType, String contentTransferEncoding,
+                     Charset charset, long definedLength) throws IOException;
+
+    /**
+     * Some content of the current part is decoded.
+     *
+     * @param content the content, owned by the listener which is responsible to close it. It may be empty.
+     * @param last true if this is the last content of the current part
+     */
+    void onPartContent(Buffer content, boolean last) throws IOException;
+
+    /**
+     * The current part is complete.
+     */
+    void onPartEnd() throws IOException;
+}
@@ -0,0 +1,587 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.contrib.handler.codec.http.multipart;
+
+import io.netty.contrib.handler.codec.http.multipart.HttpPostRequestDecoder.ErrorDataDecoderException;
+import io.netty5.buffer.Buffer;
+import io.netty5.channel.Channel;
+import io.netty5.channel.ChannelOption;
+import io.netty5.handler.codec.http.HttpConstants;
+import io.netty5.handler.codec.http.HttpContent;
+import io.netty5.handler.codec.http.HttpRequest;
+import io.netty5.handler.codec.http.LastHttpContent;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.concurrent.Flow;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Backpressure-aware {@link Flow.Publisher} of the parts of a multipart body.
+ * <p>
+ * Each {@link Part} is itself a {@link Flow.Publisher} of the {@link Buffer}s of its content, which are pushed
+ * as soon as they are decoded by a {@link HttpPostMultipartRequestDecoder} in listener mode: no
+ * {@link InterfaceHttpData} and no temporary file is ever created. The subscriber of a content owns
+ * the received buffers and is responsible to close them.
+ * <p>
+ * The chunks of the request are given to {@link #offer(HttpContent)} from the event loop of the channel.
+ * The {@link ChannelOption#AUTO_READ} option of the channel is switched off as soon as some decoded data can't
+ * be delivered (no demand for the next part, or for the content of the current part), and switched on again
+ * once the downstream demand allows to deliver everything. So at most one chunk of the request is buffered
+ * whatever the speed of the subscribers. A part which is not wanted must still have its content subscribed
+ * and cancelled, so that its remaining content is discarded.
+ * <p>
+ * All the signals are emitted from the event loop of the channel, while {@link Flow.Subscription#request(long)}
+ * and {@link Flow.Subscription#cancel()} may be called from any thread.
+ */
+public final class HttpPostMultipartPublisher implements Flow.Publisher<HttpPostMultipartPublisher.Part> {
+
+    /**
+     * A part of the multipart body, publishing its content.
+     */
+    public interface Part extends Flow.Publisher<Buffer> {
+        /**
+         * @return the name of the part
+         */
+        String name();
+
+        /**
+         * @return the filename of the part, or null if the part is a field
+         */
+        String filename();
+
+        /**
+         * @return the Content-Type of the part, or null if none is given for a field
+         */
+        String contentType();
+
+        /**
+         * @return the Content-Transfer-Encoding of a file part, or null for a field
+         */
+        String contentTransferEncoding();
+
+        /**
+         * @return the charset of the part, or null if none is given for a field
+         */
+        Charset charset();
+
+        /**
+         * @return the Content-Length of the part, or 0 if unknown
+         */
+        long definedLength();
+    }
+
+    private final Channel channel;
+
+    private final HttpPostMultipartRequestDecoder decoder;
+
+    /**
+     * Parts decoded but not yet delivered to the subscriber
+     */
+    private final ArrayDeque<PartPublisher> parts = new ArrayDeque<>();
+
+    /**
+     * Part whose content is currently decoded
+     */
+    private PartPublisher currentPart;
+
+    /**
+     * Number of decoded buffers not yet delivered, for all the parts
+     */
+    private int pendingBuffers;
+
+    private Flow.Subscriber<? super Part> subscriber;
+
+    private long demand;
+
+    private boolean cancelled;
+
+    /**
+     * The closing delimiter was decoded
+     */
+    private boolean completed;
+
+    private Throwable error;
+
+    /**
+     * onComplete or onError was sent to the subscriber
+     */
+    private boolean terminated;
+
+    private boolean draining;
+
+    private boolean offering;
+
+    private boolean destroyed;
+
+    private boolean paused;
+
+    /**
+     * @param channel
+     *            the channel receiving the request, whose auto-read is driven by the demand
+     * @param factory
+     *            the factory used to decode the headers of the parts
+     * @param request
+     *            the request to decode
+     * @throws ErrorDataDecoderException
+     *             if the request is not a multipart request
+     */
+    public HttpPostMultipartPublisher(Channel channel, HttpDataFactory factory, HttpRequest request) {
+        this(channel, factory, request, HttpConstants.DEFAULT_CHARSET);
+    }
+
+    /**
+     * @param channel
+     *            the channel receiving the request, whose auto-read is driven by the demand
+     * @param factory
+     *            the factory used to decode the headers of the parts
+     * @param request
+     *            the request to decode
+     * @param charset
+     *            the charset to use as default
+     * @throws ErrorDataDecoderException
+     *             if the request is not a multipart request
+     */
+    public HttpPostMultipartPublisher(Channel channel, HttpDataFactory factory, HttpRequest request,
+                                      Charset charset) {
+        this.channel = requireNonNull(channel, "channel");
+        decoder = new HttpPostMultipartRequestDecoder(factory, request, charset, new Listener());
+        decoder.setZeroCopy(true);
+        updateAutoRead();
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super Part> subscriber) {
+        requireNonNull(subscriber, "subscriber");
+        runInEventLoop(() -> {
+            if (this.subscriber != null || cancelled) {
+                subscriber.onSubscribe(NoopSubscription.INSTANCE);
+                subscriber.onError(new IllegalStateException("Only one subscriber is allowed"));
+                return;
+            }
+            this.subscriber = subscriber;
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                    runInEventLoop(() -> requestParts(n));
+                }
+
+                @Override
+                public void cancel() {
+                    runInEventLoop(HttpPostMultipartPublisher.this::cancelParts);
+                }
+            });
+            drain();
+        });
+    }
+
+    /**
+     * Decode a new chunk of the request, and push the decoded parts and contents to the subscribers
+     * according to their demand.
+     * <p>
+     * It must be called from the event loop of the channel. As with
+     * {@link HttpPostMultipartRequestDecoder#offer(HttpContent)}, the payload of the chunk is taken by
+     * ownership transfer, except once the decoding is over (complete, failed or destroyed) where the chunk
+     * is ignored.
+     *
+     * @param content
+     *            the new received chunk
+     * @throws ErrorDataDecoderException
+     *             if the chunk can't be decoded, the error being signalled to the subscribers too
+     */
+    public void offer(HttpContent<?> content) {
+        assert channel.executor().inEventLoop();
+        if (destroyed) {
+            return;
+        }
+        try {
+            offering = true;
+            try {
+                decoder.offer(content);
+            } finally {
+                offering = false;
+            }
+            if (destroyed) {
+                // Failed by a subscriber while decoding
+                return;
+            }
+            completed = decoder.isBodyComplete();
+            if (content instanceof LastHttpContent) {
+                if (currentPart != null || !completed) {
+                    throw new ErrorDataDecoderException("Truncated multipart body");
+                }
+                destroyed = true;
+                decoder.destroy();
+            }
+        } catch (ErrorDataDecoderException e) {
+            fail(e);
+            throw e;
+        }
+        drain();
+        updateAutoRead();
+    }
+
+    /**
+     * Release all the resources of the decoder. The subscribers of the parts not yet complete are notified
+     * with an error, and the auto-read of the channel is switched on again.
+     * <p>
+     * It must be called from the event loop of the channel, for instance when it becomes inactive.
+     */
+    public void destroy() {
+        assert channel.executor().inEventLoop();
+        if (!destroyed) {
+            fail(new IOException("Multipart decoding aborted before the end of the body"));
+        }
+    }
+
+    private void fail(Throwable cause) {
+        if (error == null && !terminated) {
+            error = cause;
+        }
+        if (currentPart != null) {
+            currentPart.fail(cause);
+            currentPart = null;
+        }
+        // The parts not yet delivered never will
+        PartPublisher part;
+        while ((part = parts.poll()) != null) {
+            part.cancel0();
+        }
+        if (!destroyed) {
+            destroyed = true;
+            if (offering) {
+                // Can't be destroyed while it is decoding
+                channel.executor().execute(decoder::destroy);
+            } else {
+                decoder.destroy();
+            }
+        }
+        drain();
+        updateAutoRead();
+    }
+
+    private void requestParts(long n) {
+        if (subscriber == null || cancelled) {
+            return;
+        }
+        if (n <= 0) {
+            fail(new IllegalArgumentException("Non-positive request: " + n));
+            return;
+        }
+        demand = addCap(demand, n);
+        drain();
+        updateAutoRead();
+    }
+
+    private void cancelParts() {
+        if (cancelled) {
+            return;
+        }
+        cancelled = true;
+        subscriber = null;
+        // The parts already delivered go on, the others are discarded
+        PartPublisher part;
+        while ((part = parts.poll()) != null) {
+            part.cancel0();
+        }
+        updateAutoRead();
+    }
+
+    private void drain() {
+        if (draining || subscriber == null || terminated) {
+            return;
+        }
+        draining = true;
+        try {
+            while (subscriber != null && !terminated) {
+                if (error != null) {
+                    terminated = true;
+                    subscriber.onError(error);
+                } else if (demand > 0 && !parts.isEmpty()) {
+                    demand--;
+                    subscriber.onNext(parts.poll());
+                } else if (parts.isEmpty() && completed) {
+                    terminated = true;
+                    subscriber.onComplete();
+                } else {
+                    break;
+                }
+            }
+        } finally {
+            draining = false;
+        }
+    }
+
+    /**
+     * Switch off the auto-read as long as some decoded data can't be delivered, else switch it on
+     */
+    private void updateAutoRead() {
+        boolean pause = !destroyed &&
+                        (!parts.isEmpty() || pendingBuffers > 0 ||
+                         currentPart != null && currentPart.waitingForDemand());
+        if (pause != paused) {
+            paused = pause;
+            channel.setOption(ChannelOption.AUTO_READ, !pause);
+            if (!pause) {
+                channel.read();
+            }
+        }
+    }
+
+    private void runInEventLoop(Runnable task) {
+        if (channel.executor().inEventLoop()) {
+            task.run();
+        } else {
+            channel.executor().execute(task);
+        }
+    }
+
+    private static long addCap(long a, long b) {
+        long sum = a + b;
+        return sum < 0 ? Long.MAX_VALUE : sum;
+    }
+
+    /**
+     * Receive the parts from the decoder
+     */
+    private final class Listener implements HttpPostMultipartListener {
+        @Override
+        public void onPartStart(String name, String filename, String contentType, String contentTransferEncoding,
+                                Charset charset, long definedLength) {
+            if (destroyed) {
+                currentPart = null;
+                return;
+            }
+            PartPublisher part = new PartPublisher(name, filename, contentType, contentTransferEncoding,
+                                                   charset, definedLength);
+            currentPart = part;
+            if (cancelled) {
+                part.cancel0();
+            } else {
+                parts.add(part);
+                drain();
+            }
+        }
+
+        @Override
+        public void onPartContent(Buffer content, boolean last) {
+            if (currentPart == null) {
+                content.close();
+                return;
+            }
+            currentPart.push(content);
+        }
+
+        @Override
+        public void onPartEnd() {
+            PartPublisher part = currentPart;
+            currentPart = null;
+            if (part != null) {
+                part.complete();
+            }
+        }
+    }
+
+    /**
+     * A part, publishing its content to a single subscriber
+     */
+    private final class PartPublisher implements Part, Flow.Subscription {
+        private final String name;
+        private final String filename;
+        private final String contentType;
+        private final String contentTransferEncoding;
+        private final Charset charset;
+        private final long definedLength;
+        private final ArrayDeque<Buffer> buffers = new ArrayDeque<>();
+        private Flow.Subscriber<? super Buffer> subscriber;
+        private long demand;
+        private boolean completed;
+        private Throwable error;
+        private boolean cancelled;
+        private boolean terminated;
+        private boolean draining;
+
+        PartPublisher(String name, String filename, String contentType, String contentTransferEncoding,
+                      Charset charset, long definedLength) {
+            this.name = name;
+            this.filename = filename;
+            this.contentType = contentType;
+            this.contentTransferEncoding = contentTransferEncoding;
+            this.charset = charset;
+            this.definedLength = definedLength;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public String filename() {
+            return filename;
+        }
+
+        @Override
+        public String contentType() {
+            return contentType;
+        }
+
+        @Override
+        public String contentTransferEncoding() {
+            return contentTransferEncoding;
+        }
+
+        @Override
+        public Charset charset() {
+            return charset;
+        }
+
+        @Override
+        public long definedLength() {
+            return definedLength;
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super Buffer> subscriber) {
+            requireNonNull(subscriber, "subscriber");
+            runInEventLoop(() -> {
+                if (this.subscriber != null || cancelled) {
+                    subscriber.onSubscribe(NoopSubscription.INSTANCE);
+                    subscriber.onError(new IllegalStateException("Only one subscriber is allowed"));
+                    return;
+                }
+                this.subscriber = subscriber;
+                subscriber.onSubscribe(this);
+                drain();
+                updateAutoRead();
+            });
+        }
+
+        @Override
+        public void request(long n) {
+            runInEventLoop(() -> {
+                if (subscriber == null || cancelled) {
+                    return;
+                }
+                if (n <= 0) {
+                    releaseBuffers();
+                    error = new IllegalArgumentException("Non-positive request: " + n);
+                } else {
+                    demand = addCap(demand, n);
+                }
+                drain();
+                updateAutoRead();
+            });
+        }
+
+        @Override
+        public void cancel() {
+            runInEventLoop(() -> {
+                cancel0();
+                updateAutoRead();
+            });
+        }
+
+        void cancel0() {
+            cancelled = true;
+            subscriber = null;
+            releaseBuffers();
+        }
+
+        /**
+         * @return true if the decoding of the content should wait for some demand
+         */
+        boolean waitingForDemand() {
+            return !cancelled && !terminated && demand == 0;
+        }
+
+        void push(Buffer buffer) {
+            if (cancelled || terminated || buffer.readableBytes() == 0) {
+                buffer.close();
+                return;
+            }
+            buffers.add(buffer);
+            pendingBuffers++;
+            drain();
+        }
+
+        void complete() {
+            completed = true;
+            drain();
+        }
+
+        void fail(Throwable cause) {
+            if (!completed && error == null) {
+                error = cause;
+                releaseBuffers();
+            }
+            drain();
+        }
+
+        private void releaseBuffers() {
+            Buffer buffer;
+            while ((buffer = buffers.poll()) != null) {
+                pendingBuffers--;
+                buffer.close();
+            }
+        }
+
+        private void drain() {
+            if (draining || subscriber == null || terminated) {
+                return;
+            }
+            draining = true;
+            try {
+                while (subscriber != null && !terminated) {
+                    if (error != null) {
+                        terminated = true;
+                        subscriber.onError(error);
+                    } else if (demand > 0 && !buffers.isEmpty()) {
+                        demand--;
+                        pendingBuffers--;
+                        subscriber.onNext(buffers.poll());
+                    } else if (buffers.isEmpty() && completed) {
+                        terminated = true;
+                        subscriber.onComplete();
+                    } else {
+                        break;
+                    }
+                }
+            } finally {
+                draining = false;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "Part: " + name + (filename != null ? " filename=" + filename : "");
+        }
+    }
+
+    private static final class NoopSubscription implements Flow.Subscription {
+        static final NoopSubscription INSTANCE = new NoopSubscription();
+
+        @Override
+        public void request(long n) {
+        }
+
+        @Override
+        public void cancel() {
+        }
+    }
+}
@@ -18,22 +18,27 @@ package io.netty.contrib.handler.codec.http.multipart;
 import io.netty.contrib.handler.codec.http.multipart.HttpPostBodyUtil.TransferEncodingMechanism;
 import io.netty.contrib.handler.codec.http.multipart.HttpPostRequestDecoder.EndOfDataDecoderException;
 import io.netty.contrib.handler.codec.http.multipart.HttpPostRequestDecoder.ErrorDataDecoderException;
+import io.netty.contrib.handler.codec.http.multipart.HttpPostRequestDecoder.BodyTooLargeDecoderException;
+import io.netty.contrib.handler.codec.http.multipart.HttpPostRequestDecoder.InMemoryTooLargeDecoderException;
 import io.netty.contrib.handler.codec.http.multipart.HttpPostRequestDecoder.MultiPartStatus;
 import io.netty.contrib.handler.codec.http.multipart.HttpPostRequestDecoder.NotEnoughDataDecoderException;
+import io.netty.contrib.handler.codec.http.multipart.HttpPostRequestDecoder.PartHeaderTooLargeDecoderException;
+import io.netty.contrib.handler.codec.http.multipart.HttpPostRequestDecoder.TooManyHeaderLinesDecoderException;
+import io.netty.contrib.handler.codec.http.multipart.HttpPostRequestDecoder.TooManyPartsDecoderException;
 import java.nio.charset.StandardCharsets;
 import io.netty5.util.internal.PlatformDependent;
-import io.netty5.util.internal.StringUtil;
 import io.netty5.buffer.Buffer;
-import io.netty5.buffer.BufferAllocator;
 import io.netty5.buffer.ByteCursor;
-import io.netty5.buffer.DefaultBufferAllocators;
+import io.netty5.buffer.CompositeBuffer;
 import io.netty5.handler.codec.http.HttpConstants;
 import io.netty5.handler.codec.http.HttpContent;
 import io.netty5.handler.codec.http.HttpHeaderNames;
 import io.netty5.handler.codec.http.HttpHeaderValues;
 import io.netty5.handler.codec.http.HttpRequest;
+import io.netty5.handler.codec.http.HttpUtil;
 import io.netty5.handler.codec.http.LastHttpContent;
 import io.netty5.handler.codec.http.QueryStringDecoder;
+import io.netty5.util.AsciiString;
 import io.netty5.util.ByteProcessor;
 
 import java.io.IOException;
@@ -42,8 +47,6 @@ import java.nio.charset.IllegalCharsetNameException;
 import java.nio.charset.UnsupportedCharsetException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
 
 import static io.netty5.util.internal.ObjectUtil.checkNotNullWithIAE;
 import static io.netty5.util.internal.ObjectUtil.checkPositiveOrZero;
@@ -52,7 +55,13 @@ import static io.netty5.util.internal.ObjectUtil.checkPositiveOrZero;
  * This decoder will decode Body and can handle POST BODY.
  *
  * You <strong>MUST</strong> call {@link #destroy()} after completion to release all resources.
- *
+ * <p>
+ * The resources a request may use can be limited with {@link HttpPostMultipartLimits} given to the constructor, or
+ * with {@link #setMaxParts(int)}, {@link #setMaxPartHeaderBytes(int)}, {@link #setMaxPartHeaderLines(int)},
+ * {@link #setMaxBodyBytes(long)} and {@link #setMaxInMemoryBytes(long)}. A request exceeding one of them is rejected
+ * as soon as it does, with a {@link HttpPostRequestDecoder.LimitExceededDecoderException}. The setters only apply to
+ * the content offered after they are called, so a request that is also its content, which is decoded by the
+ * constructor, has to be given its limits with the constructor.
  */
 public class HttpPostMultipartRequestDecoder implements InterfaceHttpPostRequestDecoder {
 
@@ -82,15 +91,14 @@ public class HttpPostMultipartRequestDecoder implements InterfaceHttpPostRequest
     private final List<InterfaceHttpData> bodyListHttpData = new ArrayList<InterfaceHttpData>();
 
     /**
-     * HttpDatas as Map from Body
+     * HttpDatas by name from Body, built on the first lookup
      */
-    private final Map<String, List<InterfaceHttpData>> bodyMapHttpData = new TreeMap<String, List<InterfaceHttpData>>(
-            CaseIgnoringComparator.INSTANCE);
+    private final HttpDataIndex bodyHttpDataIndex = new HttpDataIndex(bodyListHttpData);
 
     /**
-     * The current channelBuffer
+     * The received buffers not yet decoded, as one composite buffer
      */
-    private Buffer undecodedChunk;
+    private CompositeBuffer undecodedChunk;
 
     /**
      * Body HttpDatas current position
@@ -100,13 +108,18 @@ public class HttpPostMultipartRequestDecoder implements InterfaceHttpPostRequest
     /**
      * If multipart, this is the boundary for the global multipart
      */
-    private final String multipartDataBoundary;
+    private final BoundaryMatcher multipartDataBoundary;
 
     /**
      * If multipart, there could be internal multiparts (mixed) to the global
      * multipart. Only one level is allowed.
      */
-    private String multipartMixedBoundary;
+    private BoundaryMatcher multipartMixedBoundary;
+
+    /**
+     * Parser of the header lines of the parts
+     */
+    private final PartHeaderParser headerParser;
 
     /**
      * Current getStatus
@@ -114,9 +127,9 @@ public class HttpPostMultipartRequestDecoder implements InterfaceHttpPostRequest
     private MultiPartStatus currentStatus = MultiPartStatus.NOTSTARTED;
 
     /**
-     * Used in Multipart
+     * The headers of the current part
      */
-    private Map<CharSequence, Attribute> currentFieldAttributes;
+    private final PartHeaders partHeaders = new PartHeaders();
 
     /**
      * The current FileUpload that is currently in decode process
@@ -132,6 +145,45 @@ public class HttpPostMultipartRequestDecoder implements InterfaceHttpPostRequest
 
     private int discardThreshold = HttpPostRequestDecoder.DEFAULT_DISCARD_THRESHOLD;
 
+    private boolean releaseOnConsume;
+
+    private boolean zeroCopy;
+
+    private int maxParts = -1;
+
+    private int maxPartHeaderBytes = -1;
+
+    private int maxPartHeaderLines = -1;
+
+    private long maxBodyBytes = -1;
+
+    private long maxInMemoryBytes = -1;
+
+    /**
+     * Number of parts found so far
+     */
+    private int parts;
+
+    /**
+     * Number of bytes of the body offered so far
+     */
+    private long bodyBytes;
+
+    /**
+     * Number of bytes kept in memory by the decoded data still owned by this decoder
+     */
+    private long inMemoryBytes;
+
+    /**
+     * If not null, the parts are pushed to this listener instead of being stored as InterfaceHttpData
+     */
+    private final HttpPostMultipartListener listener;
+
+    /**
+     * The content of the part currently pushed to the listener
+     */
+    private ListenerContentSink currentListenerSink;
+
     private final static ByteProcessor CTRLSPACE_PROCESSOR = value -> Character.isISOControl(value) || Character.isWhitespace(value);
 
     /**
@@ -179,9 +231,64 @@ public class HttpPostMultipartRequestDecoder implements InterfaceHttpPostRequest
      *             errors
      */
     public HttpPostMultipartRequestDecoder(HttpDataFactory factory, HttpRequest request, Charset charset) {
+        this(factory, request, charset, null);
+    }
+
+    /**
+     *
+     * @param factory
+     *            the factory used to create the InterfaceHttpData of the part headers
+     * @param request
+     *            the request to decode
+     * @param charset
+     *            the charset to use as default
+     * @param listener
+     *            the listener notified of the parts as they are decoded, instead of creating
+     *            InterfaceHttpData for them, or null to create them
+     * @throws NullPointerException
+     *             for request or charset or factory
+     * @throws ErrorDataDecoderException
+     *             if the default charset was wrong when decoding or other
+     *             errors
+     */
+    public HttpPostMultipartRequestDecoder(HttpDataFactory factory, HttpRequest request, Charset charset,
+                                           HttpPostMultipartListener listener) {
+        this(factory, request, charset, listener, null);
+    }
+
+    /**
+     *
+     * @param factory
+     *            the factory used to create the InterfaceHttpData of the part headers
+     * @param request
+     *            the request to decode
+     * @param charset
+     *            the charset to use as default
+     * @param listener
+     *            the listener notified of the parts as they are decoded, instead of creating
+     *            InterfaceHttpData for them, or null to create them
+     * @param limits
+     *            the limits of the resources the request may use, or null for no limit; they also apply
+     *            to a request that is its own content, decoded by this constructor
+     * @throws NullPointerException
+     *             for request or charset or factory
+     * @throws ErrorDataDecoderException
+     *             if the default charset was wrong when decoding or other
+     *             errors
+     */
+    public HttpPostMultipartRequestDecoder(HttpDataFactory factory, HttpRequest request, Charset charset,
+                                           HttpPostMultipartListener listener, HttpPostMultipartLimits limits) {
         this.request = checkNotNullWithIAE(request, "request");
         this.charset = checkNotNullWithIAE(charset, "charset");
         this.factory = checkNotNullWithIAE(factory, "factory");
+        this.listener = listener;
+        if (limits != null) {
+            maxParts = limits.getMaxParts();
+            maxPartHeaderBytes = limits.getMaxPartHeaderBytes();
+            maxPartHeaderLines = limits.getMaxPartHeaderLines();
+            maxBodyBytes = limits.getMaxBodyBytes();
+            maxInMemoryBytes = limits.getMaxInMemoryBytes();
+        }
         // Fill default values
 
         CharSequence contentTypeValue = this.request.headers().get(HttpHeaderNames.CONTENT_TYPE);
@@ -191,7 +298,6 @@ public class HttpPostMultipartRequestDecoder implements InterfaceHttpPostRequest
 
         String[] dataBoundary = HttpPostRequestDecoder.getMultipartDataBoundary(contentTypeValue.toString());
         if (dataBoundary != null) {
-            multipartDataBoundary = dataBoundary[0];
             if (dataBoundary.length > 1 && dataBoundary[1] != null) {
                 try {
                     this.charset = Charset.forName(dataBoundary[1]);
@@ -199,9 +305,11 @@ public class HttpPostMultipartRequestDecoder implements InterfaceHttpPostRequest
                     throw new ErrorDataDecoderException(e);
                 }
             }
+            multipartDataBoundary = new BoundaryMatcher(dataBoundary[0], this.charset);
         } else {
             multipartDataBoundary = null;
         }
+        headerParser = new PartHeaderParser(this.charset);
         currentStatus = MultiPartStatus.HEADERDELIMITER;
 
         try {
@@ -238,8 +346,9 @@ public class HttpPostMultipartRequestDecoder implements InterfaceHttpPostRequest
 
     /**
      * Set the amount of bytes after which read bytes in the buffer should be discarded.
-     * Setting this lower gives lower memory usage but with the overhead of more memory copies.
-     * Use {@code 0} to disable it.
+     * <p>
+     * This decoder does not copy the received buffers into a single one, and releases the decoded ones
+     * after each {@link #offer(HttpContent)}, so this threshold is kept for compatibility only.
      */
     @Override
     public void setDiscardThreshold(int discardThreshold) {
@@ -254,6 +363,128 @@ public class HttpPostMultipartRequestDecoder implements InterfaceHttpPostRequest
         return discardThreshold;
     }
 
+    @Override
+    public void setReleaseOnConsume(boolean releaseOnConsume) {
+        this.releaseOnConsume = releaseOnConsume;
+    }
+
+    @Override
+    public boolean isReleaseOnConsume() {
+        return releaseOnConsume;
+    }
+
+    /**
+     * Enable or disable the zero-copy mode (disabled by default).
+     * <p>
+     * In zero-copy mode, the bytes of a part are given to {@link HttpData#addContent(Buffer, boolean)} as
+     * splits of the received buffers instead of copies.
+     * Note that a split keeps the memory of the whole region it was taken from until it is closed, so
+     * in-memory {@link HttpData} may retain more memory than their own size.
+     */
+    public void setZeroCopy(boolean zeroCopy) {
+        this.zeroCopy = zeroCopy;
+    }
+
+    /**
+     * Return true if the bytes of the parts are given to the {@link HttpData} without copy.
+     */
+    public boolean isZeroCopy() {
+        return zeroCopy;
+    }
+
+    /**
+     * Set the maximum number of parts of the request, including the files of the mixed parts, or -1 (the default)
+     * for no limit.
+     * <p>
+     * A part beyond this limit fails with a {@link TooManyPartsDecoderException} as soon as its headers are read,
+     * before any data is created for it.
+     */
+    public void setMaxParts(int maxParts) {
+        this.maxParts = maxParts;
+    }
+
+    /**
+     * Return the maximum number of parts of the request, or -1 for no limit.
+     */
+    public int getMaxParts() {
+        return maxParts;
+    }
+
+    /**
+     * Set the maximum number of bytes of the headers of a part, or -1 (the default) for no limit.
+     * <p>
+     * Headers beyond this limit fail with a {@link PartHeaderTooLargeDecoderException}, without waiting for the end
+     * of a header line that never ends.
+     */
+    public void setMaxPartHeaderBytes(int maxPartHeaderBytes) {
+        this.maxPartHeaderBytes = maxPartHeaderBytes;
+    }
+
+    /**
+     * Return the maximum number of bytes of the headers of a part, or -1 for no limit.
+     */
+    public int getMaxPartHeaderBytes() {
+        return maxPartHeaderBytes;
+    }
+
+    /**
+     * Set the maximum number of header lines of a part, or -1 (the default) for no limit.
+     * <p>
+     * A header line beyond this limit fails with a {@link TooManyHeaderLinesDecoderException}.
+     */
+    public void setMaxPartHeaderLines(int maxPartHeaderLines) {
+        this.maxPartHeaderLines = maxPartHeaderLines;
+    }
+
+    /**
+     * Return the maximum number of header lines of a part, or -1 for no limit.
+     */
+    public int getMaxPartHeaderLines() {
+        return maxPartHeaderLines;
+    }
+
+    /**
+     * Set the maximum number of bytes of the body of the request, or -1 (the default) for no limit.
+     * <p>
+     * A body beyond this limit fails with a {@link BodyTooLargeDecoderException}, on the first offered content if
+     * the request declares a larger Content-Length, or else on the content exceeding it.
+     */
+    public void setMaxBodyBytes(long maxBodyBytes) {
+        this.maxBodyBytes = maxBodyBytes;
+    }
+
+    /**
+     * Return the maximum number of bytes of the body of the request, or -1 for no limit.
+     */
+    public long getMaxBodyBytes() {
+        return maxBodyBytes;
+    }
+
+    /**
+     * Set the maximum number of bytes that the data of the request may keep in memory, or -1 (the default) for no
+     * limit.
+     * <p>
+     * The data given away by {@link #next()} in release on consume mode, and the data moved to disk, are not
+     * counted anymore. The data exceeding this limit fails with a {@link InMemoryTooLargeDecoderException}.
+     */
+    public void setMaxInMemoryBytes(long maxInMemoryBytes) {
+        this.maxInMemoryBytes = maxInMemoryBytes;
+    }
+
+    /**
+     * Return the maximum number of bytes that the data of the request may keep in memory, or -1 for no limit.
+     */
+    public long getMaxInMemoryBytes() {
+        return maxInMemoryBytes;
+    }
+
+    /**
+     * Return true once the closing delimiter of the body is decoded.
+     */
+    boolean isBodyComplete() {
+        return currentStatus == MultiPartStatus.PREEPILOGUE || currentStatus == MultiPartStatus.EPILOGUE;
+    }
+
     /**
      * This getMethod returns a List of all HttpDatas from body.<br>
      *
@@ -271,6 +502,7 @@ public class HttpPostMultipartRequestDecoder implements InterfaceHttpPostRequest
         if (!isLastChunk) {
             throw new NotEnoughDataDecoderException();
         }
+        bodyListHttpDataRank = bodyHttpDataIndex.compact(bodyListHttpDataRank);
         return bodyListHttpData;
     }
 
@@ -292,7 +524,7 @@ public class HttpPostMultipartRequestDecoder implements InterfaceHttpPostRequest
         if (!isLastChunk) {
             throw new NotEnoughDataDecoderException();
         }
-        return bodyMapHttpData.get(name);
+        return bodyHttpDataIndex.get(name);
     }
 
     /**
@@ -314,7 +546,7 @@ public class HttpPostMultipartRequestDecoder implements InterfaceHttpPostRequest
         if (!isLastChunk) {
             throw new NotEnoughDataDecoderException();
         }
-        List<InterfaceHttpData> list = bodyMapHttpData.get(name);
+        List<InterfaceHttpData> list = bodyHttpDataIndex.get(name);
         if (list != null) {
             return list.get(0);
         }
@@ -323,6 +555,11 @@ public class HttpPostMultipartRequestDecoder implements InterfaceHttpPostRequest
 
     /**
      * Initialized the internals from a new chunk
+     * <p>
+     * The readable bytes of the payload are not copied: the payload is taken by ownership transfer
+     * ({@link Buffer#send()}) and queued after the previous undecoded bytes, so it is no longer accessible
+     * once this method returns (closing the content afterwards is harmless). Only a read-only payload
+     * is copied.
      *
      * @param content
      *            the new received chunk
@@ -339,25 +576,47 @@ public class HttpPostMultipartRequestDecoder implements InterfaceHttpPostRequest
         }
 
         Buffer buf = content.payload();
+        if (maxBodyBytes >= 0) {
+            checkBodyBytes(buf);
+        }
         if (undecodedChunk == null) {
-            BufferAllocator alloc = buf.isDirect() ? DefaultBufferAllocators.offHeapAllocator() : DefaultBufferAllocators.onHeapAllocator();
-            undecodedChunk =
-                    // Since the Handler will release the incoming later on, we need to copy it
-                    //
-                    // We are explicit allocate a buffer and NOT calling copy() as otherwise it may set a maxCapacity
-                    // which is not really usable for us as we may exceed it once we add more bytes.
-                    alloc.allocate(buf.readableBytes()).writeBytes(buf);
-        } else {
-            undecodedChunk.writeBytes(buf);
+            undecodedChunk = CompositeBuffer.compose(factory.getAllocator());
+        }
+        if (buf.readableBytes() > 0) {
+            if (buf.readOnly()) {
+                // A read-only buffer can't be part of our composite buffer
+                undecodedChunk.extendWith(buf.copy().send());
+            } else {
+                if (buf.readerOffset() > 0) {
+                    // Do not keep the bytes already read
+                    buf.split(buf.readerOffset()).close();
+                }
+                undecodedChunk.extendWith(buf.send());
+            }
         }
         parseBody();
-        if (undecodedChunk != null && undecodedChunk.writerOffset() > discardThreshold) {
-            // It's safe to call compact() as we are the only owner of the buffer.
-            undecodedChunk.compact();
+        if (undecodedChunk != null && undecodedChunk.readerOffset() > 0) {
+            // Release the buffers already decoded, no copy is involved
+            undecodedChunk.split(undecodedChunk.readerOffset()).close();
         }
         return this;
     }
 
+    /**
+     * Count the offered bytes against the maximum size of the body, checking the declared Content-Length first.
+     * The payload is left to the caller, who still owns the content when this throws.
+     */
+    private void checkBodyBytes(Buffer buf) {
+        if (bodyBytes == 0 && HttpUtil.getContentLength(request, -1L) > maxBodyBytes) {
+            throw new BodyTooLargeDecoderException("Content-Length " + HttpUtil.getContentLength(request, -1L) +
+                    " exceeds the maximum body size " + maxBodyBytes);
+        }
+        bodyBytes += buf.readableBytes();
+        if (bodyBytes > maxBodyBytes) {
+            throw new BodyTooLargeDecoderException("Body size exceeds the maximum " + maxBodyBytes);
+        }
+    }
+
     /**
      * True if at current getStatus, there is an available decoded
      * InterfaceHttpData from the Body.
@@ -398,6 +657,16 @@ public class HttpPostMultipartRequestDecoder implements InterfaceHttpPostRequest
         checkDestroyed();
 
         if (hasNext()) {
+            if (releaseOnConsume) {
+                // The ownership moves to the caller
+                InterfaceHttpData data = bodyHttpDataIndex.take(bodyListHttpDataRank++);
+                if (bodyHttpDataIndex.isSparse()) {
+                    bodyListHttpDataRank = bodyHttpDataIndex.compact(bodyListHttpDataRank);
+                }
+                inMemoryBytes -= inMemoryLength(data);
+                factory.removeHttpDataFromClean(request, data);
+                return data;
+            }
             return bodyListHttpData.get(bodyListHttpDataRank++);
         }
         return null;
@@ -436,15 +705,30 @@ public class HttpPostMultipartRequestDecoder implements InterfaceHttpPostRequest
         if (data == null) {
             return;
         }
-        List<InterfaceHttpData> datas = bodyMapHttpData.get(data.getName());
-        if (datas == null) {
-            datas = new ArrayList<InterfaceHttpData>(1);
-            bodyMapHttpData.put(data.getName(), datas);
-        }
-        datas.add(data);
+        inMemoryBytes += inMemoryLength(data);
         bodyListHttpData.add(data);
     }
 
+    /**
+     * @return the number of bytes kept in memory by the given data
+     */
+    private static long inMemoryLength(InterfaceHttpData data) {
+        if (data instanceof HttpData && ((HttpData) data).isInMemory()) {
+            return ((HttpData) data).length();
+        }
+        return 0;
+    }
+
+    /**
+     * Check the bytes kept in memory by the data of the request, including the data being decoded
+     */
+    private void checkInMemoryBytes(HttpData current) {
+        if (maxInMemoryBytes >= 0 && inMemoryBytes + inMemoryLength(current) > maxInMemoryBytes) {
+            throw new InMemoryTooLargeDecoderException("Data kept in memory exceeds the maximum " +
+                    maxInMemoryBytes);
+        }
+    }
+
     /**
      * Parse the Body for multipart
      *
@@ -457,13 +741,20 @@ public class HttpPostMultipartRequestDecoder implements InterfaceHttpPostRequest
             // nothing to decode
             return;
         }
-        InterfaceHttpData data = decodeMultipart(currentStatus);
-        while (data != null) {
-            addHttpData(data);
+        for (;;) {
+            MultiPartStatus previousStatus = currentStatus;
+            int previousReaderOffset = undecodedChunk.readerOffset();
+            InterfaceHttpData data = decodeMultipart(currentStatus);
+            if (data != null) {
+                addHttpData(data);
+            } else if (listener == null ||
+                       previousStatus == currentStatus && previousReaderOffset == undecodedChunk.readerOffset()) {
+                // Need more chunks (with a listener, a part may end without any data)
+                break;
+            }
             if (currentStatus == MultiPartStatus.PREEPILOGUE || currentStatus == MultiPartStatus.EPILOGUE) {
                 break;
             }
-            data = decodeMultipart(currentStatus);
         }
     }
 
@@ -510,56 +801,66 @@ public class HttpPostMultipartRequestDecoder implements InterfaceHttpPostRequest
         case FIELD: {
             // Now get value according to Content-Type and Charset
             Charset localCharset = null;
-            Attribute charsetAttribute = currentFieldAttributes.get(HttpHeaderValues.CHARSET);
-            if (charsetAttribute != null) {
+            if (partHeaders.charset != null) {
                 try {
-                    localCharset = Charset.forName(charsetAttribute.getValue());
-                } catch (IOException e) {
+                    localCharset = Charset.forName(partHeaders.charset);
+                } catch (IllegalCharsetNameException e) {
                     throw new ErrorDataDecoderException(e);
                 } catch (UnsupportedCharsetException e) {
                     throw new ErrorDataDecoderException(e);
                 }
             }
-            Attribute nameAttribute = currentFieldAttributes.get(HttpHeaderValues.NAME);
-            if (currentAttribute == null) {
-                Attribute lengthAttribute = currentFieldAttributes
-                        .get(HttpHeaderNames.CONTENT_LENGTH);
-                long size;
-                try {
-                    size = lengthAttribute != null? Long.parseLong(lengthAttribute
-                            .getValue()) : 0L;
-                } catch (IOException e) {
-                    throw new ErrorDataDecoderException(e);
-                } catch (NumberFormatException ignored) {
-                    size = 0;
+            if (listener != null) {
+                if (currentListenerSink == null) {
+                    try {
+                        startListenerPart(cleanString(partHeaders.name), null, partHeaders.contentType, null,
+                                localCharset, currentDefinedLength());
+                    } catch (NullPointerException e) {
+                        throw new ErrorDataDecoderException(e);
+                    } catch (IOException e) {
+                        throw new ErrorDataDecoderException(e);
+                    }
+                }
+                if (!loadListenerPart(multipartDataBoundary)) {
+                    // Delimiter is not found. Need more chunks.
+                    return null;
                 }
+                partHeaders.reset();
+                // ready to load the next one
+                currentStatus = MultiPartStatus.HEADERDELIMITER;
+                return null;
+            }
+            if (currentAttribute == null) {
+                long size = currentDefinedLength();
                 try {
                     if (size > 0) {
                         currentAttribute = factory.createAttribute(request,
-                                cleanString(nameAttribute.getValue()), size);
+                                cleanString(partHeaders.name), size);
                     } else {
                         currentAttribute = factory.createAttribute(request,
-                                cleanString(nameAttribute.getValue()));
+                                cleanString(partHeaders.name));
                     }
                 } catch (NullPointerException e) {
                     throw new ErrorDataDecoderException(e);
                 } catch (IllegalArgumentException e) {
                     throw new ErrorDataDecoderException(e);
-                } catch (IOException e) {
-                    throw new ErrorDataDecoderException(e);
                 }
                 if (localCharset != null) {
                     currentAttribute.setCharset(localCharset);
                 }
             }
             // load data
-            if (!loadDataMultipartOptimized(undecodedChunk, multipartDataBoundary, currentAttribute)) {
+            boolean loaded = loadDataMultipartOptimized(undecodedChunk, multipartDataBoundary,
+                    currentAttribute.definedLength(), currentAttribute.length(), currentAttribute::addContent,
+                    zeroCopy);
+            checkInMemoryBytes(currentAttribute);
+            if (!loaded) {
                 // Delimiter is not found. Need more chunks.
                 return null;
             }
             Attribute finalAttribute = currentAttribute;
             currentAttribute = null;
-            clearCurrentFieldAttributes();
+            partHeaders.reset();
             // ready to load the next one
             currentStatus = MultiPartStatus.HEADERDELIMITER;
             return finalAttribute;
@@ -570,7 +871,7 @@ public class HttpPostMultipartRequestDecoder implements InterfaceHttpPostRequest
         }
         case MIXEDDELIMITER: {
             // --AaB03x or --AaB03x--
-            // Note that currentFieldAttributes exists
+            // Note that the name of the part was already found
             return findMultipartDelimiter(multipartMixedBoundary, MultiPartStatus.MIXEDDISPOSITION,
                     MultiPartStatus.HEADERDELIMITER);
         }
@@ -623,7 +924,7 @@ public class HttpPostMultipartRequestDecoder implements InterfaceHttpPostRequest
      * @return the next InterfaceHttpData if any
      * @throws ErrorDataDecoderException
      */
-    private InterfaceHttpData findMultipartDelimiter(String delimiter, MultiPartStatus dispositionStatus,
+    private InterfaceHttpData findMultipartDelimiter(BoundaryMatcher delimiter, MultiPartStatus dispositionStatus,
             MultiPartStatus closeDelimiterStatus) {
         // --AaB03x or --AaB03x--
         int readerIndex = undecodedChunk.readerOffset();
@@ -634,30 +935,26 @@ public class HttpPostMultipartRequestDecoder implements InterfaceHttpPostRequest
             return null;
         }
         skipOneLine();
-        String newline;
+        boolean closeDelimiter;
         try {
-            newline = readDelimiterOptimized(undecodedChunk, delimiter, charset);
+            closeDelimiter = readDelimiterOptimized(undecodedChunk, delimiter);
         } catch (NotEnoughDataDecoderException ignored) {
             undecodedChunk.readerOffset(readerIndex);
             return null;
         }
-        if (newline.equals(delimiter)) {
+        if (!closeDelimiter) {
             currentStatus = dispositionStatus;
             return decodeMultipart(dispositionStatus);
         }
-        if (newline.equals(delimiter + "--")) {
-            // CLOSEDELIMITER or MIXED CLOSEDELIMITER found
-            currentStatus = closeDelimiterStatus;
-            if (currentStatus == MultiPartStatus.HEADERDELIMITER) {
-                // MIXEDCLOSEDELIMITER
-                // end of the Mixed part
-                clearCurrentFieldAttributes();
-                return decodeMultipart(MultiPartStatus.HEADERDELIMITER);
-            }
-            return null;
+        // CLOSEDELIMITER or MIXED CLOSEDELIMITER found
+        currentStatus = closeDelimiterStatus;
+        if (currentStatus == MultiPartStatus.HEADERDELIMITER) {
+            // MIXEDCLOSEDELIMITER
+            // end of the Mixed part
+            partHeaders.reset();
+            return decodeMultipart(MultiPartStatus.HEADERDELIMITER);
         }
-        undecodedChunk.readerOffset(readerIndex);
-        throw new ErrorDataDecoderException("No Multipart delimiter found");
+        return null;
     }
 
     /**
@@ -669,124 +966,89 @@ public class HttpPostMultipartRequestDecoder implements InterfaceHttpPostRequest
     private InterfaceHttpData findMultipartDisposition() {
         int readerIndex = undecodedChunk.readerOffset();
         if (currentStatus == MultiPartStatus.DISPOSITION) {
-            cleanMixedAttributes();
-            currentFieldAttributes = new TreeMap<CharSequence, Attribute>(CaseIgnoringComparator.INSTANCE);
+            partHeaders.reset();
         }
         // read many lines until empty line with newline found! Store all data
+        PartHeaderParser header = headerParser;
+        int lines = 0;
         while (!skipOneLine()) {
-            String newline;
             try {
                 skipControlCharacters(undecodedChunk);
-                newline = readLineOptimized(undecodedChunk, charset);
             } catch (NotEnoughDataDecoderException ignored) {
                 undecodedChunk.readerOffset(readerIndex);
                 return null;
             }
-            String[] contents = splitMultipartHeader(newline);
-            if (HttpHeaderNames.CONTENT_DISPOSITION.contentEqualsIgnoreCase(contents[0])) {
+            if (!header.readLine(undecodedChunk)) {
+                // All the remaining bytes belong to the headers
+                checkPartHeaderBytes(undecodedChunk.writerOffset() - readerIndex);
+                undecodedChunk.readerOffset(readerIndex);
+                return null;
+            }
+            checkPartHeaderBytes(undecodedChunk.readerOffset() - readerIndex);
+            if (maxPartHeaderLines >= 0 && ++lines > maxPartHeaderLines) {
+                throw new TooManyHeaderLinesDecoderException("Part has more than " + maxPartHeaderLines +
+                        " header lines");
+            }
+            if (header.nameEquals(HttpHeaderNames.CONTENT_DISPOSITION)) {
+                header.nextValue();
                 boolean checkSecondArg;
                 if (currentStatus == MultiPartStatus.DISPOSITION) {
-                    checkSecondArg = HttpHeaderValues.FORM_DATA.contentEqualsIgnoreCase(contents[1]);
+                    checkSecondArg = header.valueEquals(HttpHeaderValues.FORM_DATA);
                 } else {
-                    checkSecondArg = HttpHeaderValues.ATTACHMENT.contentEqualsIgnoreCase(contents[1])
-                            || HttpHeaderValues.FILE.contentEqualsIgnoreCase(contents[1]);
+                    checkSecondArg = header.valueEquals(HttpHeaderValues.ATTACHMENT)
+                            || header.valueEquals(HttpHeaderValues.FILE);
                 }
                 if (checkSecondArg) {
-                    // read next values and store them in the map as Attribute
-                    for (int i = 2; i < contents.length; i++) {
-                        String[] values = contents[i].split("=", 2);
-                        Attribute attribute;
-                        try {
-                            attribute = getContentDispositionAttribute(values);
-                        } catch (NullPointerException e) {
-                            throw new ErrorDataDecoderException(e);
-                        } catch (IllegalArgumentException e) {
-                            throw new ErrorDataDecoderException(e);
-                        }
-                        putCurrentFieldAttribute(attribute.getName(), attribute);
+                    // read next values and keep the ones used by the decoder
+                    while (header.nextValue()) {
+                        putContentDispositionParameter(header);
                     }
                 }
-            } else if (HttpHeaderNames.CONTENT_TRANSFER_ENCODING.contentEqualsIgnoreCase(contents[0])) {
-                Attribute attribute;
-                try {
-                    attribute = factory.createAttribute(request, HttpHeaderNames.CONTENT_TRANSFER_ENCODING.toString(),
-                            cleanString(contents[1]));
-                } catch (NullPointerException e) {
-                    throw new ErrorDataDecoderException(e);
-                } catch (IllegalArgumentException e) {
-                    throw new ErrorDataDecoderException(e);
-                }
-
-                putCurrentFieldAttribute(HttpHeaderNames.CONTENT_TRANSFER_ENCODING, attribute);
-            } else if (HttpHeaderNames.CONTENT_LENGTH.contentEqualsIgnoreCase(contents[0])) {
-                Attribute attribute;
-                try {
-                    attribute = factory.createAttribute(request, HttpHeaderNames.CONTENT_LENGTH.toString(),
-                            cleanString(contents[1]));
-                } catch (NullPointerException e) {
-                    throw new ErrorDataDecoderException(e);
-                } catch (IllegalArgumentException e) {
-                    throw new ErrorDataDecoderException(e);
-                }
-
-                putCurrentFieldAttribute(HttpHeaderNames.CONTENT_LENGTH, attribute);
-            } else if (HttpHeaderNames.CONTENT_TYPE.contentEqualsIgnoreCase(contents[0])) {
+            } else if (header.nameEquals(HttpHeaderNames.CONTENT_TRANSFER_ENCODING)) {
+                header.nextValue();
+                partHeaders.contentTransferEncoding = header.cleanValue();
+            } else if (header.nameEquals(HttpHeaderNames.CONTENT_LENGTH)) {
+                header.nextValue();
+                partHeaders.contentLength = header.cleanValue();
+            } else if (header.nameEquals(HttpHeaderNames.CONTENT_TYPE)) {
+                header.nextValue();
                 // Take care of possible "multipart/mixed"
-                if (HttpHeaderValues.MULTIPART_MIXED.contentEqualsIgnoreCase(contents[1])) {
+                if (header.valueEquals(HttpHeaderValues.MULTIPART_MIXED)) {
                     if (currentStatus == MultiPartStatus.DISPOSITION) {
-                        String values = StringUtil.substringAfter(contents[2], '=');
-                        multipartMixedBoundary = "--" + values;
+                        int equals = header.nextValue() ? header.valueEqualsSign() : -1;
+                        if (equals < 0) {
+                            throw new ErrorDataDecoderException("Mixed Multipart found without boundary");
+                        }
+                        multipartMixedBoundary = new BoundaryMatcher("--" + header.valueAfter(equals), charset);
                         currentStatus = MultiPartStatus.MIXEDDELIMITER;
                         return decodeMultipart(MultiPartStatus.MIXEDDELIMITER);
                     } else {
                         throw new ErrorDataDecoderException("Mixed Multipart found in a previous Mixed Multipart");
                     }
                 } else {
-                    for (int i = 1; i < contents.length; i++) {
-                        final String charsetHeader = HttpHeaderValues.CHARSET.toString();
-                        if (contents[i].regionMatches(true, 0, charsetHeader, 0, charsetHeader.length())) {
-                            String values = StringUtil.substringAfter(contents[i], '=');
-                            Attribute attribute;
-                            try {
-                                attribute = factory.createAttribute(request, charsetHeader, cleanString(values));
-                            } catch (NullPointerException e) {
-                                throw new ErrorDataDecoderException(e);
-                            } catch (IllegalArgumentException e) {
-                                throw new ErrorDataDecoderException(e);
-                            }
-                            putCurrentFieldAttribute(HttpHeaderValues.CHARSET, attribute);
-                        } else if (contents[i].contains("=")) {
-                            String name = StringUtil.substringBefore(contents[i], '=');
-                            String values = StringUtil.substringAfter(contents[i], '=');
-                            Attribute attribute;
-                            try {
-                                attribute = factory.createAttribute(request, cleanString(name), values);
-                            } catch (NullPointerException e) {
-                                throw new ErrorDataDecoderException(e);
-                            } catch (IllegalArgumentException e) {
-                                throw new ErrorDataDecoderException(e);
+                    do {
+                        int equals = header.valueEqualsSign();
+                        if (header.valueStartsWith(HttpHeaderValues.CHARSET)) {
+                            if (equals < 0) {
+                                throw new ErrorDataDecoderException("No value for " + HttpHeaderValues.CHARSET);
                             }
-                            putCurrentFieldAttribute(name, attribute);
+                            partHeaders.charset = header.cleanValueAfter(equals);
+                        } else if (equals >= 0) {
+                            putPartHeader(header, equals, false);
                         } else {
-                            Attribute attribute;
-                            try {
-                                attribute = factory.createAttribute(request,
-                                        cleanString(contents[0]), contents[i]);
-                            } catch (NullPointerException e) {
-                                throw new ErrorDataDecoderException(e);
-                            } catch (IllegalArgumentException e) {
-                                throw new ErrorDataDecoderException(e);
-                            }
-                            putCurrentFieldAttribute(attribute.getName(), attribute);
+                            partHeaders.contentType = header.value();
                         }
-                    }
+                    } while (header.nextValue());
                 }
             }
+            // Other headers are skipped without being decoded
+        }
+        if (maxParts >= 0 && ++parts > maxParts) {
+            throw new TooManyPartsDecoderException("Request has more than " + maxParts + " parts");
         }
         // Is it a FileUpload
-        Attribute filenameAttribute = currentFieldAttributes.get(HttpHeaderValues.FILENAME);
         if (currentStatus == MultiPartStatus.DISPOSITION) {
-            if (filenameAttribute != null) {
+            if (partHeaders.filename != null) {
                 // FileUpload
                 currentStatus = MultiPartStatus.FILEUPLOAD;
                 // do not change the buffer position
@@ -798,7 +1060,7 @@ public class HttpPostMultipartRequestDecoder implements InterfaceHttpPostRequest
                 return decodeMultipart(MultiPartStatus.FIELD);
             }
         } else {
-            if (filenameAttribute != null) {
+            if (partHeaders.filename != null) {
                 // FileUpload
                 currentStatus = MultiPartStatus.MIXEDFILEUPLOAD;
                 // do not change the buffer position
@@ -810,45 +1072,65 @@ public class HttpPostMultipartRequestDecoder implements InterfaceHttpPostRequest
         }
     }
 
-    private void putCurrentFieldAttribute(CharSequence name, Attribute attribute) {
-        currentFieldAttributes.compute(attribute.getName(), (key, old) -> {
-            if (old != null) {
-                old.close();
-            }
-            return attribute;
-        });
+    private void checkPartHeaderBytes(int headerBytes) {
+        if (maxPartHeaderBytes >= 0 && headerBytes > maxPartHeaderBytes) {
+            throw new PartHeaderTooLargeDecoderException("Part headers exceed the maximum size " +
+                    maxPartHeaderBytes);
+        }
     }
 
-    private static final String FILENAME_ENCODED = HttpHeaderValues.FILENAME.toString() + '*';
-
-    private Attribute getContentDispositionAttribute(String... values) {
-        String name = cleanString(values[0]);
-        String value = values[1];
+    private static final AsciiString FILENAME_ENCODED = AsciiString.of(HttpHeaderValues.FILENAME + "*");
 
+    /**
+     * Keep the current value of a Content-Disposition header if it is a parameter used by the decoder
+     */
+    private void putContentDispositionParameter(PartHeaderParser header) {
+        int equals = header.valueEqualsSign();
+        if (equals < 0) {
+            throw new ErrorDataDecoderException("No value in " + HttpHeaderNames.CONTENT_DISPOSITION + " parameter");
+        }
         // Filename can be token, quoted or encoded. See https://tools.ietf.org/html/rfc5987
-        if (HttpHeaderValues.FILENAME.contentEquals(name)) {
+        if (header.valueBeforeEquals(equals, HttpHeaderValues.FILENAME, false)) {
             // Value is quoted or token. Strip if quoted:
-            int last = value.length() - 1;
-            if (last > 0 &&
-              value.charAt(0) == HttpConstants.DOUBLE_QUOTE &&
-              value.charAt(last) == HttpConstants.DOUBLE_QUOTE) {
-                value = value.substring(1, last);
-            }
-        } else if (FILENAME_ENCODED.equals(name)) {
+            partHeaders.filename = header.unquotedValueAfter(equals);
+        } else if (header.valueBeforeEquals(equals, FILENAME_ENCODED, false)) {
             try {
-                name = HttpHeaderValues.FILENAME.toString();
-                String[] split = cleanString(value).split("'", 3);
-                value = QueryStringDecoder.decodeComponent(split[2], Charset.forName(split[0]));
+                String[] split = header.cleanValueAfter(equals).split("'", 3);
+                partHeaders.filename = QueryStringDecoder.decodeComponent(split[2], Charset.forName(split[0]));
             } catch (ArrayIndexOutOfBoundsException e) {
                  throw new ErrorDataDecoderException(e);
-            } catch (UnsupportedCharsetException e) {
+            } catch (IllegalArgumentException e) {
                 throw new ErrorDataDecoderException(e);
             }
         } else {
             // otherwise we need to clean the value
-            value = cleanString(value);
+            putPartHeader(header, equals, true);
         }
-        return factory.createAttribute(request, name, value);
+    }
+
+    /**
+     * Keep the current value of a header, of the form key=value, if its key (ignoring case) is one of the
+     * {@link PartHeaders}. Other parameters are ignored.
+     */
+    private void putPartHeader(PartHeaderParser header, int equals, boolean clean) {
+        PartHeaders headers = partHeaders;
+        if (header.valueBeforeEquals(equals, HttpHeaderValues.NAME, true)) {
+            headers.name = partHeaderValue(header, equals, clean);
+        } else if (header.valueBeforeEquals(equals, HttpHeaderValues.FILENAME, true)) {
+            headers.filename = partHeaderValue(header, equals, clean);
+        } else if (header.valueBeforeEquals(equals, HttpHeaderValues.CHARSET, true)) {
+            headers.charset = partHeaderValue(header, equals, clean);
+        } else if (header.valueBeforeEquals(equals, HttpHeaderNames.CONTENT_TYPE, true)) {
+            headers.contentType = partHeaderValue(header, equals, clean);
+        } else if (header.valueBeforeEquals(equals, HttpHeaderNames.CONTENT_LENGTH, true)) {
+            headers.contentLength = partHeaderValue(header, equals, clean);
+        } else if (header.valueBeforeEquals(equals, HttpHeaderNames.CONTENT_TRANSFER_ENCODING, true)) {
+            headers.contentTransferEncoding = partHeaderValue(header, equals, clean);
+        }
+    }
+
+    private static String partHeaderValue(PartHeaderParser header, int equals, boolean clean) {
+        return clean ? header.cleanValueAfter(equals) : header.valueAfter(equals);
     }
 
     /**
@@ -860,19 +1142,38 @@ public class HttpPostMultipartRequestDecoder implements InterfaceHttpPostRequest
      * @throws ErrorDataDecoderException
      */
     protected InterfaceHttpData getFileUpload(String delimiter) {
+        return getFileUpload(boundaryMatcher(delimiter));
+    }
+
+    /**
+     * @return the precompiled delimiter matching the given delimiter
+     */
+    private BoundaryMatcher boundaryMatcher(String delimiter) {
+        if (multipartMixedBoundary != null && multipartMixedBoundary.delimiter().equals(delimiter)) {
+            return multipartMixedBoundary;
+        }
+        if (multipartDataBoundary != null && multipartDataBoundary.delimiter().equals(delimiter)) {
+            return multipartDataBoundary;
+        }
+        return new BoundaryMatcher(delimiter, charset);
+    }
+
+    /**
+     * Get the FileUpload (new one or current one)
+     *
+     * @param delimiter
+     *            the precompiled delimiter to use
+     * @return the InterfaceHttpData if any
+     * @throws ErrorDataDecoderException
+     */
+    private InterfaceHttpData getFileUpload(BoundaryMatcher delimiter) {
         // eventually restart from existing FileUpload
         // Now get value according to Content-Type and Charset
-        Attribute encoding = currentFieldAttributes.get(HttpHeaderNames.CONTENT_TRANSFER_ENCODING);
         Charset localCharset = charset;
         // Default
         TransferEncodingMechanism mechanism = TransferEncodingMechanism.BIT7;
-        if (encoding != null) {
-            String code;
-            try {
-                code = encoding.getValue().toLowerCase();
-            } catch (IOException e) {
-                throw new ErrorDataDecoderException(e);
-            }
+        if (partHeaders.contentTransferEncoding != null) {
+            String code = partHeaders.contentTransferEncoding.toLowerCase();
             if (code.equals(HttpPostBodyUtil.TransferEncodingMechanism.BIT7.value())) {
                 localCharset = StandardCharsets.US_ASCII;
             } else if (code.equals(HttpPostBodyUtil.TransferEncodingMechanism.BIT8.value())) {
@@ -885,40 +1186,33 @@ public class HttpPostMultipartRequestDecoder implements InterfaceHttpPostRequest
                 throw new ErrorDataDecoderException("TransferEncoding Unknown: " + code);
             }
         }
-        Attribute charsetAttribute = currentFieldAttributes.get(HttpHeaderValues.CHARSET);
-        if (charsetAttribute != null) {
+        if (partHeaders.charset != null) {
             try {
-                localCharset = Charset.forName(charsetAttribute.getValue());
-            } catch (IOException e) {
+                localCharset = Charset.forName(partHeaders.charset);
+            } catch (IllegalCharsetNameException e) {
                 throw new ErrorDataDecoderException(e);
             } catch (UnsupportedCharsetException e) {
                 throw new ErrorDataDecoderException(e);
             }
         }
-        if (currentFileUpload == null) {
-            Attribute filenameAttribute = currentFieldAttributes.get(HttpHeaderValues.FILENAME);
-            Attribute nameAttribute = currentFieldAttributes.get(HttpHeaderValues.NAME);
-            Attribute contentTypeAttribute = currentFieldAttributes.get(HttpHeaderNames.CONTENT_TYPE);
-            Attribute lengthAttribute = currentFieldAttributes.get(HttpHeaderNames.CONTENT_LENGTH);
-            long size;
-            try {
-                size = lengthAttribute != null ? Long.parseLong(lengthAttribute.getValue()) : 0L;
-            } catch (IOException e) {
-                throw new ErrorDataDecoderException(e);
-            } catch (NumberFormatException ignored) {
-                size = 0;
-            }
+        if (currentFileUpload == null && currentListenerSink == null) {
+            long size = currentDefinedLength();
             try {
                 String contentType;
-                if (contentTypeAttribute != null) {
-                    contentType = contentTypeAttribute.getValue();
+                if (partHeaders.contentType != null) {
+                    contentType = partHeaders.contentType;
                 } else {
                     contentType = HttpPostBodyUtil.DEFAULT_BINARY_CONTENT_TYPE;
                 }
-                currentFileUpload = factory.createFileUpload(request,
-                        cleanString(nameAttribute.getValue()), cleanString(filenameAttribute.getValue()),
-                        contentType, mechanism.value(), localCharset,
-                        size);
+                if (listener != null) {
+                    startListenerPart(cleanString(partHeaders.name), cleanString(partHeaders.filename),
+                            contentType, mechanism.value(), localCharset, size);
+                } else {
+                    currentFileUpload = factory.createFileUpload(request,
+                            cleanString(partHeaders.name), cleanString(partHeaders.filename),
+                            contentType, mechanism.value(), localCharset,
+                            size);
+                }
             } catch (NullPointerException e) {
                 throw new ErrorDataDecoderException(e);
             } catch (IllegalArgumentException e) {
@@ -928,7 +1222,25 @@ public class HttpPostMultipartRequestDecoder implements InterfaceHttpPostRequest
             }
         }
         // load data as much as possible
-        if (!loadDataMultipartOptimized(undecodedChunk, delimiter, currentFileUpload)) {
+        if (listener != null) {
+            if (!loadListenerPart(delimiter)) {
+                // Delimiter is not found. Need more chunks.
+                return null;
+            }
+            // ready to load the next one
+            if (currentStatus == MultiPartStatus.FILEUPLOAD) {
+                currentStatus = MultiPartStatus.HEADERDELIMITER;
+                partHeaders.reset();
+            } else {
+                currentStatus = MultiPartStatus.MIXEDDELIMITER;
+                partHeaders.resetMixed();
+            }
+            return null;
+        }
+        boolean loaded = loadDataMultipartOptimized(undecodedChunk, delimiter, currentFileUpload.definedLength(),
+                currentFileUpload.length(), currentFileUpload::addContent, zeroCopy);
+        checkInMemoryBytes(currentFileUpload);
+        if (!loaded) {
             // Delimiter is not found. Need more chunks.
             return null;
         }
@@ -936,10 +1248,10 @@ public class HttpPostMultipartRequestDecoder implements InterfaceHttpPostRequest
             // ready to load the next one
             if (currentStatus == MultiPartStatus.FILEUPLOAD) {
                 currentStatus = MultiPartStatus.HEADERDELIMITER;
-               clearCurrentFieldAttributes();
+               partHeaders.reset();
             } else {
                 currentStatus = MultiPartStatus.MIXEDDELIMITER;
-                cleanMixedAttributes();
+                partHeaders.resetMixed();
             }
             FileUpload fileUpload = currentFileUpload;
             currentFileUpload = null;
@@ -951,6 +1263,42 @@ public class HttpPostMultipartRequestDecoder implements InterfaceHttpPostRequest
         return null;
     }
 
+    /**
+     * @return the Content-Length of the current part, or 0 if unknown
+     */
+    private long currentDefinedLength() {
+        try {
+            return partHeaders.contentLength != null ? Long.parseLong(partHeaders.contentLength) : 0L;
+        } catch (NumberFormatException ignored) {
+            return 0L;
+        }
+    }
+
+    /**
+     * Notify the listener of a new part
+     */
+    private void startListenerPart(String name, String filename, String contentType,
+                                   String contentTransferEncoding, Charset localCharset, long size)
+            throws IOException {
+        listener.onPartStart(name, filename, contentType, contentTransferEncoding, localCharset, size);
+        currentListenerSink = new ListenerContentSink(size);
+    }
+
+    /**
+     * Push the content of the current part to the listener
+     *
+     * @return {@code true} if the part is complete, {@code false} if need more chunks
+     */
+    private boolean loadListenerPart(BoundaryMatcher delimiter) {
+        ListenerContentSink sink = currentListenerSink;
+        if (!loadDataMultipartOptimized(undecodedChunk, delimiter, sink.definedLength, sink.length, sink,
+                zeroCopy)) {
+            return false;
+        }
+        currentListenerSink = null;
+        return true;
+    }
+
     /**
      * Destroy the {@link HttpPostMultipartRequestDecoder} and release all it resources. After this method
      * was called it is not possible to operate on it anymore.
@@ -961,8 +1309,8 @@ public class HttpPostMultipartRequestDecoder implements InterfaceHttpPostRequest
         cleanFiles();
         // Clean Memory based data
         for (InterfaceHttpData httpData : bodyListHttpData) {
-            // Might have been already closed by the user
-            if (httpData.isAccessible()) {
+            // Might have been already closed by the user, or taken by next()
+            if (httpData != null && httpData.isAccessible()) {
                 httpData.close();
             }
         }
@@ -976,7 +1324,7 @@ public class HttpPostMultipartRequestDecoder implements InterfaceHttpPostRequest
             undecodedChunk = null;
         }
 
-        clearCurrentFieldAttributes();
+        partHeaders.reset();
     }
 
     /**
@@ -999,98 +1347,29 @@ public class HttpPostMultipartRequestDecoder implements InterfaceHttpPostRequest
         factory.removeHttpDataFromClean(request, data);
     }
 
-    /**
-     * Remove all Attributes that should be cleaned between two FileUpload in
-     * Mixed mode
-     */
-    @SuppressWarnings("EmptyTryBlock")
-    private void cleanMixedAttributes() {
-        if (currentFieldAttributes != null) {
-            try (Attribute charset = currentFieldAttributes.remove(HttpHeaderValues.CHARSET);
-                 Attribute clen = currentFieldAttributes.remove(HttpHeaderNames.CONTENT_LENGTH);
-                 Attribute transferEncoding = currentFieldAttributes.remove(HttpHeaderNames.CONTENT_TRANSFER_ENCODING);
-                 Attribute ctype = currentFieldAttributes.remove(HttpHeaderNames.CONTENT_TYPE);
-                 Attribute fname = currentFieldAttributes.remove(HttpHeaderValues.FILENAME)) {
-            }
-        }
-    }
-
-    /**
-     * Clear all attributes from the currentFieldAttributes, and reset the map to null.
-     * Make sure any attributes are properly closed.
-     */
-    private void clearCurrentFieldAttributes() {
-        if (currentFieldAttributes != null) {
-            currentFieldAttributes.forEach((charSequence, attribute) -> {
-                if (attribute.isAccessible()) {
-                    attribute.close();
-                }
-            });
-            currentFieldAttributes = null;
-        }
-    }
-
-    /**
-     * Read one line up to the CRLF or LF
-     *
-     * @return the String from one line
-     * @throws NotEnoughDataDecoderException
-     *             Need more chunks and reset the {@code readerIndex} to the previous
-     *             value
-     */
-    private static String readLineOptimized(Buffer undecodedChunk, Charset charset) {
-        int readerIndex = undecodedChunk.readerOffset();
-        try {
-            if (undecodedChunk.readableBytes() > 0) {
-                int posLfOrCrLf = HttpPostBodyUtil.findLineBreak(undecodedChunk, undecodedChunk.readerOffset());
-                if (posLfOrCrLf <= 0) {
-                    throw new NotEnoughDataDecoderException();
-                }
-
-                CharSequence lineCharSeq = undecodedChunk.readCharSequence(posLfOrCrLf, charset);
-                byte nextByte = undecodedChunk.readByte();
-                if (nextByte == HttpConstants.CR) {
-                    // force read next byte since LF is the following one
-                    undecodedChunk.readByte();
-                }
-                return lineCharSeq.toString();
-            }
-        } catch (IndexOutOfBoundsException e) {
-            undecodedChunk.readerOffset(readerIndex);
-            throw new NotEnoughDataDecoderException(e);
-        }
-        undecodedChunk.readerOffset(readerIndex);
-        throw new NotEnoughDataDecoderException();
-    }
-
     /**
      * Read one line up to --delimiter or --delimiter-- and if existing the CRLF
-     * or LF Read one line up to --delimiter or --delimiter-- and if existing
-     * the CRLF or LF. Note that CRLF or LF are mandatory for opening delimiter
+     * or LF. Note that CRLF or LF are mandatory for opening delimiter
      * (--delimiter) but not for closing delimiter (--delimiter--) since some
      * clients does not include CRLF in this case.
      *
      * @param delimiter
-     *            of the form --string, such that '--' is already included
-     * @return the String from one line as the delimiter searched (opening or
-     *         closing)
+     *            the precompiled delimiter of the form --string, such that '--' is already included
+     * @return {@code false} if the opening delimiter was read, {@code true} if the closing delimiter was read
      * @throws NotEnoughDataDecoderException
      *             Need more chunks and reset the {@code readerIndex} to the previous
      *             value
      */
-    private static String readDelimiterOptimized(Buffer undecodedChunk, String delimiter, Charset charset) {
+    private static boolean readDelimiterOptimized(Buffer undecodedChunk, BoundaryMatcher delimiter) {
         final int readerIndex = undecodedChunk.readerOffset();
-        final byte[] bdelimiter = delimiter.getBytes(charset);
-        final int delimiterLength = bdelimiter.length;
         try {
-            int delimiterPos = HttpPostBodyUtil.findDelimiter(undecodedChunk, readerIndex, bdelimiter, false);
+            int delimiterPos = delimiter.findDelimiter(undecodedChunk, readerIndex, false, true);
             if (delimiterPos < 0) {
                 // delimiter not found so break here !
                 undecodedChunk.readerOffset(readerIndex);
                 throw new NotEnoughDataDecoderException();
             }
-            StringBuilder sb = new StringBuilder(delimiter);
-            undecodedChunk.readerOffset(readerIndex + delimiterPos + delimiterLength);
+            undecodedChunk.readerOffset(readerIndex + delimiterPos + delimiter.length());
             // Now check if either opening delimiter or closing delimiter
             if (undecodedChunk.readableBytes() > 0) {
                 byte nextByte = undecodedChunk.readByte();
@@ -1098,7 +1377,7 @@ public class HttpPostMultipartRequestDecoder implements InterfaceHttpPostRequest
                 if (nextByte == HttpConstants.CR) {
                     nextByte = undecodedChunk.readByte();
                     if (nextByte == HttpConstants.LF) {
-                        return sb.toString();
+                        return false;
                     } else {
                         // error since CR must be followed by LF
                         // delimiter not found so break here !
@@ -1106,20 +1385,18 @@ public class HttpPostMultipartRequestDecoder implements InterfaceHttpPostRequest
                         throw new NotEnoughDataDecoderException();
                     }
                 } else if (nextByte == HttpConstants.LF) {
-                    return sb.toString();
+                    return false;
                 } else if (nextByte == '-') {
-                    sb.append('-');
                     // second check for closing delimiter
                     nextByte = undecodedChunk.readByte();
                     if (nextByte == '-') {
-                        sb.append('-');
                         // now try to find if CRLF or LF there
                         if (undecodedChunk.readableBytes() > 0) {
                             nextByte = undecodedChunk.readByte();
                             if (nextByte == HttpConstants.CR) {
                                 nextByte = undecodedChunk.readByte();
                                 if (nextByte == HttpConstants.LF) {
-                                    return sb.toString();
+                                    return true;
                                 } else {
                                     // error CR without LF
                                     // delimiter not found so break here !
@@ -1127,20 +1404,20 @@ public class HttpPostMultipartRequestDecoder implements InterfaceHttpPostRequest
                                     throw new NotEnoughDataDecoderException();
                                 }
                             } else if (nextByte == HttpConstants.LF) {
-                                return sb.toString();
+                                return true;
                             } else {
                                 // No CRLF but ok however (Adobe Flash uploader)
                                 // minus 1 since we read one char ahead but
                                 // should not
                                 undecodedChunk.readerOffset(undecodedChunk.readerOffset() - 1);
-                                return sb.toString();
+                                return true;
                             }
                         }
                         // FIXME what do we do here?
                         // either considering it is fine, either waiting for
                         // more data to come?
                         // lets try considering it is fine...
-                        return sb.toString();
+                        return true;
                     }
                     // only one '-' => not enough
                     // whatever now => error since incomplete
@@ -1155,100 +1432,86 @@ public class HttpPostMultipartRequestDecoder implements InterfaceHttpPostRequest
     }
 
     /**
-     * Rewrite buffer in order to skip lengthToSkip bytes from current readerIndex,
-     * such that any readable bytes available after readerIndex + lengthToSkip (so before writerIndex)
-     * are moved at readerIndex position,
-     * therefore decreasing writerIndex of lengthToSkip at the end of the process.
+     * Read length bytes from the current readerIndex.
      *
-     * @param buffer the buffer to rewrite from current readerIndex
-     * @param lengthToSkip the size to skip from readerIndex
+     * @param buffer the buffer to read from
+     * @param length the number of bytes to read
+     * @param zeroCopy true to split the buffer, false to copy the bytes
+     * @return the bytes read
      */
-    private static void rewriteCurrentBuffer(Buffer buffer, int lengthToSkip) {
-        if (lengthToSkip == 0) {
-            return;
-        }
-        final int readerIndex = buffer.readerOffset();
-        final int readableBytes = buffer.readableBytes();
-        if (readableBytes == lengthToSkip) {
-            buffer.readerOffset(readerIndex);
-            buffer.writerOffset(readerIndex);
-            return;
+    private static Buffer readContent(Buffer buffer, int length, boolean zeroCopy) {
+        if (zeroCopy) {
+            return buffer.readSplit(length);
         }
-        buffer.copyInto(readerIndex + lengthToSkip, buffer, readerIndex, readableBytes - lengthToSkip);
-        buffer.readerOffset(readerIndex);
-        buffer.writerOffset(readerIndex + readableBytes - lengthToSkip);
+        Buffer content = buffer.copy(buffer.readerOffset(), length);
+        buffer.skipReadableBytes(length);
+        return content;
     }
 
     /**
      * Load the field value or file data from a Multipart request
      *
+     * @param definedLength the Content-Length of the part, or 0 if unknown
+     * @param length the number of bytes of the part already loaded
+     * @param sink the destination of the loaded bytes
      * @return {@code true} if the last chunk is loaded (boundary delimiter found), {@code false} if need more chunks
      * @throws ErrorDataDecoderException
      */
-    private static boolean loadDataMultipartOptimized(Buffer undecodedChunk, String delimiter, HttpData httpData) {
+    private static boolean loadDataMultipartOptimized(Buffer undecodedChunk, BoundaryMatcher delimiter,
+                                                      long definedLength, long length, ContentSink sink,
+                                                      boolean zeroCopy) {
         if (undecodedChunk.readableBytes() == 0) {
             return false;
         }
         final int startReaderIndex = undecodedChunk.readerOffset();
-        final byte[] bdelimiter = delimiter.getBytes(httpData.getCharset());
-        int posDelimiter = HttpPostBodyUtil.findDelimiter(undecodedChunk, startReaderIndex, bdelimiter, true);
+        // Only the start of the part follows a line break already consumed (the one ending its headers): once some
+        // content is loaded, the kept bytes start with the LF or CRLF of a possible delimiter, or in the middle of
+        // a line, where a bare delimiter is only content
+        final boolean lineStart = length == 0;
+        int posDelimiter = delimiter.findDelimiter(undecodedChunk, startReaderIndex, true, lineStart);
         if (posDelimiter < 0) {
-            // Not found but however perhaps because incomplete so search LF or CRLF from the end.
-            // Possible last bytes contain partially delimiter
-            // (delimiter is possibly partially there, at least 1 missing byte),
-            // therefore searching last delimiter.length +1 (+1 for CRLF instead of LF)
+            // Not found but however perhaps because incomplete: the last bytes may contain the beginning
+            // of the delimiter with its LF or CRLF, so keep them until the next chunk
+            posDelimiter = delimiter.findPartialDelimiter(undecodedChunk, lineStart);
+            // CR can be at the end of the buffer, LF not yet there (issue #11668)
+            // Check if last CR shall be in the content (definedLength vs actual length + buffer)
             int readableBytes = undecodedChunk.readableBytes();
-            int lastPosition = readableBytes - bdelimiter.length - 1;
-            if (lastPosition < 0) {
-                // Not enough bytes, but at most delimiter.length bytes available so can still try to find CRLF there
-                lastPosition = 0;
-            }
-            posDelimiter = HttpPostBodyUtil.findLastLineBreak(undecodedChunk, startReaderIndex + lastPosition);
-            // No LineBreak, however CR can be at the end of the buffer, LF not yet there (issue #11668)
-            // Check if last CR (if any) shall not be in the content (definedLength vs actual length + buffer - 1)
-            if (posDelimiter < 0 &&
-                httpData.definedLength() == httpData.length() + readableBytes - 1 &&
+            if (posDelimiter == readableBytes - 1 &&
+                definedLength == length + readableBytes &&
                 undecodedChunk.getByte(readableBytes + startReaderIndex - 1) == HttpConstants.CR) {
-                // Last CR shall precede a future LF
-                lastPosition = 0;
-                posDelimiter = readableBytes - 1;
+                // Last CR is the last byte of the content
+                posDelimiter = -1;
             }
             if (posDelimiter < 0) {
                 // not found so this chunk can be fully added
-                Buffer content = undecodedChunk.copy();
+                Buffer content = readContent(undecodedChunk, readableBytes, zeroCopy);
                 try {
-                    httpData.addContent(content, false);
+                    sink.addContent(content, false);
                 } catch (IOException e) {
                     throw new ErrorDataDecoderException(e);
                 }
-                undecodedChunk.readerOffset(startReaderIndex);
-                undecodedChunk.writerOffset(startReaderIndex);
                 return false;
             }
-            // posDelimiter is not from startReaderIndex but from startReaderIndex + lastPosition
-            posDelimiter += lastPosition;
             if (posDelimiter == 0) {
                 // Nothing to add
                 return false;
             }
             // Not fully but still some bytes to provide: httpData is not yet finished since delimiter not found
-            Buffer content = undecodedChunk.copy(startReaderIndex, posDelimiter);
+            Buffer content = readContent(undecodedChunk, posDelimiter, zeroCopy);
             try {
-                httpData.addContent(content, false);
+                sink.addContent(content, false);
             } catch (IOException e) {
                 throw new ErrorDataDecoderException(e);
             }
-            rewriteCurrentBuffer(undecodedChunk, posDelimiter);
             return false;
         }
         // Delimiter found at posDelimiter, including LF or CRLF, so httpData has its last chunk
-        Buffer content = undecodedChunk.copy(startReaderIndex, posDelimiter);
+        Buffer content = readContent(undecodedChunk, posDelimiter, zeroCopy);
         try {
-            httpData.addContent(content, true);
+            sink.addContent(content, true);
         } catch (IOException e) {
             throw new ErrorDataDecoderException(e);
         }
-        rewriteCurrentBuffer(undecodedChunk, posDelimiter);
         return true;
     }
 
@@ -1311,93 +1574,46 @@ public class HttpPostMultipartRequestDecoder implements InterfaceHttpPostRequest
     }
 
     /**
-     * Split one header in Multipart
+     * This method is package private intentionally in order to allow during tests
+     * to access to the amount of memory allocated (capacity) within the private
+     * ByteBuf undecodedChunk
      *
-     * @return an array of String where rank 0 is the name of the header,
-     *         follows by several values that were separated by ';' or ','
-     */
-    private static String[] splitMultipartHeader(String sb) {
-        ArrayList<String> headers = new ArrayList<String>(1);
-        int nameStart;
-        int nameEnd;
-        int colonEnd;
-        int valueStart;
-        int valueEnd;
-        nameStart = HttpPostBodyUtil.findNonWhitespace(sb, 0);
-        for (nameEnd = nameStart; nameEnd < sb.length(); nameEnd++) {
-            char ch = sb.charAt(nameEnd);
-            if (ch == ':' || Character.isWhitespace(ch)) {
-                break;
-            }
-        }
-        for (colonEnd = nameEnd; colonEnd < sb.length(); colonEnd++) {
-            if (sb.charAt(colonEnd) == ':') {
-                colonEnd++;
-                break;
-            }
-        }
-        valueStart = HttpPostBodyUtil.findNonWhitespace(sb, colonEnd);
-        valueEnd = HttpPostBodyUtil.findEndOfString(sb);
-        headers.add(sb.substring(nameStart, nameEnd));
-        String svalue = (valueStart >= valueEnd) ? StringUtil.EMPTY_STRING : sb.substring(valueStart, valueEnd);
-        String[] values;
-        if (svalue.indexOf(';') >= 0) {
-            values = splitMultipartHeaderValues(svalue);
-        } else {
-            values = svalue.split(",");
-        }
-        for (String value : values) {
-            headers.add(value.trim());
-        }
-        String[] array = new String[headers.size()];
-        for (int i = 0; i < headers.size(); i++) {
-            array[i] = headers.get(i);
-        }
-        return array;
+     * @return the number of bytes the internal buffer can contain
+     */
+    int getCurrentAllocatedCapacity() {
+        return undecodedChunk.capacity();
     }
 
     /**
-     * Split one header value in Multipart
-     * @return an array of String where values that were separated by ';' or ','
+     * Destination of the content of a part
      */
-    private static String[] splitMultipartHeaderValues(String svalue) {
-        List<String> values = new ArrayList<>(1);
-        boolean inQuote = false;
-        boolean escapeNext = false;
-        int start = 0;
-        for (int i = 0; i < svalue.length(); i++) {
-            char c = svalue.charAt(i);
-            if (inQuote) {
-                if (escapeNext) {
-                    escapeNext = false;
-                } else {
-                    if (c == '\\') {
-                        escapeNext = true;
-                    } else if (c == '"') {
-                        inQuote = false;
-                    }
-                }
-            } else {
-                if (c == '"') {
-                    inQuote = true;
-                } else if (c == ';') {
-                    values.add(svalue.substring(start, i));
-                    start = i + 1;
-                }
-            }
-        }
-        values.add(svalue.substring(start));
-        return values.toArray(new String[0]);
+    @FunctionalInterface
+    private interface ContentSink {
+        /**
+         * @param buffer the content, owned by the sink
+         * @param last true if this is the last content of the part
+         */
+        void addContent(Buffer buffer, boolean last) throws IOException;
     }
 
     /**
-     * This method is package private intentionally in order to allow during tests
-     * to access to the amount of memory allocated (capacity) within the private
-     * ByteBuf undecodedChunk
-     *
-     * @return the number of bytes the internal buffer can contain
+     * Push the content of the current part to the listener
      */
-    int getCurrentAllocatedCapacity() {
-        return undecodedChunk.capacity();
+    private final class ListenerContentSink implements ContentSink {
+        final long definedLength;
+        long length;
+
+        ListenerContentSink(long definedLength) {
+            this.definedLength = definedLength;
+        }
+
+        @Override
+        public void addContent(Buffer buffer, boolean last) throws IOException {
+            length += buffer.readableBytes();
+            listener.onPartContent(buffer, last);
+            if (last) {
+                listener.onPartEnd();
+            }
+        }
     }
 }
@@ -84,13 +84,34 @@ public class HttpPostRequestDecoder implements InterfaceHttpPostRequestDecoder {
      *             errors
      */
     public HttpPostRequestDecoder(HttpDataFactory factory, HttpRequest request, Charset charset) {
+        this(factory, request, charset, null);
+    }
+
+    /**
+     *
+     * @param factory
+     *            the factory used to create InterfaceHttpData
+     * @param request
+     *            the request to decode
+     * @param charset
+     *            the charset to use as default
+     * @param limits
+     *            the limits of the resources a multipart request may use, or null for no limit
+     * @throws NullPointerException
+     *             for request or charset or factory
+     * @throws ErrorDataDecoderException
+     *             if the default charset was wrong when decoding or other
+     *             errors
+     */
+    public HttpPostRequestDecoder(HttpDataFactory factory, HttpRequest request, Charset charset,
+                                  HttpPostMultipartLimits limits) {
         ObjectUtil.checkNotNullWithIAE(factory, "factory");
         ObjectUtil.checkNotNullWithIAE(request, "request");
         ObjectUtil.checkNotNullWithIAE(charset, "charset");
 
         // Fill default values
         if (isMultipart(request)) {
-            decoder = new HttpPostMultipartRequestDecoder(factory, request, charset);
+            decoder = new HttpPostMultipartRequestDecoder(factory, request, charset, null, limits);
         } else {
             decoder = new HttpPostStandardRequestDecoder(factory, request, charset);
         }
@@ -206,6 +227,52 @@ public class HttpPostRequestDecoder implements InterfaceHttpPostRequestDecoder {
         return decoder.getDiscardThreshold();
     }
 
+    @Override
+    public void setReleaseOnConsume(boolean releaseOnConsume) {
+        decoder.setReleaseOnConsume(releaseOnConsume);
+    }
+
+    @Override
+    public boolean isReleaseOnConsume() {
+        return decoder.isReleaseOnConsume();
+    }
+
+    /**
+     * Enable or disable the zero-copy mode of a multipart request (disabled by default), see
+     * {@link HttpPostMultipartRequestDecoder#setZeroCopy(boolean)}. Ignored for a request which is not multipart.
+     */
+    public void setZeroCopy(boolean zeroCopy) {
+        if (decoder instanceof HttpPostMultipartRequestDecoder) {
+            ((HttpPostMultipartRequestDecoder) decoder).setZeroCopy(zeroCopy);
+        }
+    }
+
+    /**
+     * Return true if the bytes of the parts of a multipart request are given to the {@link HttpData} without copy.
+     */
+    public boolean isZeroCopy() {
+        return decoder instanceof HttpPostMultipartRequestDecoder &&
+               ((HttpPostMultipartRequestDecoder) decoder).isZeroCopy();
+    }
+
+    /**
+     * Set whether the values of the attributes of a urlencoded request kept in memory are url decoded lazily, see
+     * {@link HttpPostStandardRequestDecoder#setLazyDecoding(boolean)}. Ignored for a multipart request.
+     */
+    public void setLazyDecoding(boolean lazyDecoding) {
+        if (decoder instanceof HttpPostStandardRequestDecoder) {
+            ((HttpPostStandardRequestDecoder) decoder).setLazyDecoding(lazyDecoding);
+        }
+    }
+
+    /**
+     * Return whether the values of the attributes of a urlencoded request kept in memory are url decoded lazily.
+     */
+    public boolean isLazyDecoding() {
+        return decoder instanceof HttpPostStandardRequestDecoder &&
+               ((HttpPostStandardRequestDecoder) decoder).isLazyDecoding();
+    }
+
     @Override
     public List<InterfaceHttpData> getBodyHttpDatas() {
         return decoder.getBodyHttpDatas();
@@ -341,4 +408,70 @@ public class HttpPostRequestDecoder implements InterfaceHttpPostRequestDecoder {
             super(msg, cause);
         }
     }
+
+    /**
+     * Exception when a request exceeds one of the limits of the decoder
+     */
+    public abstract static class LimitExceededDecoderException extends ErrorDataDecoderException {
+        private static final long serialVersionUID = -3172581034695719452L;
+
+        protected LimitExceededDecoderException(String msg) {
+            super(msg);
+        }
+    }
+
+    /**
+     * Exception when a request has more parts than allowed
+     */
+    public static class TooManyPartsDecoderException extends LimitExceededDecoderException {
+        private static final long serialVersionUID = 2853102476397316251L;
+
+        public TooManyPartsDecoderException(String msg) {
+            super(msg);
+        }
+    }
+
+    /**
+     * Exception when the headers of a part are longer than allowed
+     */
+    public static class PartHeaderTooLargeDecoderException extends LimitExceededDecoderException {
+        private static final long serialVersionUID = -5420839266115097816L;
+
+        public PartHeaderTooLargeDecoderException(String msg) {
+            super(msg);
+        }
+    }
+
+    /**
+     * Exception when a part has more header lines than allowed
+     */
+    public static class TooManyHeaderLinesDecoderException extends LimitExceededDecoderException {
+        private static final long serialVersionUID = 6091468613524871903L;
+
+        public TooManyHeaderLinesDecoderException(String msg) {
+            super(msg);
+        }
+    }
+
+    /**
+     * Exception when the body of a request is larger than allowed
+     */
+    public static class BodyTooLargeDecoderException extends LimitExceededDecoderException {
+        private static final long serialVersionUID = -1956302274808623947L;
+
+        public BodyTooLargeDecoderException(String msg) {
+            super(msg);
+        }
+    }
+
+    /**
+     * Exception when the data of a request keep more bytes in memory than allowed
+     */
+    public static class InMemoryTooLargeDecoderException extends LimitExceededDecoderException {
+        private static final long serialVersionUID = 4718860351209453710L;
+
+        public InMemoryTooLargeDecoderException(String msg) {
+            super(msg);
+        }
+    }
 }
@@ -17,9 +17,10 @@ package io.netty.contrib.handler.codec.http.multipart;
 
 import io.netty5.buffer.Buffer;
 import io.netty5.buffer.BufferAllocator;
-import io.netty5.buffer.DefaultBufferAllocators;
 import io.netty5.util.AsciiString;
 import io.netty5.util.Send;
+import io.netty5.channel.DefaultFileRegion;
+import io.netty5.channel.FileRegion;
 import io.netty5.handler.codec.DecoderResult;
 import io.netty5.handler.codec.http.DefaultFullHttpRequest;
 import io.netty5.handler.codec.http.DefaultHttpContent;
@@ -216,6 +217,7 @@ public class HttpPostRequestEncoder implements ChunkedInput<HttpContent<?>> {
         this.request = checkNotNullWithIAE(request, "request");
         this.charset = checkNotNullWithIAE(charset, "charset");
         this.factory = checkNotNullWithIAE(factory, "factory");
+        allocator = factory.getAllocator();
         if (HttpMethod.TRACE.equals(request.method())) {
             throw new ErrorDataEncoderException("Cannot create a Encoder if request is a TRACE");
         }
@@ -510,14 +512,14 @@ public class HttpPostRequestEncoder implements ChunkedInput<HttpContent<?>> {
          */
         if (data instanceof Attribute) {
             if (duringMixedMode) {
-                InternalAttribute internal = new InternalAttribute(charset);
+                InternalAttribute internal = new InternalAttribute(charset, allocator);
                 internal.addValue("\r\n--" + multipartMixedBoundary + "--");
                 multipartHttpDatas.add(internal);
                 multipartMixedBoundary = null;
                 currentFileUpload = null;
                 duringMixedMode = false;
             }
-            InternalAttribute internal = new InternalAttribute(charset);
+            InternalAttribute internal = new InternalAttribute(charset, allocator);
             if (!multipartHttpDatas.isEmpty()) {
                 // previously a data field so CRLF
                 internal.addValue("\r\n");
@@ -545,7 +547,7 @@ public class HttpPostRequestEncoder implements ChunkedInput<HttpContent<?>> {
             globalBodySize += attribute.length() + internal.size();
         } else if (data instanceof FileUpload) {
             FileUpload fileUpload = (FileUpload) data;
-            InternalAttribute internal = new InternalAttribute(charset);
+            InternalAttribute internal = new InternalAttribute(charset, allocator);
             if (!multipartHttpDatas.isEmpty()) {
                 // previously a data field so CRLF
                 internal.addValue("\r\n");
@@ -567,7 +569,7 @@ public class HttpPostRequestEncoder implements ChunkedInput<HttpContent<?>> {
                     multipartMixedBoundary = null;
                     // start a new one (could be replaced if mixed start again
                     // from here
-                    internal = new InternalAttribute(charset);
+                    internal = new InternalAttribute(charset, allocator);
                     internal.addValue("\r\n");
                     localMixed = false;
                     // new currentFileUpload and no more in Mixed mode
@@ -740,7 +742,7 @@ public class HttpPostRequestEncoder implements ChunkedInput<HttpContent<?>> {
         // Finalize the multipartHttpDatas
         if (!headerFinalized) {
             if (isMultipart) {
-                InternalAttribute internal = new InternalAttribute(charset);
+                InternalAttribute internal = new InternalAttribute(charset, allocator);
                 if (duringMixedMode) {
                     internal.addValue("\r\n--" + multipartMixedBoundary + "--");
                 }
@@ -849,10 +851,27 @@ public class HttpPostRequestEncoder implements ChunkedInput<HttpContent<?>> {
      * The current InterfaceHttpData to encode (used if more chunks are available)
      */
     private InterfaceHttpData currentData;
+    /**
+     * The position in currentData of the next bytes to encode
+     */
+    private long currentDataPosition;
+    /**
+     * The allocator of the buffers of the encoded body, the one of the factory until another one is given to
+     * {@link #readChunk(BufferAllocator)}
+     */
+    private BufferAllocator allocator;
     /**
      * If not multipart, does the currentBuffer stands for the Key or for the Value
      */
     private boolean isKey = true;
+    /**
+     * Send the disk based FileUploads as FileRegions (see {@link #readMessage(BufferAllocator)})
+     */
+    private boolean fileRegionMode;
+    /**
+     * The FileRegion to send once the preceding boundary and headers are sent
+     */
+    private FileRegion pendingRegion;
 
     /**
      *
@@ -888,13 +907,33 @@ public class HttpPostRequestEncoder implements ChunkedInput<HttpContent<?>> {
         if (currentData instanceof InternalAttribute) {
             buffer = ((InternalAttribute) currentData).toBuffer();
             currentData = null;
+        } else if (fileRegionMode && currentDataPosition == 0 && currentData instanceof FileUpload &&
+                !((FileUpload) currentData).isInMemory()) {
+            FileUpload fileUpload = (FileUpload) currentData;
+            currentData = null;
+            if (fileUpload.length() == 0) {
+                return null;
+            }
+            try {
+                pendingRegion = new DefaultFileRegion(fileUpload.getFile(), 0, fileUpload.length());
+            } catch (IOException e) {
+                throw new ErrorDataEncoderException(e);
+            }
+            // Send what precedes the file content first, if any
+            if (currentBuffer == null) {
+                return null;
+            }
+            buffer = currentBuffer;
+            currentBuffer = null;
+            return new DefaultHttpContent(buffer);
         } else {
             try {
-                buffer = ((HttpData) currentData).getChunk(sizeleft);
+                buffer = ((HttpData) currentData).readChunk(currentDataPosition, sizeleft, allocator);
             } catch (IOException e) {
                 throw new ErrorDataEncoderException(e);
             }
-            if (buffer.capacity() == 0) {
+            currentDataPosition += buffer.readableBytes();
+            if (buffer.readableBytes() == 0) {
                 // end for current InterfaceHttpData, need more data
                 buffer.close();
                 currentData = null;
@@ -904,7 +943,7 @@ public class HttpPostRequestEncoder implements ChunkedInput<HttpContent<?>> {
         if (currentBuffer == null) {
             currentBuffer = buffer;
         } else {
-            currentBuffer = DefaultBufferAllocators.onHeapAllocator().compose(Arrays.asList(currentBuffer.send(), buffer.send()));
+            currentBuffer = allocator.compose(Arrays.asList(currentBuffer.send(), buffer.send()));
         }
         if (currentBuffer.readableBytes() < HttpPostBodyUtil.chunkSize) {
             currentData = null;
@@ -934,13 +973,13 @@ public class HttpPostRequestEncoder implements ChunkedInput<HttpContent<?>> {
         // Set name=
         if (isKey) {
             String key = currentData.getName();
-            buffer = Helpers.copiedBuffer(key, charset);
+            buffer = Helpers.copiedBuffer(allocator, key, charset);
             isKey = false;
-            Buffer equal = Helpers.copiedBuffer("=", charset);
+            Buffer equal = Helpers.copiedBuffer(allocator, "=", charset);
             if (currentBuffer == null) {
-                currentBuffer = DefaultBufferAllocators.onHeapAllocator().compose(Arrays.asList(buffer.send(), equal.send()));
+                currentBuffer = allocator.compose(Arrays.asList(buffer.send(), equal.send()));
             } else {
-                currentBuffer = DefaultBufferAllocators.onHeapAllocator().compose(Arrays.asList(currentBuffer.send(), buffer.send(), equal.send()));
+                currentBuffer = allocator.compose(Arrays.asList(currentBuffer.send(), buffer.send(), equal.send()));
             }
             // continue
             size -= buffer.readableBytes() + 1;
@@ -952,20 +991,21 @@ public class HttpPostRequestEncoder implements ChunkedInput<HttpContent<?>> {
 
         // Put value into buffer
         try {
-            buffer = ((HttpData) currentData).getChunk(size);
+            buffer = ((HttpData) currentData).readChunk(currentDataPosition, size, allocator);
         } catch (IOException e) {
             throw new ErrorDataEncoderException(e);
         }
+        currentDataPosition += buffer.readableBytes();
 
         // Figure out delimiter
         Buffer delimiter = null;
         if (buffer.readableBytes() < size) {
             isKey = true;
-            delimiter = iterator.hasNext() ? Helpers.copiedBuffer("&", charset) : null;
+            delimiter = iterator.hasNext() ? Helpers.copiedBuffer(allocator, "&", charset) : null;
         }
 
         // End for current InterfaceHttpData, need potentially more data
-        if (buffer.capacity() == 0) {
+        if (buffer.readableBytes() == 0) {
             buffer.close();
             currentData = null;
             if (currentBuffer == null) {
@@ -976,7 +1016,7 @@ public class HttpPostRequestEncoder implements ChunkedInput<HttpContent<?>> {
                 }
             } else {
                 if (delimiter != null) {
-                    currentBuffer = DefaultBufferAllocators.onHeapAllocator().compose(Arrays.asList(currentBuffer.send(), delimiter.send()));
+                    currentBuffer = allocator.compose(Arrays.asList(currentBuffer.send(), delimiter.send()));
                 }
             }
             if (currentBuffer.readableBytes() >= HttpPostBodyUtil.chunkSize) {
@@ -989,15 +1029,15 @@ public class HttpPostRequestEncoder implements ChunkedInput<HttpContent<?>> {
         // Put it all together: name=value&
         if (currentBuffer == null) {
             if (delimiter != null) {
-                currentBuffer = DefaultBufferAllocators.onHeapAllocator().compose(Arrays.asList(buffer.send(), delimiter.send()));
+                currentBuffer = allocator.compose(Arrays.asList(buffer.send(), delimiter.send()));
             } else {
                 currentBuffer = buffer;
             }
         } else {
             if (delimiter != null) {
-                currentBuffer = DefaultBufferAllocators.onHeapAllocator().compose(Arrays.asList(currentBuffer.send(), buffer.send(), delimiter.send()));
+                currentBuffer = allocator.compose(Arrays.asList(currentBuffer.send(), buffer.send(), delimiter.send()));
             } else {
-                currentBuffer = DefaultBufferAllocators.onHeapAllocator().compose(Arrays.asList(currentBuffer.send(), buffer.send()));
+                currentBuffer = allocator.compose(Arrays.asList(currentBuffer.send(), buffer.send()));
             }
         }
 
@@ -1016,6 +1056,10 @@ public class HttpPostRequestEncoder implements ChunkedInput<HttpContent<?>> {
     public void close() throws Exception {
         // NO since the user can want to reuse (broadcast for instance)
         // cleanFiles();
+        if (pendingRegion != null) {
+            pendingRegion.release();
+            pendingRegion = null;
+        }
     }
 
     /**
@@ -1028,18 +1072,83 @@ public class HttpPostRequestEncoder implements ChunkedInput<HttpContent<?>> {
      */
     @Override
     public HttpContent<?> readChunk(BufferAllocator allocator) throws Exception {
+        if (fileRegionMode) {
+            throw new IllegalStateException("FileRegion mode is enabled, use readMessage(BufferAllocator)");
+        }
         if (isLastChunkSent) {
             return null;
         } else {
+            if (allocator != null) {
+                this.allocator = allocator;
+            }
             HttpContent<?> nextChunk = nextChunk();
             globalProgress += nextChunk.payload().readableBytes();
             return nextChunk;
         }
     }
 
+    /**
+     * Returns the next message of the body when the FileRegion mode is enabled (see {@link #setFileRegionMode(boolean)}):
+     * either an {@link HttpContent} holding boundaries, headers and in memory data, or a {@link FileRegion} covering
+     * the whole content of a disk based {@link FileUpload}. The messages must be written in order, after the request
+     * returned by {@link #finalizeRequest()}, until {@link #isEndOfInput()} returns true.
+     *
+     * @param allocator the allocator of the buffers read from the in memory data, or null to keep the current one
+     * @return the next message, or null if the whole body was already read
+     * @throws ErrorDataEncoderException
+     *             if the encoding is in error
+     */
+    public Object readMessage(BufferAllocator allocator) throws ErrorDataEncoderException {
+        if (!fileRegionMode) {
+            throw new IllegalStateException("FileRegion mode is not enabled, use readChunk(BufferAllocator)");
+        }
+        if (pendingRegion == null) {
+            if (isLastChunkSent) {
+                return null;
+            }
+            if (allocator != null) {
+                this.allocator = allocator;
+            }
+            HttpContent<?> nextChunk = nextChunk();
+            if (nextChunk != null) {
+                globalProgress += nextChunk.payload().readableBytes();
+                return nextChunk;
+            }
+        }
+        // Nothing was buffered in front of the file content
+        FileRegion region = pendingRegion;
+        pendingRegion = null;
+        globalProgress += region.count();
+        return region;
+    }
+
+    /**
+     * Sends the content of the disk based {@link FileUpload}s as {@link FileRegion}s, which are transferred
+     * without copying the data to user space if the transport supports it. Only the boundaries, the headers and the
+     * in memory data go through buffers. The body must then be read with {@link #readMessage(BufferAllocator)}
+     * instead of {@link #readChunk(BufferAllocator)}, so the encoder cannot be written through a
+     * {@code ChunkedWriteHandler} in this mode.
+     *
+     * @param fileRegionMode True to send the disk based FileUploads as FileRegions
+     */
+    public void setFileRegionMode(boolean fileRegionMode) {
+        if (iterator != null) {
+            throw new IllegalStateException("Request already finalized");
+        }
+        this.fileRegionMode = fileRegionMode;
+    }
+
+    /**
+     * @return True if the disk based FileUploads are sent as FileRegions
+     */
+    public boolean isFileRegionMode() {
+        return fileRegionMode;
+    }
+
     /**
      * Returns the next available HttpChunk. The caller is responsible to test if this chunk is the last one (isLast()),
      * in order to stop calling this getMethod.
+     * In FileRegion mode, null is returned when a FileRegion is pending and nothing precedes it.
      *
      * @return the next available HttpChunk
      * @throws ErrorDataEncoderException
@@ -1048,7 +1157,7 @@ public class HttpPostRequestEncoder implements ChunkedInput<HttpContent<?>> {
     private HttpContent<?> nextChunk() throws ErrorDataEncoderException {
         if (isLastChunk) {
             isLastChunkSent = true;
-            return new EmptyLastHttpContent(DefaultBufferAllocators.onHeapAllocator());
+            return new EmptyLastHttpContent(allocator);
         }
         // first test if previous buffer is not empty
         int size = calculateRemainingSize();
@@ -1066,7 +1175,7 @@ public class HttpPostRequestEncoder implements ChunkedInput<HttpContent<?>> {
             } else {
                 chunk = encodeNextChunkUrlEncoded(size);
             }
-            if (chunk != null) {
+            if (chunk != null || pendingRegion != null) {
                 // NextChunk from data
                 return chunk;
             }
@@ -1077,13 +1186,14 @@ public class HttpPostRequestEncoder implements ChunkedInput<HttpContent<?>> {
         }
         while (size > 0 && iterator.hasNext()) {
             currentData = iterator.next();
+            currentDataPosition = 0;
             HttpContent<?> chunk;
             if (isMultipart) {
                 chunk = encodeNextChunkMultipart(size);
             } else {
                 chunk = encodeNextChunkUrlEncoded(size);
             }
-            if (chunk == null) {
+            if (chunk == null && pendingRegion == null) {
                 // not enough
                 size = calculateRemainingSize();
                 continue;
@@ -1108,7 +1218,7 @@ public class HttpPostRequestEncoder implements ChunkedInput<HttpContent<?>> {
         if (currentBuffer == null) {
             isLastChunkSent = true;
             // LastChunk with no more data
-            return new EmptyLastHttpContent(DefaultBufferAllocators.onHeapAllocator());
+            return new EmptyLastHttpContent(allocator);
         }
         // NextChunk as last non empty from buffer
         Buffer buffer = currentBuffer;
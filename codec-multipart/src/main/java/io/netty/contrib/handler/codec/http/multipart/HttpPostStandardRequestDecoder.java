@@ -20,7 +20,6 @@ import io.netty.contrib.handler.codec.http.multipart.HttpPostRequestDecoder.Erro
 import io.netty.contrib.handler.codec.http.multipart.HttpPostRequestDecoder.MultiPartStatus;
 import io.netty.contrib.handler.codec.http.multipart.HttpPostRequestDecoder.NotEnoughDataDecoderException;
 import io.netty5.buffer.Buffer;
-import io.netty5.buffer.ByteCursor;
 import io.netty5.buffer.DefaultBufferAllocators;
 import io.netty5.handler.codec.http.HttpConstants;
 import io.netty5.handler.codec.http.HttpContent;
@@ -29,14 +28,11 @@ import io.netty5.handler.codec.http.LastHttpContent;
 import io.netty5.handler.codec.http.QueryStringDecoder;
 import io.netty5.util.ByteProcessor;
 import io.netty5.util.internal.PlatformDependent;
-import io.netty5.util.internal.StringUtil;
 
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
 
 import static io.netty5.util.internal.ObjectUtil.checkNotNullWithIAE;
 import static io.netty5.util.internal.ObjectUtil.checkPositiveOrZero;
@@ -49,6 +45,17 @@ import static io.netty5.util.internal.ObjectUtil.checkPositiveOrZero;
  */
 public class HttpPostStandardRequestDecoder implements InterfaceHttpPostRequestDecoder {
 
+    /**
+     * Stops on the end of a key
+     */
+    private static final ByteProcessor FIND_KEY_END = value -> value != '=' && value != '&';
+
+    /**
+     * Stops on the end of a value
+     */
+    private static final ByteProcessor FIND_VALUE_END =
+            value -> value != '&' && value != HttpConstants.CR && value != HttpConstants.LF;
+
     /**
      * Factory used to create InterfaceHttpData
      */
@@ -75,10 +82,9 @@ public class HttpPostStandardRequestDecoder implements InterfaceHttpPostRequestD
     private final List<InterfaceHttpData> bodyListHttpData = new ArrayList<InterfaceHttpData>();
 
     /**
-     * HttpDatas as Map from Body
+     * HttpDatas by name from Body, built on the first lookup
      */
-    private final Map<String, List<InterfaceHttpData>> bodyMapHttpData = new TreeMap<String, List<InterfaceHttpData>>(
-            CaseIgnoringComparator.INSTANCE);
+    private final HttpDataIndex bodyHttpDataIndex = new HttpDataIndex(bodyListHttpData);
 
     /**
      * The current channelBuffer
@@ -104,6 +110,10 @@ public class HttpPostStandardRequestDecoder implements InterfaceHttpPostRequestD
 
     private int discardThreshold = HttpPostRequestDecoder.DEFAULT_DISCARD_THRESHOLD;
 
+    private boolean releaseOnConsume;
+
+    private boolean lazyDecoding;
+
     /**
      *
      * @param request
@@ -202,6 +212,33 @@ public class HttpPostStandardRequestDecoder implements InterfaceHttpPostRequestD
         return discardThreshold;
     }
 
+    @Override
+    public void setReleaseOnConsume(boolean releaseOnConsume) {
+        this.releaseOnConsume = releaseOnConsume;
+    }
+
+    @Override
+    public boolean isReleaseOnConsume() {
+        return releaseOnConsume;
+    }
+
+    /**
+     * Set whether the values of the attributes kept in memory are url decoded lazily, on their first access,
+     * rather than as soon as they are received. This saves the decoding of the values which are never read.
+     * An invalid value is then reported by the access to the attribute, instead of by {@link #offer(HttpContent)}.
+     * Values stored on disk are always decoded when received.
+     */
+    public void setLazyDecoding(boolean lazyDecoding) {
+        this.lazyDecoding = lazyDecoding;
+    }
+
+    /**
+     * Return whether the values of the attributes kept in memory are url decoded lazily.
+     */
+    public boolean isLazyDecoding() {
+        return lazyDecoding;
+    }
+
     /**
      * This getMethod returns a List of all HttpDatas from body.<br>
      *
@@ -219,6 +256,7 @@ public class HttpPostStandardRequestDecoder implements InterfaceHttpPostRequestD
         if (!isLastChunk) {
             throw new NotEnoughDataDecoderException();
         }
+        bodyListHttpDataRank = bodyHttpDataIndex.compact(bodyListHttpDataRank);
         return bodyListHttpData;
     }
 
@@ -240,7 +278,7 @@ public class HttpPostStandardRequestDecoder implements InterfaceHttpPostRequestD
         if (!isLastChunk) {
             throw new NotEnoughDataDecoderException();
         }
-        return bodyMapHttpData.get(name);
+        return bodyHttpDataIndex.get(name);
     }
 
     /**
@@ -262,7 +300,7 @@ public class HttpPostStandardRequestDecoder implements InterfaceHttpPostRequestD
         if (!isLastChunk) {
             throw new NotEnoughDataDecoderException();
         }
-        List<InterfaceHttpData> list = bodyMapHttpData.get(name);
+        List<InterfaceHttpData> list = bodyHttpDataIndex.get(name);
         if (list != null) {
             return list.get(0);
         }
@@ -347,6 +385,15 @@ public class HttpPostStandardRequestDecoder implements InterfaceHttpPostRequestD
         checkDestroyed();
 
         if (hasNext()) {
+            if (releaseOnConsume) {
+                // The ownership moves to the caller
+                InterfaceHttpData data = bodyHttpDataIndex.take(bodyListHttpDataRank++);
+                if (bodyHttpDataIndex.isSparse()) {
+                    bodyListHttpDataRank = bodyHttpDataIndex.compact(bodyListHttpDataRank);
+                }
+                factory.removeHttpDataFromClean(request, data);
+                return data;
+            }
             return bodyListHttpData.get(bodyListHttpDataRank++);
         }
         return null;
@@ -381,12 +428,6 @@ public class HttpPostStandardRequestDecoder implements InterfaceHttpPostRequestD
         if (data == null) {
             return;
         }
-        List<InterfaceHttpData> datas = bodyMapHttpData.get(data.getName());
-        if (datas == null) {
-            datas = new ArrayList<InterfaceHttpData>(1);
-            bodyMapHttpData.put(data.getName(), datas);
-        }
-        datas.add(data);
         bodyListHttpData.add(data);
     }
 
@@ -400,113 +441,99 @@ public class HttpPostStandardRequestDecoder implements InterfaceHttpPostRequestD
      */
     private void parseBodyAttributesStandard() {
         int firstpos = undecodedChunk.readerOffset();
-        int currentpos = firstpos;
-        int equalpos;
-        int ampersandpos;
+        // end of the bytes of the current value which can be added to the attribute
+        int valueEnd = -1;
         if (currentStatus == MultiPartStatus.NOTSTARTED) {
             currentStatus = MultiPartStatus.DISPOSITION;
         }
-        boolean contRead = true;
         try {
-            while (undecodedChunk.readableBytes() > 0 && contRead) {
-                char read = (char) undecodedChunk.readUnsignedByte();
-                currentpos++;
+            loop:
+            while (undecodedChunk.readableBytes() > 0) {
+                firstpos = undecodedChunk.readerOffset();
+                int writerOffset = undecodedChunk.writerOffset();
                 switch (currentStatus) {
-                case DISPOSITION:// search '='
-                    if (read == '=') {
+                case DISPOSITION: { // search '=' or '&'
+                    int delimiterpos = HttpPostBodyUtil.indexOf(undecodedChunk, firstpos, writerOffset, FIND_KEY_END);
+                    if (delimiterpos == -1) {
+                        break loop;
+                    }
+                    String key = decodeAttribute(
+                            Helpers.toString(undecodedChunk, firstpos, delimiterpos - firstpos, charset), charset);
+                    if (undecodedChunk.getByte(delimiterpos) == '=') {
                         currentStatus = MultiPartStatus.FIELD;
-                        equalpos = currentpos - 1;
-                        String key = decodeAttribute(Helpers.toString(undecodedChunk, firstpos, equalpos - firstpos, charset), charset);
                         currentAttribute = factory.createAttribute(request, key);
-                        firstpos = currentpos;
-                    } else if (read == '&') { // special empty FIELD
-                        currentStatus = MultiPartStatus.DISPOSITION;
-                        ampersandpos = currentpos - 1;
-                        String key = decodeAttribute(
-                                Helpers.toString(undecodedChunk, firstpos, ampersandpos - firstpos, charset), charset);
-
+                    } else if (!key.isEmpty()) { // special empty FIELD
                         // Some weird request bodies start with an '&' character, eg: &name=J&age=17.
                         // In that case, key would be "", will get exception:
                         // java.lang.IllegalArgumentException: Param 'name' must not be empty;
                         // Just check and skip empty key.
-                        if (!key.isEmpty()) {
-                            currentAttribute = factory.createAttribute(request, key);
-                            currentAttribute.setValue(""); // empty
-                            addHttpData(currentAttribute);
-                        }
-
+                        currentAttribute = factory.createAttribute(request, key);
+                        currentAttribute.setValue(""); // empty
+                        addHttpData(currentAttribute);
                         currentAttribute = null;
-                        firstpos = currentpos;
-                        contRead = true;
                     }
+                    undecodedChunk.readerOffset(delimiterpos + 1);
                     break;
-                case FIELD:// search '&' or end of line
-                    if (read == '&') {
-                        currentStatus = MultiPartStatus.DISPOSITION;
-                        ampersandpos = currentpos - 1;
-                        undecodedChunk.readerOffset(firstpos);
-                        setFinalBuffer(undecodedChunk.readSplit(ampersandpos - firstpos));
-                        undecodedChunk.skipReadableBytes(1); // skip ampersand
-                        currentpos = 1;
-                        firstpos = currentpos;
-                        contRead = true;
-                    } else if (read == HttpConstants.CR) {
-                        if (undecodedChunk.readableBytes() > 0) {
-                            read = (char) undecodedChunk.readUnsignedByte();
-                            currentpos++;
-                            if (read == HttpConstants.LF) {
-                                currentStatus = MultiPartStatus.PREEPILOGUE;
-                                ampersandpos = currentpos - 2;
-                                undecodedChunk.readerOffset(firstpos);
-                                setFinalBuffer(undecodedChunk.readSplit(ampersandpos - firstpos));
-                                undecodedChunk.skipReadableBytes(2); // skip CRLF
-                                currentpos = 2;
-                                firstpos = currentpos;
-                                contRead = false;
-                            } else {
-                                // Error
-                                throw new ErrorDataDecoderException("Bad end of line");
-                            }
-                        } else {
-                            currentpos--;
+                }
+                case FIELD: { // search '&' or end of line
+                    int delimiterpos = HttpPostBodyUtil.indexOf(undecodedChunk, firstpos, writerOffset, FIND_VALUE_END);
+                    if (delimiterpos == -1) {
+                        valueEnd = writerOffset;
+                        break loop;
+                    }
+                    byte delimiter = undecodedChunk.getByte(delimiterpos);
+                    int delimiterLength = 1;
+                    if (delimiter == HttpConstants.CR) {
+                        if (delimiterpos + 1 == writerOffset) {
+                            // Wait for the next byte, the CR is not part of the value
+                            valueEnd = delimiterpos;
+                            break loop;
+                        }
+                        if (undecodedChunk.getByte(delimiterpos + 1) != HttpConstants.LF) {
+                            // Error
+                            throw new ErrorDataDecoderException("Bad end of line");
                         }
-                    } else if (read == HttpConstants.LF) {
-                        currentStatus = MultiPartStatus.PREEPILOGUE;
-                        ampersandpos = currentpos - 1;
-                        undecodedChunk.readerOffset(firstpos);
-                        setFinalBuffer(undecodedChunk.readSplit(ampersandpos - firstpos));
-                        undecodedChunk.skipReadableBytes(1); // skip LF
-                        currentpos = 1;
-                        firstpos = currentpos;
-                        contRead = false;
+                        delimiterLength = 2;
                     }
-                    break;
+                    Buffer value = undecodedChunk.readSplit(delimiterpos - firstpos);
+                    // the offsets of the remaining bytes now start from 0: an error rewinds to them
+                    firstpos = undecodedChunk.readerOffset();
+                    setFinalBuffer(value);
+                    undecodedChunk.skipReadableBytes(delimiterLength); // skip ampersand or end of line
+                    if (delimiter == '&') {
+                        currentStatus = MultiPartStatus.DISPOSITION;
+                        break;
+                    }
+                    currentStatus = MultiPartStatus.PREEPILOGUE;
+                    break loop;
+                }
                 default:
                     // just stop
-                    contRead = false;
+                    break loop;
                 }
             }
+            firstpos = undecodedChunk.readerOffset();
             if (isLastChunk && currentAttribute != null) {
                 // special case
-                ampersandpos = currentpos;
-                if (ampersandpos > firstpos) {
-                    undecodedChunk.readerOffset(firstpos);
-                    setFinalBuffer(undecodedChunk.readSplit(ampersandpos - firstpos));
-                    currentpos = 0;
+                if (valueEnd > firstpos) {
+                    Buffer value = undecodedChunk.readSplit(valueEnd - firstpos);
+                    firstpos = undecodedChunk.readerOffset();
+                    setFinalBuffer(value);
                 } else if (!currentAttribute.isCompleted()) {
-                    setFinalBuffer(DefaultBufferAllocators.preferredAllocator().allocate(0));
+                    setFinalBuffer(factory.getAllocator().allocate(0));
                 }
-                firstpos = currentpos;
                 currentStatus = MultiPartStatus.EPILOGUE;
-            } else if (contRead && currentAttribute != null && currentStatus == MultiPartStatus.FIELD) {
-                // reset index except if to continue in case of FIELD getStatus
-                undecodedChunk.readerOffset(firstpos);
-                currentAttribute.addContent(undecodedChunk.readSplit(currentpos - firstpos),
-                                            false);
-                currentpos = 0;
-                firstpos = currentpos;
+            } else if (valueEnd > firstpos && currentAttribute != null && currentStatus == MultiPartStatus.FIELD) {
+                if (!lazyDecoding) {
+                    // An escape sequence not yet complete is decoded with the next chunk
+                    valueEnd = endOfCompleteEscapes(firstpos, valueEnd);
+                }
+                if (valueEnd > firstpos) {
+                    Buffer value = undecodedChunk.readSplit(valueEnd - firstpos);
+                    firstpos = undecodedChunk.readerOffset();
+                    currentAttribute.addContent(lazyDecoding ? value : decodeValue(value), false);
+                }
             }
-            undecodedChunk.readerOffset(firstpos);
         } catch (ErrorDataDecoderException e) {
             // error while decoding
             undecodedChunk.readerOffset(firstpos);
@@ -537,16 +564,85 @@ public class HttpPostStandardRequestDecoder implements InterfaceHttpPostRequestD
         parseBodyAttributesStandard();
     }
 
+    /**
+     * Add the last bytes of the value to the current attribute. The values are decoded chunk by chunk as they are
+     * received, so that they are never read back from the attribute, which may be on disk
+     */
     private void setFinalBuffer(Buffer buffer) throws IOException {
-        currentAttribute.addContent(buffer, true);
+        if (!lazyDecoding) {
+            buffer = decodeValue(buffer);
+        }
+        if (buffer.readableBytes() == 0 && currentAttribute.length() == 0) {
+            // An empty value keeps the kind of memory of the received bytes, as the other values
+            currentAttribute.setContent(buffer);
+        } else {
+            currentAttribute.addContent(buffer, true);
+        }
+        if (lazyDecoding) {
+            MemoryAttribute memoryAttribute = memoryAttribute(currentAttribute);
+            if (memoryAttribute != null) {
+                memoryAttribute.setUrlEncoded(true);
+            } else {
+                decodeStoredValue();
+            }
+        }
+        addHttpData(currentAttribute);
+        currentAttribute = null;
+    }
+
+    /**
+     * Decode a value moved to disk while its decoding was lazy, reading it back once written
+     */
+    private void decodeStoredValue() throws IOException {
+        // A failed write is reported by the read
+        currentAttribute.writeFuture().exceptionally(cause -> null).join();
         currentAttribute.usingBuffer(attrBuffer -> {
-            Buffer decodedBuf = decodeAttribute(attrBuffer, charset);
+            Buffer decodedBuf = HttpPostBodyUtil.decodeUrlEncoded(attrBuffer, charset);
             if (decodedBuf != null) { // override content only when ByteBuf needed decoding
                 currentAttribute.setContent(decodedBuf);
             }
         });
-        addHttpData(currentAttribute);
-        currentAttribute = null;
+    }
+
+    /**
+     * @return the url decoded bytes of the value, the given buffer being closed if it needed decoding
+     */
+    private Buffer decodeValue(Buffer value) {
+        Buffer decoded;
+        try {
+            decoded = HttpPostBodyUtil.decodeUrlEncoded(value, charset);
+        } catch (ErrorDataDecoderException e) {
+            value.close();
+            throw e;
+        }
+        if (decoded == null) {
+            return value;
+        }
+        value.close();
+        return decoded;
+    }
+
+    /**
+     * @return the end of the bytes of the value up to valueEnd, without an escape sequence not yet complete
+     */
+    private int endOfCompleteEscapes(int firstpos, int valueEnd) {
+        for (int i = Math.max(firstpos, valueEnd - 2); i < valueEnd; i++) {
+            if (undecodedChunk.getByte(i) == '%') {
+                return i;
+            }
+        }
+        return valueEnd;
+    }
+
+    /**
+     * @return the attribute if it is a {@link MemoryAttribute}, the wrapped attribute if it is a
+     * {@link MixedAttribute} still in memory, or else null
+     */
+    private static MemoryAttribute memoryAttribute(Attribute attribute) {
+        if (attribute instanceof MixedAttribute) {
+            attribute = ((MixedAttribute) attribute).wrapped;
+        }
+        return attribute instanceof MemoryAttribute ? (MemoryAttribute) attribute : null;
     }
 
     /**
@@ -562,31 +658,6 @@ public class HttpPostStandardRequestDecoder implements InterfaceHttpPostRequestD
         }
     }
 
-    private static Buffer decodeAttribute(Buffer b, Charset charset) {
-        ByteCursor cursor = b.openCursor();
-        int firstEscaped = cursor.process(new UrlEncodedDetector());
-        if (firstEscaped == -1) {
-            return null; // nothing to decode
-        }
-
-        cursor = b.openCursor();
-        Buffer buf = b.isDirect() ? DefaultBufferAllocators.offHeapAllocator().allocate(b.readableBytes()) :
-                DefaultBufferAllocators.onHeapAllocator().allocate(b.readableBytes());
-        UrlDecoder urlDecode = new UrlDecoder(buf);
-        int idx = cursor.process(urlDecode);
-        if (urlDecode.nextEscapedIdx != 0) { // incomplete hex byte
-            if (idx == -1) {
-                idx = b.readableBytes() - 1;
-            }
-            idx -= urlDecode.nextEscapedIdx - 1;
-            buf.close();
-            throw new ErrorDataDecoderException(
-                String.format("Invalid hex byte at index '%d' in string: '%s'", idx, b.toString(charset)));
-        }
-
-        return buf;
-    }
-
     /**
      * Destroy the {@link HttpPostStandardRequestDecoder} and release all it resources. After this method
      * was called it is not possible to operate on it anymore.
@@ -597,8 +668,8 @@ public class HttpPostStandardRequestDecoder implements InterfaceHttpPostRequestD
         cleanFiles();
         // Clean Memory based data
         for (InterfaceHttpData httpData : bodyListHttpData) {
-            // Might have been already closed by the user
-            if (httpData.isAccessible()) {
+            // Might have been already closed by the user, or taken by next()
+            if (httpData != null && httpData.isAccessible()) {
                 httpData.close();
             }
         }
@@ -632,48 +703,4 @@ public class HttpPostStandardRequestDecoder implements InterfaceHttpPostRequestD
 
         factory.removeHttpDataFromClean(request, data);
     }
-
-    private static final class UrlEncodedDetector implements ByteProcessor {
-        @Override
-        public boolean process(byte value) {
-            return value != '%' && value != '+';
-        }
-    }
-
-    private static final class UrlDecoder implements ByteProcessor {
-
-        private final Buffer output;
-        private int nextEscapedIdx;
-        private byte hiByte;
-
-        UrlDecoder(Buffer output) {
-            this.output = output;
-        }
-
-        @Override
-        public boolean process(byte value) {
-            if (nextEscapedIdx != 0) {
-                if (nextEscapedIdx == 1) {
-                    hiByte = value;
-                    ++nextEscapedIdx;
-                } else {
-                    int hi = StringUtil.decodeHexNibble((char) hiByte);
-                    int lo = StringUtil.decodeHexNibble((char) value);
-                    if (hi == -1 || lo == -1) {
-                        ++nextEscapedIdx;
-                        return false;
-                    }
-                    output.writeByte((byte) ((hi << 4) + lo));
-                    nextEscapedIdx = 0;
-                }
-            } else if (value == '%') {
-                nextEscapedIdx = 1;
-            } else if (value == '+') {
-                output.writeByte((byte) ' ');
-            } else {
-                output.writeByte(value);
-            }
-            return true;
-        }
-    }
 }
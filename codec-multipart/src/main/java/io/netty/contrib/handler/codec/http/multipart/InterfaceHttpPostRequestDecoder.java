@@ -44,6 +44,30 @@ public interface InterfaceHttpPostRequestDecoder {
      */
     int getDiscardThreshold();
 
+    /**
+     * Set whether a data is dropped by the decoder as soon as it is returned by {@link #next()}, so that the memory
+     * used by the decoder does not grow with the number of data of the request. The ownership of a returned data
+     * moves to the caller, which has to close it: it is neither closed by {@link #destroy()} nor by the cleaning
+     * of the {@link HttpDataFactory}. The lists of data returned by {@link #getBodyHttpDatas()} and
+     * {@link #getBodyHttpDatas(String)} then only contain the data not returned yet by {@link #next()}.
+     * <p>
+     * Not supported by default, by the implementations always keeping the data until {@link #destroy()}.
+     *
+     * @throws UnsupportedOperationException if releaseOnConsume is true and this decoder does not support it
+     */
+    default void setReleaseOnConsume(boolean releaseOnConsume) {
+        if (releaseOnConsume) {
+            throw new UnsupportedOperationException("releaseOnConsume");
+        }
+    }
+
+    /**
+     * Return whether a data is dropped by the decoder as soon as it is returned by {@link #next()}, false by default.
+     */
+    default boolean isReleaseOnConsume() {
+        return false;
+    }
+
     /**
      * This getMethod returns a List of all HttpDatas from body.<br>
      *
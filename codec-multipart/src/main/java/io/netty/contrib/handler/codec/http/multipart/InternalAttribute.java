@@ -17,7 +17,7 @@ package io.netty.contrib.handler.codec.http.multipart;
 
 import io.netty5.util.internal.ObjectUtil;
 import io.netty5.buffer.Buffer;
-import io.netty5.buffer.DefaultBufferAllocators;
+import io.netty5.buffer.BufferAllocator;
 import io.netty5.buffer.Drop;
 import io.netty5.buffer.Owned;
 import io.netty5.buffer.internal.ResourceSupport;
@@ -35,6 +35,7 @@ import java.util.stream.Collectors;
 final class InternalAttribute extends ResourceSupport<HttpData, InternalAttribute> implements InterfaceHttpData {
     private List<Buffer> value;
     private final Charset charset;
+    private final BufferAllocator allocator;
     private int size;
 
     private final static Drop<InternalAttribute> drop = new Drop<>() {
@@ -52,9 +53,10 @@ final class InternalAttribute extends ResourceSupport<HttpData, InternalAttribut
         }
     };
 
-    InternalAttribute(Charset charset) {
+    InternalAttribute(Charset charset, BufferAllocator allocator) {
         super(drop);
         this.charset = charset;
+        this.allocator = allocator;
         this.value = new ArrayList<>();
     }
 
@@ -65,21 +67,21 @@ final class InternalAttribute extends ResourceSupport<HttpData, InternalAttribut
 
     public void addValue(String value) {
         ObjectUtil.checkNotNullWithIAE(value, "value");
-        Buffer buf = Helpers.copiedBuffer(value, charset);
+        Buffer buf = Helpers.copiedBuffer(allocator, value, charset);
         this.value.add(buf);
         size += buf.readableBytes();
     }
 
     public void addValue(String value, int rank) {
         ObjectUtil.checkNotNullWithIAE(value, "value");
-        Buffer buf = Helpers.copiedBuffer(value, charset);
+        Buffer buf = Helpers.copiedBuffer(allocator, value, charset);
         this.value.add(rank, buf);
         size += buf.readableBytes();
     }
 
     public void setValue(String value, int rank) {
         ObjectUtil.checkNotNullWithIAE(value, "value");
-        Buffer buf = Helpers.copiedBuffer(value, charset);
+        Buffer buf = Helpers.copiedBuffer(allocator, value, charset);
         Buffer old = this.value.set(rank, buf);
         if (old != null) {
             size -= old.readableBytes();
@@ -136,8 +138,7 @@ final class InternalAttribute extends ResourceSupport<HttpData, InternalAttribut
      * The buffer must be closed by the user.
      */
     public Buffer toBuffer() {
-        return DefaultBufferAllocators.onHeapAllocator()
-                .compose(value.stream().map(Buffer::send).collect(Collectors.toList()));
+        return allocator.compose(value.stream().map(Buffer::send).collect(Collectors.toList()));
     }
 
     @Override
@@ -153,7 +154,7 @@ final class InternalAttribute extends ResourceSupport<HttpData, InternalAttribut
     @Override
     protected Owned<InternalAttribute> prepareSend() {
         return drop -> {
-            InternalAttribute copy = new InternalAttribute(charset);
+            InternalAttribute copy = new InternalAttribute(charset, allocator);
             copy.value = this.value;
             copy.size = this.size;
             this.value = Collections.emptyList(); // immutable list
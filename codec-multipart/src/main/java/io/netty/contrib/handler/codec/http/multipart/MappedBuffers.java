@@ -0,0 +1,141 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.contrib.handler.codec.http.multipart;
+
+import io.netty5.buffer.Buffer;
+import io.netty5.buffer.BufferAllocator;
+import io.netty5.buffer.Drop;
+import io.netty5.buffer.MemoryManager;
+import io.netty5.buffer.bytebuffer.ByteBufferMemoryManager;
+import io.netty5.util.internal.PlatformDependent;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Read-only {@link Buffer} views over regions of a file mapped in memory
+ */
+final class MappedBuffers {
+    /**
+     * Wraps the mapped regions without copying them
+     */
+    private static final MemoryManager MANAGER = new ByteBufferMemoryManager();
+
+    private MappedBuffers() {
+    }
+
+    /**
+     * Map a region of a file. The mapping stays valid once the channel is closed.
+     */
+    static MappedByteBuffer map(FileChannel channel, long position, int length) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+    }
+
+    /**
+     * @param views the open views of the mapped file, counting the new one until it is unmapped
+     * @return a read-only buffer over the mapped region, which is unmapped once the buffer, and the buffers split
+     *         from it, are all closed
+     */
+    static Buffer wrap(MappedByteBuffer mapped, BufferAllocator allocator, FileViews views) {
+        views.open();
+        Buffer buffer = MANAGER.recoverMemory(() -> allocator, mapped, new UnmapDrop(mapped, views));
+        return buffer.writerOffset(mapped.capacity()).makeReadOnly();
+    }
+
+    /**
+     * Release a mapping at once, instead of waiting for the garbage collector. The mapping must not be used
+     * afterwards.
+     */
+    static void unmap(MappedByteBuffer mapped) {
+        PlatformDependent.freeDirectBuffer(mapped);
+    }
+
+    /**
+     * Open views of one mapped file. Truncating a file while a view of it is open makes the reads of the view crash
+     * the JVM, so the release of the file, which may truncate it, is held back until the views are all closed.
+     */
+    static final class FileViews {
+        private int open;
+        private Runnable release;
+
+        synchronized void open() {
+            open++;
+        }
+
+        void close() {
+            Runnable release;
+            synchronized (this) {
+                if (--open > 0 || this.release == null) {
+                    return;
+                }
+                release = this.release;
+                this.release = null;
+            }
+            release.run();
+        }
+
+        /**
+         * Release the file now if no view of it is open, or else once the last one is closed
+         */
+        void release(Runnable release) {
+            synchronized (this) {
+                if (open > 0) {
+                    this.release = release;
+                    return;
+                }
+            }
+            release.run();
+        }
+
+        synchronized boolean isOpen() {
+            return open > 0;
+        }
+    }
+
+    /**
+     * Unmap the region once the last buffer using it is closed
+     */
+    private static final class UnmapDrop implements Drop<Buffer> {
+        private final MappedByteBuffer mapped;
+        private final FileViews views;
+        private final AtomicInteger buffers = new AtomicInteger(1);
+
+        UnmapDrop(MappedByteBuffer mapped, FileViews views) {
+            this.mapped = mapped;
+            this.views = views;
+        }
+
+        @Override
+        public void drop(Buffer buffer) {
+            if (buffers.decrementAndGet() == 0) {
+                unmap(mapped);
+                views.close();
+            }
+        }
+
+        @Override
+        public Drop<Buffer> fork() {
+            buffers.incrementAndGet();
+            return this;
+        }
+
+        @Override
+        public void attach(Buffer buffer) {
+        }
+    }
+}
@@ -15,8 +15,8 @@
  */
 package io.netty.contrib.handler.codec.http.multipart;
 
+import io.netty.contrib.handler.codec.http.multipart.Helpers.ThrowingConsumer;
 import io.netty5.buffer.Buffer;
-import io.netty5.buffer.DefaultBufferAllocators;
 import io.netty5.buffer.Owned;
 import io.netty5.buffer.internal.InternalBufferUtils;
 import io.netty5.channel.ChannelException;
@@ -24,13 +24,19 @@ import io.netty5.handler.codec.http.HttpConstants;
 import io.netty5.util.Send;
 import io.netty5.util.internal.ObjectUtil;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.Charset;
 
 /**
  * Memory implementation of Attributes
  */
 public class MemoryAttribute extends AbstractMemoryHttpData implements Attribute {
+    /**
+     * True when the content is still url encoded, and has to be decoded on its first access
+     */
+    private boolean urlEncoded;
 
     public MemoryAttribute(String name) {
         this(name, HttpConstants.DEFAULT_CHARSET);
@@ -64,16 +70,99 @@ public class MemoryAttribute extends AbstractMemoryHttpData implements Attribute
 
     @Override
     public String getValue() {
+        decodeIfNeeded();
         return byteBuf.toString(getCharset());
     }
 
+    /**
+     * Set whether the content is url encoded, in which case it is decoded on its first access
+     */
+    void setUrlEncoded(boolean urlEncoded) {
+        this.urlEncoded = urlEncoded;
+    }
+
+    /**
+     * Decode the content if it is still url encoded
+     *
+     * @throws HttpPostRequestDecoder.ErrorDataDecoderException if the content is not properly encoded
+     */
+    private void decodeIfNeeded() {
+        if (urlEncoded && byteBuf != null) {
+            Buffer decoded = HttpPostBodyUtil.decodeUrlEncoded(byteBuf, getCharset());
+            urlEncoded = false;
+            if (decoded != null) {
+                setContentInternal(decoded, decoded.readableBytes());
+            }
+        }
+    }
+
+    @Override
+    public void setContent(Buffer buffer) throws IOException {
+        urlEncoded = false;
+        super.setContent(buffer);
+    }
+
+    @Override
+    public void setContent(File file) throws IOException {
+        urlEncoded = false;
+        super.setContent(file);
+    }
+
+    @Override
+    public void setContent(InputStream inputStream) throws IOException {
+        urlEncoded = false;
+        super.setContent(inputStream);
+    }
+
+    @Override
+    public long length() {
+        decodeIfNeeded();
+        return super.length();
+    }
+
+    @Override
+    public byte[] get() {
+        decodeIfNeeded();
+        return super.get();
+    }
+
+    @Override
+    public String getString(Charset encoding) {
+        decodeIfNeeded();
+        return super.getString(encoding);
+    }
+
+    @Override
+    public <E extends Exception> void usingBuffer(ThrowingConsumer<Buffer, E> callback) throws IOException, E {
+        decodeIfNeeded();
+        super.usingBuffer(callback);
+    }
+
+    @Override
+    Buffer takeContent() {
+        decodeIfNeeded();
+        return super.takeContent();
+    }
+
+    @Override
+    public Buffer getChunk(int length) {
+        decodeIfNeeded();
+        return super.getChunk(length);
+    }
+
+    @Override
+    public boolean renameTo(File dest) throws IOException {
+        decodeIfNeeded();
+        return super.renameTo(dest);
+    }
+
     @Override
     public void setValue(String value) throws IOException {
         checkAccessible();
         ObjectUtil.checkNotNullWithIAE(value, "value");
         byte [] bytes = value.getBytes(getCharset());
         checkSize(bytes.length);
-        Buffer buffer = DefaultBufferAllocators.preferredAllocator().copyOf(bytes);
+        Buffer buffer = getAllocator().copyOf(bytes);
         if (definedSize > 0) {
             definedSize = buffer.readableBytes();
         }
@@ -83,6 +172,7 @@ public class MemoryAttribute extends AbstractMemoryHttpData implements Attribute
     @Override
     public void addContent(Buffer buffer, boolean last) throws IOException {
         checkAccessible(buffer);
+        decodeIfNeeded();
         int localsize = buffer.readableBytes();
         try {
             checkSize(size + localsize);
@@ -130,6 +220,7 @@ public class MemoryAttribute extends AbstractMemoryHttpData implements Attribute
 
     @Override
     public Attribute copy() {
+        decodeIfNeeded();
         return replace(byteBuf != null ? byteBuf.copy() : null);
     }
 
@@ -160,6 +251,7 @@ public class MemoryAttribute extends AbstractMemoryHttpData implements Attribute
             attr.setMaxSize(getMaxSize());
             attr.setCompleted(isCompleted());
             attr.definedSize = definedSize;
+            attr.urlEncoded = urlEncoded;
             return attr;
         };
     }
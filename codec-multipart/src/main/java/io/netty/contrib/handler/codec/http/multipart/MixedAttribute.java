@@ -50,7 +50,9 @@ public class MixedAttribute extends AbstractMixedHttpData<Attribute> implements
     public MixedAttribute(String name, long definedSize, long limitSize, Charset charset,
                           String baseDir, boolean deleteOnExit) {
         super(limitSize, baseDir, deleteOnExit,
-                new MemoryAttribute(name, definedSize, charset));
+                definedSize > limitSize ?
+                        new DiskAttribute(name, definedSize, charset, baseDir, deleteOnExit) :
+                        new MemoryAttribute(name, definedSize, charset));
     }
 
     public MixedAttribute(String name, String value, long limitSize) {
@@ -102,6 +104,22 @@ public class MixedAttribute extends AbstractMixedHttpData<Attribute> implements
 
     @Override
     public void setValue(String value) throws IOException {
+        if (value != null && wrapped instanceof MemoryAttribute &&
+            (value.length() > limitSize || !reserveBytes(value.length()))) {
+            // Same as when the value is given at construction
+            Attribute diskAttribute = newDiskData();
+            diskAttribute.setCharset(wrapped.getCharset());
+            try {
+                diskAttribute.setValue(value);
+            } catch (IOException e) {
+                diskAttribute.close();
+                throw e;
+            }
+            wrapped.close();
+            wrapped = diskAttribute;
+            releaseReservedBytes();
+            return;
+        }
         wrapped.setValue(value);
     }
 
@@ -115,9 +133,19 @@ public class MixedAttribute extends AbstractMixedHttpData<Attribute> implements
     @Override
     protected Owned<AbstractMixedHttpData<?>> prepareSend() {
         Send<HttpData> send = wrapped.send();
+        HttpDataMemoryBudget budget = memoryBudget;
+        long reserved = reservedBytes;
+        // The reserved bytes now belong to the received data
+        reservedBytes = 0;
         return drop -> {
             Attribute receivedAttr = (Attribute) send.receive();
             MixedAttribute copy = new MixedAttribute(baseDir, deleteOnExit, limitSize, receivedAttr);
+            copy.writeExecutor = writeExecutor;
+            copy.fsyncPolicy = fsyncPolicy;
+            copy.readMode = readMode;
+            copy.tempFileSource = tempFileSource;
+            copy.memoryBudget = budget;
+            copy.reservedBytes = reserved;
             return copy;
         };
     }
@@ -88,9 +88,20 @@ public class MixedFileUpload extends AbstractMixedHttpData<FileUpload> implement
     @Override
     protected Owned<AbstractMixedHttpData<?>> prepareSend() {
         Send<HttpData> send = wrapped.send();
+        HttpDataMemoryBudget budget = memoryBudget;
+        long reserved = reservedBytes;
+        // The reserved bytes now belong to the received data
+        reservedBytes = 0;
         return drop -> {
             FileUpload received = (FileUpload) send.receive();
-            return new MixedFileUpload(limitSize, baseDir, deleteOnExit, received);
+            MixedFileUpload copy = new MixedFileUpload(limitSize, baseDir, deleteOnExit, received);
+            copy.writeExecutor = writeExecutor;
+            copy.fsyncPolicy = fsyncPolicy;
+            copy.readMode = readMode;
+            copy.tempFileSource = tempFileSource;
+            copy.memoryBudget = budget;
+            copy.reservedBytes = reserved;
+            return copy;
         };
     }
 }
@@ -0,0 +1,347 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.contrib.handler.codec.http.multipart;
+
+import io.netty5.buffer.Buffer;
+import io.netty5.handler.codec.http.HttpConstants;
+import io.netty5.util.AsciiString;
+import io.netty5.util.internal.StringUtil;
+
+import java.nio.charset.Charset;
+
+/**
+ * Parser of one header line of a part, working on the bytes of the undecoded buffer.
+ * <p>
+ * The line is split into its name and the values separated by ';' (quotes aware) or ',' the same way
+ * as the historical String based parser did, but only as offsets in the buffer: header names and values are
+ * matched as ASCII bytes, and Strings are only created for the values which are kept. One instance is reused
+ * by a decoder for all the header lines of the request.
+ */
+final class PartHeaderParser {
+    private final Charset charset;
+    private Buffer buffer;
+    private int nameStart;
+    private int nameEnd;
+    private int valuesEnd;
+    private boolean semicolonSeparated;
+    private int position;
+    private int valueStart;
+    private int valueEnd;
+
+    /**
+     * @param charset the charset used to decode the kept values
+     */
+    PartHeaderParser(Charset charset) {
+        this.charset = charset;
+    }
+
+    /**
+     * Read one header line up to the CRLF or LF, and position the parser before its first value
+     *
+     * @param buffer the buffer to read the line from, whose readerOffset is moved after the line break
+     * @return false if the line break was not found, in which case the buffer is untouched
+     */
+    boolean readLine(Buffer buffer) {
+        int start = buffer.readerOffset();
+        if (buffer.readableBytes() == 0) {
+            return false;
+        }
+        int posLfOrCrLf = HttpPostBodyUtil.findLineBreak(buffer, start);
+        if (posLfOrCrLf <= 0) {
+            return false;
+        }
+        int end = start + posLfOrCrLf;
+        buffer.readerOffset(buffer.getByte(end) == HttpConstants.CR ? end + 2 : end + 1);
+        this.buffer = buffer;
+
+        nameStart = skipWhitespaces(start, end);
+        for (nameEnd = nameStart; nameEnd < end; nameEnd++) {
+            byte b = buffer.getByte(nameEnd);
+            if (b == HttpConstants.COLON || isWhitespace(b)) {
+                break;
+            }
+        }
+        int colonEnd;
+        for (colonEnd = nameEnd; colonEnd < end; colonEnd++) {
+            if (buffer.getByte(colonEnd) == HttpConstants.COLON) {
+                colonEnd++;
+                break;
+            }
+        }
+        position = skipWhitespaces(colonEnd, end);
+        valuesEnd = end;
+        while (valuesEnd > position && isWhitespace(buffer.getByte(valuesEnd - 1))) {
+            valuesEnd--;
+        }
+        semicolonSeparated = indexOf(HttpConstants.SEMICOLON, position, valuesEnd) >= 0;
+        if (!semicolonSeparated) {
+            // Trailing empty values are dropped when the values are separated by ','
+            while (valuesEnd > position && buffer.getByte(valuesEnd - 1) == HttpConstants.COMMA) {
+                valuesEnd--;
+            }
+        }
+        valueStart = valueEnd = position;
+        return true;
+    }
+
+    /**
+     * @return true if the name of the header is the given one, ignoring case
+     */
+    boolean nameEquals(AsciiString name) {
+        return regionEqualsIgnoreCase(nameStart, nameEnd, name);
+    }
+
+    /**
+     * Move to the next value of the header, trimmed. A header without value has one empty value.
+     *
+     * @return false if there is no more value
+     */
+    boolean nextValue() {
+        if (position > valuesEnd) {
+            return false;
+        }
+        int i = position;
+        if (semicolonSeparated) {
+            boolean inQuote = false;
+            boolean escapeNext = false;
+            for (; i < valuesEnd; i++) {
+                byte b = buffer.getByte(i);
+                if (inQuote) {
+                    if (escapeNext) {
+                        escapeNext = false;
+                    } else if (b == '\\') {
+                        escapeNext = true;
+                    } else if (b == HttpConstants.DOUBLE_QUOTE) {
+                        inQuote = false;
+                    }
+                } else if (b == HttpConstants.DOUBLE_QUOTE) {
+                    inQuote = true;
+                } else if (b == HttpConstants.SEMICOLON) {
+                    break;
+                }
+            }
+        } else {
+            i = indexOf(HttpConstants.COMMA, position, valuesEnd);
+            if (i < 0) {
+                i = valuesEnd;
+            }
+        }
+        valueStart = position;
+        valueEnd = i;
+        position = i + 1;
+        while (valueStart < valueEnd && isTrimmed(buffer.getByte(valueStart))) {
+            valueStart++;
+        }
+        while (valueEnd > valueStart && isTrimmed(buffer.getByte(valueEnd - 1))) {
+            valueEnd--;
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the current value is the given one, ignoring case
+     */
+    boolean valueEquals(AsciiString value) {
+        return regionEqualsIgnoreCase(valueStart, valueEnd, value);
+    }
+
+    /**
+     * @return true if the current value starts with the given prefix, ignoring case
+     */
+    boolean valueStartsWith(AsciiString prefix) {
+        return valueEnd - valueStart >= prefix.length() &&
+                regionEqualsIgnoreCase(valueStart, valueStart + prefix.length(), prefix);
+    }
+
+    /**
+     * @return the offset of the first '=' of the current value, or -1 if there is none
+     */
+    int valueEqualsSign() {
+        return indexOf(HttpConstants.EQUALS, valueStart, valueEnd);
+    }
+
+    /**
+     * @return the current value, cleaned (see {@link #cleanString(int, int)})
+     */
+    String cleanValue() {
+        return cleanString(valueStart, valueEnd);
+    }
+
+    /**
+     * @return the current value before the given offset, cleaned (see {@link #cleanString(int, int)})
+     */
+    String cleanValueBefore(int offset) {
+        return cleanString(valueStart, offset);
+    }
+
+    /**
+     * @return the current value before the given offset equals the given name once cleaned
+     */
+    boolean valueBeforeEquals(int offset, AsciiString name, boolean ignoreCase) {
+        int start = valueStart;
+        int end = offset;
+        while (start < end && isCleanedOut(buffer.getByte(start))) {
+            start++;
+        }
+        while (end > start && isCleanedOut(buffer.getByte(end - 1))) {
+            end--;
+        }
+        if (end - start != name.length()) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            byte b = buffer.getByte(i);
+            if (ignoreCase ? !equalsIgnoreCase(b, name.byteAt(i - start)) : b != name.byteAt(i - start)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the current value, as is
+     */
+    String value() {
+        return string(valueStart, valueEnd);
+    }
+
+    /**
+     * @return the current value after the given offset, as is
+     */
+    String valueAfter(int offset) {
+        return string(offset + 1, valueEnd);
+    }
+
+    /**
+     * @return the current value after the given offset, cleaned (see {@link #cleanString(int, int)})
+     */
+    String cleanValueAfter(int offset) {
+        return cleanString(offset + 1, valueEnd);
+    }
+
+    /**
+     * @return the current value after the given offset, without its surrounding quotes if any
+     */
+    String unquotedValueAfter(int offset) {
+        int start = offset + 1;
+        int end = valueEnd;
+        if (end - start > 1 && buffer.getByte(start) == HttpConstants.DOUBLE_QUOTE &&
+                buffer.getByte(end - 1) == HttpConstants.DOUBLE_QUOTE) {
+            start++;
+            end--;
+        }
+        return string(start, end);
+    }
+
+    private String string(int start, int end) {
+        if (start >= end) {
+            return StringUtil.EMPTY_STRING;
+        }
+        byte[] bytes = new byte[end - start];
+        buffer.copyInto(start, bytes, 0, bytes.length);
+        return new String(bytes, charset);
+    }
+
+    /**
+     * Clean the bytes from any unallowed character: ':', ',', '=', ';' and HT become spaces, '"' are removed,
+     * and the result is trimmed
+     *
+     * @return the cleaned String
+     */
+    private String cleanString(int start, int end) {
+        while (start < end && isCleanedOut(buffer.getByte(start))) {
+            start++;
+        }
+        while (end > start && isCleanedOut(buffer.getByte(end - 1))) {
+            end--;
+        }
+        if (start >= end) {
+            return StringUtil.EMPTY_STRING;
+        }
+        byte[] bytes = new byte[end - start];
+        int length = 0;
+        for (int i = start; i < end; i++) {
+            byte b = buffer.getByte(i);
+            switch (b) {
+            case HttpConstants.COLON:
+            case HttpConstants.COMMA:
+            case HttpConstants.EQUALS:
+            case HttpConstants.SEMICOLON:
+            case HttpConstants.HT:
+                bytes[length++] = HttpConstants.SP;
+                break;
+            case HttpConstants.DOUBLE_QUOTE:
+                // nothing added, just removes it
+                break;
+            default:
+                bytes[length++] = b;
+                break;
+            }
+        }
+        return new String(bytes, 0, length, charset);
+    }
+
+    private boolean regionEqualsIgnoreCase(int start, int end, AsciiString expected) {
+        if (end - start != expected.length()) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (!equalsIgnoreCase(buffer.getByte(i), expected.byteAt(i - start))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean equalsIgnoreCase(byte a, byte b) {
+        return a == b || AsciiString.toLowerCase((char) (a & 0xFF)) == AsciiString.toLowerCase((char) (b & 0xFF));
+    }
+
+    private int indexOf(byte value, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (buffer.getByte(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int skipWhitespaces(int start, int end) {
+        while (start < end && isWhitespace(buffer.getByte(start))) {
+            start++;
+        }
+        return start;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b >= 0 && Character.isWhitespace(b);
+    }
+
+    /**
+     * @return true if the byte is removed by {@link String#trim()}
+     */
+    private static boolean isTrimmed(byte b) {
+        return b >= 0 && b <= HttpConstants.SP;
+    }
+
+    /**
+     * @return true if the byte is removed at the start or the end of a cleaned String
+     */
+    private static boolean isCleanedOut(byte b) {
+        return isTrimmed(b) || b == HttpConstants.DOUBLE_QUOTE || b == HttpConstants.COLON ||
+                b == HttpConstants.COMMA || b == HttpConstants.EQUALS || b == HttpConstants.SEMICOLON;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.contrib.handler.codec.http.multipart;
+
+/**
+ * The headers of the part being decoded which are used by the decoder, as plain fields.
+ * <p>
+ * One instance is reused by a decoder for all the parts of the request, and reset between them.
+ * A field is null when the matching header or parameter is absent.
+ */
+final class PartHeaders {
+    /**
+     * The name parameter of the Content-Disposition
+     */
+    String name;
+    /**
+     * The filename (or decoded filename*) parameter of the Content-Disposition
+     */
+    String filename;
+    /**
+     * The Content-Type, without its parameters
+     */
+    String contentType;
+    /**
+     * The charset parameter of the Content-Type
+     */
+    String charset;
+    /**
+     * The Content-Length, not parsed
+     */
+    String contentLength;
+    /**
+     * The Content-Transfer-Encoding
+     */
+    String contentTransferEncoding;
+
+    /**
+     * Reset all the headers, before a new part
+     */
+    void reset() {
+        name = null;
+        resetMixed();
+    }
+
+    /**
+     * Reset the headers specific to one file of a multipart/mixed part. The name is shared by all the files.
+     */
+    void resetMixed() {
+        filename = null;
+        contentType = null;
+        charset = null;
+        contentLength = null;
+        contentTransferEncoding = null;
+    }
+}
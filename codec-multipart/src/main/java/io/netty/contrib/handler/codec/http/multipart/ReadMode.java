@@ -0,0 +1,38 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.contrib.handler.codec.http.multipart;
+
+import io.netty5.buffer.Buffer;
+
+import java.nio.MappedByteBuffer;
+
+/**
+ * How the content of a disk based {@link HttpData} is given by {@link HttpData#usingBuffer}, {@link HttpData#copy()}
+ * and the other methods returning it as a whole {@link Buffer}, and by {@link HttpData#getString()}.
+ */
+public enum ReadMode {
+    /**
+     * Read the file into a new buffer. This is the default.
+     */
+    COPY,
+    /**
+     * Map the file in memory (see {@link MappedByteBuffer}) and give a read-only view of it, so that the content is
+     * read from the page cache without being copied. The mapping is released once the buffer is closed. A view may
+     * outlive its data: the file of a deleted data is only deleted, or given back to its {@link TempFileSource},
+     * once its views are all closed, since reading a truncated mapping would crash the JVM.
+     */
+    MEMORY_MAPPED
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.contrib.handler.codec.http.multipart;
+
+import io.netty5.util.internal.ObjectUtil;
+import io.netty5.util.internal.logging.InternalLogger;
+import io.netty5.util.internal.logging.InternalLoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Temporary files spread over several directories, typically on different volumes, so that the disk writes of the
+ * uploads are shared by all of them.
+ * <p>
+ * Each directory is a {@link TempFilePool}, possibly keeping no idle file at all. The directory of each new file is
+ * chosen by a {@link Placement}. When the chosen directory has not enough usable space for the declared size of the
+ * content, or fails to give a file, the next ones are tried in turn, so that a full or failing volume does not fail
+ * the uploads while another one can take them.
+ */
+public final class StripedTempFileSource implements TempFileSource {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(StripedTempFileSource.class);
+
+    /**
+     * Choice of the directory of a new file
+     */
+    @FunctionalInterface
+    public interface Placement {
+        /**
+         * Use the directories in turn
+         */
+        static Placement roundRobin() {
+            AtomicInteger next = new AtomicInteger();
+            return (stripes, expectedSize) -> Math.floorMod(next.getAndIncrement(), stripes.size());
+        }
+
+        /**
+         * Use the directory with the fewest bytes declared by the data using its files, then with the fewest files
+         * in use
+         */
+        static Placement leastInFlight() {
+            return (stripes, expectedSize) -> {
+                int selected = 0;
+                for (int i = 1; i < stripes.size(); i++) {
+                    Stripe stripe = stripes.get(i);
+                    Stripe best = stripes.get(selected);
+                    if (stripe.leasedBytes() < best.leasedBytes() ||
+                        stripe.leasedBytes() == best.leasedBytes() && stripe.leasedFiles() < best.leasedFiles()) {
+                        selected = i;
+                    }
+                }
+                return selected;
+            };
+        }
+
+        /**
+         * Use the directory with the most usable space
+         */
+        static Placement mostUsableSpace() {
+            return (stripes, expectedSize) -> {
+                int selected = 0;
+                long mostSpace = -1;
+                for (int i = 0; i < stripes.size(); i++) {
+                    long space = stripes.get(i).usableSpace();
+                    if (space > mostSpace) {
+                        mostSpace = space;
+                        selected = i;
+                    }
+                }
+                return selected;
+            };
+        }
+
+        /**
+         * @param stripes the directories
+         * @param expectedSize the declared size of the content of the new file, or 0 if unknown
+         * @return the index of the directory of the new file
+         */
+        int select(List<Stripe> stripes, long expectedSize);
+    }
+
+    /**
+     * One of the directories, with the files of its pool currently in use
+     */
+    public static final class Stripe {
+        private final TempFilePool pool;
+        private final File directory;
+        private final AtomicInteger leasedFiles = new AtomicInteger();
+        private final AtomicLong leasedBytes = new AtomicLong();
+
+        Stripe(TempFilePool pool) {
+            this.pool = pool;
+            directory = new File(pool.getBaseDirectory() != null ?
+                    pool.getBaseDirectory() : System.getProperty("java.io.tmpdir"));
+        }
+
+        /**
+         * @return the pool of the files of this directory
+         */
+        public TempFilePool pool() {
+            return pool;
+        }
+
+        /**
+         * @return the number of files of this directory currently in use
+         */
+        public int leasedFiles() {
+            return leasedFiles.get();
+        }
+
+        /**
+         * @return the sum of the declared sizes of the content of the files of this directory currently in use
+         */
+        public long leasedBytes() {
+            return leasedBytes.get();
+        }
+
+        /**
+         * @return the number of bytes available in this directory
+         */
+        public long usableSpace() {
+            return directory.getUsableSpace();
+        }
+    }
+
+    /**
+     * A file in use, with the stripe it belongs to
+     */
+    private static final class Lease {
+        final Stripe stripe;
+        final long expectedSize;
+
+        Lease(Stripe stripe, long expectedSize) {
+            this.stripe = stripe;
+            this.expectedSize = expectedSize;
+        }
+    }
+
+    private final List<Stripe> stripes;
+    private final Placement placement;
+    private final Map<File, Lease> leases = new ConcurrentHashMap<File, Lease>();
+
+    /**
+     * @param directories the directories of the files, which are not kept once their data is deleted
+     * @param placement the choice of the directory of each new file
+     */
+    public static StripedTempFileSource of(List<String> directories, Placement placement) {
+        List<TempFilePool> pools = new ArrayList<TempFilePool>(directories.size());
+        for (String directory : directories) {
+            pools.add(new TempFilePool(directory, 0));
+        }
+        return new StripedTempFileSource(pools, placement);
+    }
+
+    /**
+     * @param pools the pools of the files of each directory
+     * @param placement the choice of the directory of each new file
+     */
+    public StripedTempFileSource(List<TempFilePool> pools, Placement placement) {
+        ObjectUtil.checkNonEmpty(pools, "pools");
+        List<Stripe> stripes = new ArrayList<Stripe>(pools.size());
+        for (TempFilePool pool : pools) {
+            stripes.add(new Stripe(pool));
+        }
+        this.stripes = Collections.unmodifiableList(stripes);
+        this.placement = ObjectUtil.checkNotNullWithIAE(placement, "placement");
+    }
+
+    /**
+     * @return the directories, in the order given at construction
+     */
+    public List<Stripe> stripes() {
+        return stripes;
+    }
+
+    @Override
+    public File lease(long expectedSize) throws IOException {
+        int size = stripes.size();
+        int selected = Math.floorMod(placement.select(stripes, expectedSize), size);
+        IOException failure = null;
+        for (int i = 0; i < size; i++) {
+            Stripe stripe = stripes.get((selected + i) % size);
+            if (expectedSize > 0 && i < size - 1 && stripe.usableSpace() < expectedSize) {
+                // Full volume: try the next one, unless it is the last chance
+                continue;
+            }
+            File file;
+            try {
+                file = stripe.pool.lease(expectedSize);
+            } catch (IOException e) {
+                logger.warn("Failed to create a temporary file in: {}", stripe.directory, e);
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+                continue;
+            }
+            stripe.leasedFiles.incrementAndGet();
+            stripe.leasedBytes.addAndGet(expectedSize);
+            leases.put(file, new Lease(stripe, expectedSize));
+            return file;
+        }
+        throw failure != null ? failure : new IOException("No usable space for " + expectedSize + " bytes");
+    }
+
+    @Override
+    public void release(File file) {
+        Lease lease = endLease(file);
+        if (lease != null) {
+            lease.stripe.pool.release(file);
+        }
+    }
+
+    @Override
+    public void detach(File file) {
+        Lease lease = endLease(file);
+        if (lease != null) {
+            lease.stripe.pool.detach(file);
+        }
+    }
+
+    /**
+     * @return the lease of the file, no longer counted in its stripe, or null if it was not leased from this source
+     */
+    private Lease endLease(File file) {
+        Lease lease = leases.remove(file);
+        if (lease != null) {
+            lease.stripe.leasedFiles.decrementAndGet();
+            lease.stripe.leasedBytes.addAndGet(-lease.expectedSize);
+        }
+        return lease;
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.contrib.handler.codec.http.multipart;
+
+import io.netty5.util.internal.PlatformDependent;
+import io.netty5.util.internal.logging.InternalLogger;
+import io.netty5.util.internal.logging.InternalLoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.netty5.util.internal.ObjectUtil.checkPositiveOrZero;
+
+/**
+ * Pool of temporary files of one directory, reused by the disk based attributes and file uploads instead of
+ * creating and deleting a file for each of them.
+ * <p>
+ * A disk data using a pool leases its file from the pool when it first needs one, and gives it back when it is
+ * deleted: the file is then truncated and kept for the next data, unless the pool already keeps its maximum number
+ * of idle files. A file renamed by {@link HttpData#renameTo(File)} leaves the pool. Creating and unlinking files
+ * are metadata operations of the file system which are costly at high rates of small uploads, while truncating a
+ * file is not.
+ */
+public final class TempFilePool implements TempFileSource {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(TempFilePool.class);
+
+    private static final String PREFIX = "Pool_";
+    private static final String POSTFIX = ".tmp";
+
+    private final String baseDirectory;
+    private final int maxIdleFiles;
+    private final boolean deleteOnExit;
+    private final Queue<File> idleFiles = new ConcurrentLinkedQueue<File>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+
+    /**
+     * @param baseDirectory the directory of the files, or null for the default temporary directory
+     * @param maxIdleFiles the maximum number of files kept while no data uses them
+     */
+    public TempFilePool(String baseDirectory, int maxIdleFiles) {
+        this(baseDirectory, maxIdleFiles, DiskFileUpload.deleteOnExitTemporaryFile);
+    }
+
+    /**
+     * @param baseDirectory the directory of the files, or null for the default temporary directory
+     * @param maxIdleFiles the maximum number of files kept while no data uses them
+     * @param deleteOnExit true if the files should be deleted with the JVM
+     */
+    public TempFilePool(String baseDirectory, int maxIdleFiles, boolean deleteOnExit) {
+        this.baseDirectory = baseDirectory;
+        this.maxIdleFiles = checkPositiveOrZero(maxIdleFiles, "maxIdleFiles");
+        this.deleteOnExit = deleteOnExit;
+    }
+
+    /**
+     * @return the directory of the files, or null for the default temporary directory
+     */
+    public String getBaseDirectory() {
+        return baseDirectory;
+    }
+
+    /**
+     * @return the number of files currently kept while no data uses them
+     */
+    public int idleFiles() {
+        return idleCount.get();
+    }
+
+    /**
+     * Create files ahead of their use, up to the maximum number of idle files
+     *
+     * @param count the number of files to create
+     */
+    public void createFiles(int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            File file = newFile();
+            if (!offer(file)) {
+                deleteFile(file);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Delete the idle files. The files leased at that time are deleted once given back.
+     */
+    public void clear() {
+        File file;
+        while ((file = idleFiles.poll()) != null) {
+            idleCount.decrementAndGet();
+            deleteFile(file);
+        }
+    }
+
+    /**
+     * @return an idle file, truncated when it was given back, or else a new one
+     */
+    @Override
+    public File lease(long expectedSize) throws IOException {
+        File file = idleFiles.poll();
+        if (file != null) {
+            idleCount.decrementAndGet();
+            return file;
+        }
+        return newFile();
+    }
+
+    /**
+     * Give back a leased file, which is truncated and kept if the pool has room for it, or else deleted
+     */
+    @Override
+    public void release(File file) {
+        if (!file.isFile()) {
+            // Moved or deleted by someone else
+            if (deleteOnExit) {
+                DeleteFileOnExitHook.remove(file.getPath());
+            }
+            return;
+        }
+        if (idleCount.get() >= maxIdleFiles) {
+            deleteFile(file);
+            return;
+        }
+        try (RandomAccessFile accessFile = new RandomAccessFile(file, "rw")) {
+            accessFile.setLength(0);
+        } catch (IOException e) {
+            logger.warn("Failed to truncate: {}", file, e);
+            deleteFile(file);
+            return;
+        }
+        if (!offer(file)) {
+            deleteFile(file);
+        }
+    }
+
+    /**
+     * Forget a leased file which was moved, and which is therefore not deleted with the JVM anymore
+     */
+    @Override
+    public void detach(File file) {
+        if (deleteOnExit) {
+            DeleteFileOnExitHook.remove(file.getPath());
+        }
+    }
+
+    private boolean offer(File file) {
+        if (idleCount.incrementAndGet() > maxIdleFiles) {
+            idleCount.decrementAndGet();
+            return false;
+        }
+        idleFiles.offer(file);
+        return true;
+    }
+
+    private File newFile() throws IOException {
+        File file = PlatformDependent.createTempFile(PREFIX, POSTFIX,
+                baseDirectory == null ? null : new File(baseDirectory));
+        if (deleteOnExit) {
+            DeleteFileOnExitHook.add(file.getPath());
+        }
+        return file;
+    }
+
+    private void deleteFile(File file) {
+        if (!file.delete() && file.exists()) {
+            logger.warn("Failed to delete: {}", file);
+        } else if (deleteOnExit) {
+            DeleteFileOnExitHook.remove(file.getPath());
+        }
+    }
+}
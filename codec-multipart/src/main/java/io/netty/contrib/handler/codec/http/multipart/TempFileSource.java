@@ -0,0 +1,45 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.contrib.handler.codec.http.multipart;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Source of the temporary files of the disk based attributes and file uploads, used instead of creating a file in
+ * their base directory.
+ *
+ * @see TempFilePool
+ * @see StripedTempFileSource
+ */
+public interface TempFileSource {
+    /**
+     * @param expectedSize the declared size of the content to store in the file, or 0 if unknown
+     * @return an empty file, owned by the caller until it is given back with {@link #release(File)}
+     */
+    File lease(long expectedSize) throws IOException;
+
+    /**
+     * Give back a leased file once its data is deleted. The file may have been moved or deleted in the meantime.
+     */
+    void release(File file);
+
+    /**
+     * Forget a leased file which left the source, such as a file moved by {@link HttpData#renameTo(File)}. The file
+     * is neither kept nor deleted.
+     */
+    void detach(File file);
+}
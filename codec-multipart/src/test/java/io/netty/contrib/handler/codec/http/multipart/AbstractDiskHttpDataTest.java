@@ -18,6 +18,8 @@ package io.netty.contrib.handler.codec.http.multipart;
 import io.netty5.util.internal.PlatformDependent;
 import io.netty5.buffer.BufferUtil;
 import io.netty5.buffer.Buffer;
+import io.netty5.buffer.BufferAllocator;
+import io.netty5.buffer.DefaultBufferAllocators;
 import io.netty5.buffer.Owned;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -25,13 +27,17 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.ThreadLocalRandom;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * {@link AbstractDiskHttpData} test cases
@@ -67,6 +73,94 @@ public class AbstractDiskHttpDataTest {
         }
     }
 
+    @Test
+    public void testReadChunk() throws Exception {
+        try (TestHttpData test = new TestHttpData("test", UTF_8, 0)) {
+            byte[] bytes = new byte[4096];
+            ThreadLocalRandom.current().nextBytes(bytes);
+            test.addContent(Helpers.copiedBuffer(bytes), true);
+            BufferAllocator allocator = DefaultBufferAllocators.offHeapAllocator();
+            for (int position = 0; position < bytes.length; position += 1000) {
+                try (Buffer buf = test.readChunk(position, 1000, allocator)) {
+                    int length = Math.min(1000, bytes.length - position);
+                    assertEquals(length, buf.readableBytes());
+                    assertArrayEquals(Arrays.copyOfRange(bytes, position, position + length),
+                                      BufferUtil.getBytes(buf));
+                }
+            }
+            try (Buffer buf = test.readChunk(bytes.length, 1000, allocator)) {
+                assertEquals(0, buf.readableBytes());
+            }
+            // The content is left unchanged
+            assertArrayEquals(bytes, test.get());
+        }
+    }
+
+    @Test
+    public void testMemoryMappedRead() throws Exception {
+        try (TestHttpData test = new TestHttpData("test", UTF_8, 0)) {
+            test.setReadMode(ReadMode.MEMORY_MAPPED);
+            test.addContent(Helpers.copiedBuffer("some mapped content", UTF_8), true);
+            test.usingBuffer(buf -> {
+                assertTrue(buf.readOnly());
+                assertEquals("some mapped content", buf.toString(UTF_8));
+            });
+            assertEquals("some mapped content", test.getString(UTF_8));
+            // The region stays mapped until every part of the view is closed
+            Buffer buf = test.getContent();
+            Buffer first = buf.readSplit(5);
+            buf.close();
+            assertEquals("some ", first.toString(UTF_8));
+            first.close();
+        }
+    }
+
+    @Test
+    public void testMappedViewOutlivesItsData() throws Exception {
+        new File("target/AbstractDiskHttpDataTest").mkdirs();
+        TempFilePool pool = new TempFilePool("target/AbstractDiskHttpDataTest", 1, false);
+        Buffer view;
+        File file;
+        try (TestHttpData test = new TestHttpData("test", UTF_8, 0)) {
+            test.setReadMode(ReadMode.MEMORY_MAPPED);
+            test.setTempFileSource(pool);
+            test.addContent(Helpers.copiedBuffer("some mapped content", UTF_8), true);
+            file = test.getFile();
+            view = test.getContent();
+        }
+        try {
+            // The file is neither truncated nor given back while the view is open
+            assertEquals(0, pool.idleFiles());
+            assertEquals("some mapped content".length(), file.length());
+            assertEquals("some mapped content", view.toString(UTF_8));
+        } finally {
+            view.close();
+        }
+        assertEquals(1, pool.idleFiles());
+        assertEquals(0, file.length());
+        pool.clear();
+    }
+
+    @Test
+    public void testUsingSegments() throws Exception {
+        try (TestHttpData test = new TestHttpData("test", UTF_8, 0)) {
+            byte[] bytes = new byte[4096];
+            ThreadLocalRandom.current().nextBytes(bytes);
+            test.addContent(Helpers.copiedBuffer(bytes), true);
+            List<byte[]> segments = new ArrayList<>();
+            test.usingSegments(1000, buf -> {
+                assertTrue(buf.readOnly());
+                segments.add(BufferUtil.getBytes(buf));
+            });
+            assertEquals(5, segments.size());
+            for (int i = 0; i < segments.size(); i++) {
+                int position = i * 1000;
+                assertArrayEquals(Arrays.copyOfRange(bytes, position, Math.min(position + 1000, bytes.length)),
+                                  segments.get(i));
+            }
+        }
+    }
+
     private static final class TestHttpData extends AbstractDiskHttpData {
 
         private TestHttpData(String name, Charset charset, long size) {
@@ -19,6 +19,9 @@ import io.netty5.util.internal.PlatformDependent;
 import io.netty5.buffer.BufferInputStream;
 import io.netty5.buffer.BufferUtil;
 import io.netty5.buffer.Buffer;
+import io.netty5.buffer.BufferAllocator;
+import io.netty5.buffer.CompositeBuffer;
+import io.netty5.buffer.DefaultBufferAllocators;
 import io.netty5.buffer.Owned;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -29,6 +32,7 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.nio.charset.Charset;
 import java.security.SecureRandom;
+import java.util.Arrays;
 import java.util.Random;
 import java.util.UUID;
 import java.util.concurrent.ThreadLocalRandom;
@@ -147,6 +151,77 @@ public class AbstractMemoryHttpDataTest {
     }
 
     /** Memory-based HTTP data implementation for test purposes. */
+    @Test
+    public void testReadChunk() throws Exception {
+        try (TestHttpData test = new TestHttpData("test", UTF_8, 0)) {
+            byte[] bytes = new byte[4096];
+            ThreadLocalRandom.current().nextBytes(bytes);
+            test.addContent(Helpers.copiedBuffer(bytes), true);
+            BufferAllocator allocator = DefaultBufferAllocators.offHeapAllocator();
+            for (int position = 0; position < bytes.length; position += 1000) {
+                try (Buffer buf = test.readChunk(position, 1000, allocator)) {
+                    int length = Math.min(1000, bytes.length - position);
+                    assertEquals(length, buf.readableBytes());
+                    assertArrayEquals(Arrays.copyOfRange(bytes, position, position + length),
+                                      BufferUtil.getBytes(buf));
+                }
+            }
+            try (Buffer buf = test.readChunk(bytes.length, 1000, allocator)) {
+                assertEquals(0, buf.readableBytes());
+            }
+            // The content is left unchanged
+            assertArrayEquals(bytes, test.get());
+        }
+    }
+
+    @Test
+    public void testSmallChunksAreConsolidated() throws Exception {
+        byte[] bytes = new byte[1024 * 1024];
+        ThreadLocalRandom.current().nextBytes(bytes);
+        for (long definedSize : new long[] { 0, bytes.length }) {
+            try (TestHttpData test = new TestHttpData("test", UTF_8, definedSize)) {
+                for (int position = 0; position < bytes.length; position += 1000) {
+                    int length = Math.min(1000, bytes.length - position);
+                    test.addContent(Helpers.copiedBuffer(Arrays.copyOfRange(bytes, position, position + length)),
+                                    position + length == bytes.length);
+                }
+                assertEquals(bytes.length, test.length());
+                assertArrayEquals(bytes, test.get());
+                test.usingBuffer(buf -> {
+                    // The first chunk, then slabs growing geometrically from SLAB_SIZE
+                    int expectedComponents = 2 + 32 - Integer.numberOfLeadingZeros(
+                            bytes.length / AbstractMemoryHttpData.SLAB_SIZE);
+                    assertTrue(((CompositeBuffer) buf).countComponents() <= expectedComponents);
+                    // The unused room stays within the size of the content
+                    assertTrue(buf.capacity() <= 2L * bytes.length);
+                });
+            }
+        }
+    }
+
+    @Test
+    public void testSlabsDoNotTrustTheDeclaredSize() throws Exception {
+        try (TestHttpData test = new TestHttpData("test", UTF_8, 1024 * 1024)) {
+            test.addContent(Helpers.copiedBuffer(new byte[] { 1, 2, 3 }), false);
+            test.addContent(Helpers.copiedBuffer(new byte[] { 4, 5 }), true);
+            assertArrayEquals(new byte[] { 1, 2, 3, 4, 5 }, test.get());
+            test.usingBuffer(buf -> assertTrue(buf.capacity() <= 3 + AbstractMemoryHttpData.SLAB_SIZE));
+        }
+    }
+
+    @Test
+    public void testLargeChunksAreNotCopied() throws Exception {
+        try (TestHttpData test = new TestHttpData("test", UTF_8, 0)) {
+            byte[] bytes = new byte[AbstractMemoryHttpData.SLAB_COPY_THRESHOLD];
+            ThreadLocalRandom.current().nextBytes(bytes);
+            for (int i = 0; i < 4; i++) {
+                test.addContent(Helpers.copiedBuffer(bytes), i == 3);
+            }
+            assertEquals(4L * bytes.length, test.length());
+            test.usingBuffer(buf -> assertEquals(4, ((CompositeBuffer) buf).countComponents()));
+        }
+    }
+
     private static final class TestHttpData extends AbstractMemoryHttpData {
         /**
          * Constructs HTTP data for tests.
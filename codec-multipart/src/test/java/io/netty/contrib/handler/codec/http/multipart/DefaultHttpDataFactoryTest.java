@@ -15,6 +15,8 @@
  */
 package io.netty.contrib.handler.codec.http.multipart;
 
+import io.netty5.buffer.BufferAllocator;
+import io.netty5.buffer.DefaultBufferAllocators;
 import io.netty5.handler.codec.http.DefaultHttpRequest;
 import io.netty5.handler.codec.http.HttpRequest;
 import org.junit.jupiter.api.AfterEach;
@@ -23,6 +25,10 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
+import java.io.IOException;
+import java.util.concurrent.Executor;
+
+
 import static io.netty.contrib.handler.codec.http.multipart.HttpPostBodyUtil.DEFAULT_TEXT_CONTENT_TYPE;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static io.netty5.handler.codec.http.HttpHeaderValues.IDENTITY;
@@ -70,6 +76,94 @@ public class DefaultHttpDataFactoryTest {
         assertTrue(DiskFileUpload.class.cast(fu).deleteOnExit());
     }
 
+    @Test
+    public void customFsyncPolicyAndWriteExecutor() throws IOException {
+        final Executor executor = Runnable::run;
+        final DefaultHttpDataFactory diskFactory = new DefaultHttpDataFactory(true);
+        diskFactory.setFsyncPolicy(FsyncPolicy.ON_RENAME);
+        diskFactory.setWriteExecutor(executor);
+        try (FileUpload fu = diskFactory.createFileUpload(req1, "file1", "f.txt", "text/plain", null, null, 0)) {
+            assertEquals(FsyncPolicy.ON_RENAME, DiskFileUpload.class.cast(fu).getFsyncPolicy());
+            assertSame(executor, DiskFileUpload.class.cast(fu).getWriteExecutor());
+        }
+
+        final DefaultHttpDataFactory mixedFactory = new DefaultHttpDataFactory(1);
+        mixedFactory.setFsyncPolicy(FsyncPolicy.NEVER);
+        try (FileUpload fu = mixedFactory.createFileUpload(req1, "file1", "f.txt", "text/plain", null, null, 0)) {
+            fu.addContent(Helpers.copiedBuffer(new byte[] { 1, 2, 3 }), true);
+            assertFalse(fu.isInMemory());
+            FileUpload wrapped = ((MixedFileUpload) fu).wrapped;
+            assertEquals(FsyncPolicy.NEVER, DiskFileUpload.class.cast(wrapped).getFsyncPolicy());
+        }
+    }
+
+    @Test
+    public void onHeapAllocatorByDefault() throws IOException {
+        final DefaultHttpDataFactory memoryFactory = new DefaultHttpDataFactory(false);
+        assertSame(DefaultBufferAllocators.onHeapAllocator(), memoryFactory.getAllocator());
+        try (Attribute attr = memoryFactory.createAttribute(req1, "attribute1", "value")) {
+            assertSame(DefaultBufferAllocators.onHeapAllocator(), attr.getAllocator());
+            attr.usingBuffer(buf -> assertFalse(buf.isDirect()));
+        }
+    }
+
+    @Test
+    public void customAllocator() throws IOException {
+        final BufferAllocator allocator = DefaultBufferAllocators.offHeapAllocator();
+        final DefaultHttpDataFactory memoryFactory = new DefaultHttpDataFactory(false);
+        memoryFactory.setAllocator(allocator);
+        try (Attribute attr = memoryFactory.createAttribute(req1, "attribute1", "value")) {
+            assertSame(allocator, attr.getAllocator());
+            attr.usingBuffer(buf -> assertTrue(buf.isDirect()));
+        }
+
+        final DefaultHttpDataFactory mixedFactory = new DefaultHttpDataFactory(2);
+        mixedFactory.setAllocator(allocator);
+        try (FileUpload fu = mixedFactory.createFileUpload(req1, "file1", "f.txt", "text/plain", null, null, 0)) {
+            fu.addContent(Helpers.copiedBuffer(new byte[] { 1, 2, 3 }), true);
+            assertFalse(fu.isInMemory());
+            assertSame(allocator, ((MixedFileUpload) fu).wrapped.getAllocator());
+            fu.usingBuffer(buf -> {
+                assertTrue(buf.isDirect());
+                assertEquals(3, buf.readableBytes());
+            });
+        }
+    }
+
+    @Test
+    public void sharedMemoryBudget() throws IOException {
+        final HttpDataMemoryBudget budget = new HttpDataMemoryBudget(150);
+        final DefaultHttpDataFactory mixedFactory = new DefaultHttpDataFactory(100);
+        mixedFactory.setMemoryBudget(budget);
+        try (FileUpload fu1 = mixedFactory.createFileUpload(req1, "file1", "f1.txt", "text/plain", null, null, 0);
+             FileUpload fu2 = mixedFactory.createFileUpload(req2, "file2", "f2.txt", "text/plain", null, null, 0)) {
+            fu1.addContent(Helpers.copiedBuffer(new byte[80]), true);
+            assertTrue(fu1.isInMemory());
+            assertEquals(80, budget.usedBytes());
+
+            // Smaller than the minimum size, but the budget has no room left for it
+            fu2.addContent(Helpers.copiedBuffer(new byte[40]), false);
+            assertTrue(fu2.isInMemory());
+            fu2.addContent(Helpers.copiedBuffer(new byte[40]), true);
+            assertFalse(fu2.isInMemory());
+            assertEquals(80, budget.usedBytes());
+
+            // The reserved bytes follow the data when it is sent
+            try (FileUpload received = (FileUpload) fu1.send().receive()) {
+                assertEquals(80, budget.usedBytes());
+            }
+            assertEquals(0, budget.usedBytes());
+        }
+
+        try (Attribute attr = mixedFactory.createAttribute(req1, "attribute1", "value")) {
+            assertTrue(attr.isInMemory());
+            assertEquals(5, budget.usedBytes());
+            attr.setValue("other value");
+            assertEquals(11, budget.usedBytes());
+        }
+        assertEquals(0, budget.usedBytes());
+    }
+
     @Test
     public void cleanRequestHttpDataShouldIdentifiesRequestsByTheirIdentities() throws Exception {
         // Create some data belonging to req1 and req2
@@ -29,7 +29,10 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Queue;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ThreadLocalRandom;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -60,6 +63,18 @@ public class DiskFileUploadTest {
         }
     }
 
+    @Test
+    public void testFileHoldsOnlyTheReceivedContent() throws IOException {
+        try (DiskFileUpload f = new DiskFileUpload("d1", "d1", "application/json", null, null, 100)) {
+            // The declared size is not applied to the file
+            f.addContent(DefaultBufferAllocators.onHeapAllocator().copyOf(new byte[]{1, 2, 3, 4}), false);
+            assertEquals(4, f.getFile().length());
+            f.addContent(DefaultBufferAllocators.onHeapAllocator().copyOf(new byte[]{5, 6}), true);
+            assertEquals(6, f.getFile().length());
+            assertArrayEquals(new byte[]{1, 2, 3, 4, 5, 6}, f.get());
+        }
+    }
+
      @Test
      public void testEmptyBufferSetMultipleTimes() throws IOException {
          try(DiskFileUpload f =
@@ -138,6 +153,146 @@ public class DiskFileUploadTest {
         }
     }
 
+    @Test
+    public void testAddContentsWithWriteExecutor() throws Exception {
+        Queue<Runnable> tasks = new ArrayDeque<>();
+        try (DiskFileUpload f1 = new DiskFileUpload("file1", "file1", "application/json", null, null, 0)) {
+            f1.setWriteExecutor(tasks::add);
+            byte[] jsonBytes = new byte[4096];
+            ThreadLocalRandom.current().nextBytes(jsonBytes);
+
+            f1.addContent(Helpers.copiedBuffer(jsonBytes, 0, 1024), false);
+            f1.addContent(Helpers.copiedBuffer(jsonBytes, 1024, jsonBytes.length - 1024), true);
+            assertTrue(f1.isCompleted());
+            assertEquals(jsonBytes.length, f1.length());
+            CompletableFuture<Void> future = f1.writeFuture();
+            assertFalse(future.isDone());
+
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+            assertTrue(future.isDone());
+            future.get();
+            assertArrayEquals(jsonBytes, f1.get());
+            assertEquals(jsonBytes.length, f1.getFile().length());
+        }
+    }
+
+    @Test
+    public void testAccessorsFailFastWhileWritesPending() throws Exception {
+        Queue<Runnable> tasks = new ArrayDeque<>();
+        File dest = new File("target/DiskFileUploadTest/testAccessorsFailFastWhileWritesPending.json");
+        try (DiskFileUpload f1 = new DiskFileUpload("file1", "file1", "application/json", null, null, 0)) {
+            f1.setWriteExecutor(tasks::add);
+            byte[] jsonBytes = new byte[] { 1, 2, 3 };
+            f1.addContent(Helpers.copiedBuffer(jsonBytes), true);
+
+            assertThrows(IOException.class, f1::get);
+            assertThrows(IOException.class, () -> f1.getString(StandardCharsets.UTF_8));
+            assertThrows(IOException.class, () -> f1.getChunk(1));
+            assertThrows(IOException.class, f1::getFile);
+            assertThrows(IOException.class, () -> f1.renameTo(dest));
+            assertFalse(dest.exists());
+
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+            assertArrayEquals(jsonBytes, f1.get());
+        }
+    }
+
+    @Test
+    public void testDeleteAfterWriteExecutorRemoved() throws Exception {
+        Queue<Runnable> tasks = new ArrayDeque<>();
+        DiskFileUpload f1 = new DiskFileUpload("file1", "file1", "application/json", null, null, 0);
+        f1.setWriteExecutor(tasks::add);
+        f1.addContent(Helpers.copiedBuffer(new byte[] { 1, 2, 3 }), true);
+        f1.setWriteExecutor(null);
+        f1.delete();
+
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+        assertTrue(f1.writeFuture().isDone());
+        assertNull(f1.getFile());
+        f1.close();
+    }
+
+    @Test
+    public void testRenameToAsyncWithWriteExecutor() throws Exception {
+        Queue<Runnable> tasks = new ArrayDeque<>();
+        File dest = new File("target/DiskFileUploadTest/testRenameToAsyncWithWriteExecutor.json");
+        dest.getParentFile().mkdirs();
+        dest.delete();
+        try (DiskFileUpload f1 = new DiskFileUpload("file1", "file1", "application/json", null, null, 0)) {
+            f1.setWriteExecutor(tasks::add);
+            byte[] jsonBytes = new byte[4096];
+            ThreadLocalRandom.current().nextBytes(jsonBytes);
+
+            f1.addContent(Helpers.copiedBuffer(jsonBytes), true);
+            CompletableFuture<Boolean> renamed = f1.renameToAsync(dest);
+            assertFalse(renamed.isDone());
+            assertFalse(dest.exists());
+
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+            assertTrue(renamed.get());
+            assertTrue(f1.writeFuture().isDone());
+            assertEquals(dest, f1.getFile());
+            assertArrayEquals(jsonBytes, f1.get());
+        } finally {
+            assertTrue(dest.delete());
+        }
+    }
+
+    @Test
+    public void testWriteExecutorFailure() throws Exception {
+        Queue<Runnable> tasks = new ArrayDeque<>();
+        File baseDir = new File("target/DiskFileUploadTest/testWriteExecutorFailure/missing");
+        try (DiskFileUpload f1 = new DiskFileUpload("file1", "file1", "application/json", null, null, 0,
+                                                    baseDir.getAbsolutePath(), false)) {
+            f1.setWriteExecutor(tasks::add);
+            f1.addContent(Helpers.copiedBuffer(new byte[] { 1, 2, 3 }), false);
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+            assertTrue(f1.writeFuture().isCompletedExceptionally());
+
+            Buffer buffer = Helpers.copiedBuffer(new byte[] { 4, 5, 6 });
+            assertThrows(IOException.class, () -> f1.addContent(buffer, true));
+            assertFalse(buffer.isAccessible());
+            assertTrue(tasks.isEmpty());
+        }
+    }
+
+    @Test
+    public void testFsyncPolicy() throws Exception {
+        File baseDir = new File("target/DiskFileUploadTest/testFsyncPolicy");
+        baseDir.mkdirs();
+        byte[] bytes = new byte[1024];
+        ThreadLocalRandom.current().nextBytes(bytes);
+        for (FsyncPolicy policy : FsyncPolicy.values()) {
+            File dest = new File(baseDir, policy.name());
+            dest.delete();
+            try (DiskFileUpload f1 = new DiskFileUpload("file1", "file1", "application/json", null, null, 0)) {
+                f1.setFsyncPolicy(policy);
+                assertEquals(policy, f1.getFsyncPolicy());
+                f1.addContent(Helpers.copiedBuffer(bytes, 0, 512), false);
+                f1.addContent(Helpers.copiedBuffer(bytes, 512, 512), true);
+                assertArrayEquals(bytes, f1.get());
+                assertTrue(f1.renameTo(dest));
+                assertArrayEquals(bytes, f1.get());
+            }
+            assertTrue(dest.delete());
+        }
+    }
+
     @Test
     public void testSetContentFromByteBuf() throws Exception {
         try (DiskFileUpload f1 = new DiskFileUpload("file2", "file2", "application/json", null, null, 0)) {
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.contrib.handler.codec.http.multipart;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(GCExtension.class)
+public class HttpDataIndexTest {
+
+    @Test
+    public void testLookupIgnoresCaseAndKeepsOrder() throws Exception {
+        List<InterfaceHttpData> datas = new ArrayList<InterfaceHttpData>();
+        HttpDataIndex index = new HttpDataIndex(datas);
+        try (MemoryAttribute first = new MemoryAttribute("Name", "1");
+             MemoryAttribute other = new MemoryAttribute("other", "2");
+             MemoryAttribute second = new MemoryAttribute("nAME", "3")) {
+            assertNull(index.get("name"));
+
+            datas.add(first);
+            datas.add(other);
+            assertEquals(Arrays.asList(first), index.get("NAME"));
+
+            // Data added after a lookup are indexed by the next one
+            datas.add(second);
+            assertEquals(Arrays.asList(first, second), index.get("name"));
+            assertEquals(Arrays.asList(other), index.get("OTHER"));
+            assertNull(index.get("unknown"));
+        }
+    }
+
+    @Test
+    public void testTakeAndCompact() throws Exception {
+        List<InterfaceHttpData> datas = new ArrayList<InterfaceHttpData>();
+        HttpDataIndex index = new HttpDataIndex(datas);
+        try (MemoryAttribute first = new MemoryAttribute("name", "1");
+             MemoryAttribute second = new MemoryAttribute("name", "2");
+             MemoryAttribute third = new MemoryAttribute("other", "3");
+             MemoryAttribute fourth = new MemoryAttribute("name", "4")) {
+            datas.addAll(Arrays.asList(first, second, third));
+            assertEquals(Arrays.asList(first, second), index.get("name"));
+
+            // The slot is emptied, the following data do not move
+            assertSame(first, index.take(0));
+            assertEquals(Arrays.asList(null, second, third), datas);
+            assertEquals(Arrays.asList(second), index.get("name"));
+            assertFalse(index.isSparse());
+
+            assertSame(second, index.take(1));
+            assertTrue(index.isSparse());
+            datas.add(fourth);
+            assertEquals(0, index.compact(2));
+            assertEquals(Arrays.asList(third, fourth), datas);
+            // The data added before the compaction are still indexed once
+            assertEquals(Arrays.asList(fourth), index.get("name"));
+            assertEquals(Arrays.asList(third), index.get("other"));
+            assertEquals(1, index.compact(1));
+        }
+    }
+
+    @Test
+    public void testFold() {
+        String folded = "already-folded";
+        assertSame(folded, HttpDataIndex.fold(folded));
+        assertEquals("content-type", HttpDataIndex.fold("Content-TYPE"));
+        // The Kelvin sign is equal to 'k' ignoring case
+        assertEquals(HttpDataIndex.fold("k"), HttpDataIndex.fold("\u212A"));
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.contrib.handler.codec.http.multipart;
+
+import io.netty5.buffer.Buffer;
+import io.netty5.buffer.DefaultBufferAllocators;
+import io.netty5.handler.codec.http.HttpConstants;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.util.Random;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@ExtendWith(GCExtension.class)
+public class HttpPostBodyUtilTest {
+
+    @Test
+    public void testFindDelimiter() {
+        byte[] delimiter = "--boundary".getBytes(US_ASCII);
+        try (Buffer buffer = DefaultBufferAllocators.onHeapAllocator().copyOf(
+                "--bound--boundar\n--boundary".getBytes(US_ASCII))) {
+            assertEquals(16, HttpPostBodyUtil.findDelimiter(buffer, 0, delimiter, true));
+            assertEquals(17, HttpPostBodyUtil.findDelimiter(buffer, 0, delimiter, false));
+            assertEquals(-1, HttpPostBodyUtil.findDelimiter(buffer, 18, delimiter, false));
+        }
+        try (Buffer buffer = DefaultBufferAllocators.onHeapAllocator().copyOf(
+                "--boundary\r\n--boundary".getBytes(US_ASCII))) {
+            // a delimiter at the reader offset does not need a line break
+            assertEquals(0, HttpPostBodyUtil.findDelimiter(buffer, 0, delimiter, true));
+            assertEquals(10, HttpPostBodyUtil.findDelimiter(buffer, 1, delimiter, true));
+            buffer.readerOffset(11);
+            assertEquals(0, HttpPostBodyUtil.findDelimiter(buffer, 11, delimiter, true));
+        }
+        try (Buffer buffer = DefaultBufferAllocators.onHeapAllocator().copyOf(
+                "abc--boundary--boundary".getBytes(US_ASCII))) {
+            assertEquals(-1, HttpPostBodyUtil.findDelimiter(buffer, 0, delimiter, true));
+            assertEquals(3, HttpPostBodyUtil.findDelimiter(buffer, 0, delimiter, false));
+        }
+    }
+
+    @Test
+    public void testFindDelimiterWithManyDashes() {
+        byte[] delimiter = "--861fbeab-cd20-470c-9609-d40a0f704466".getBytes(US_ASCII);
+        byte[] alphabet = { '-', '-', '-', '8', '6', '1', 'f', '\r', '\n', 'x' };
+        Random random = new Random(0);
+        for (int run = 0; run < 500; run++) {
+            byte[] content = new byte[random.nextInt(512) + 1];
+            for (int i = 0; i < content.length; i++) {
+                content[i] = alphabet[random.nextInt(alphabet.length)];
+            }
+            if (random.nextBoolean()) {
+                int pos = random.nextInt(content.length);
+                System.arraycopy(delimiter, 0, content, pos, Math.min(delimiter.length, content.length - pos));
+            }
+            try (Buffer buffer = DefaultBufferAllocators.onHeapAllocator().copyOf(content)) {
+                int readerOffset = random.nextInt(content.length);
+                buffer.readerOffset(readerOffset);
+                int index = readerOffset + random.nextInt(content.length - readerOffset);
+                for (boolean lineBreak : new boolean[] { true, false }) {
+                    assertEquals(naiveFindDelimiter(content, readerOffset, index, delimiter, lineBreak),
+                                 HttpPostBodyUtil.findDelimiter(buffer, index, delimiter, lineBreak));
+                }
+            }
+        }
+    }
+
+    private static int naiveFindDelimiter(byte[] content, int readerIndex, int index, byte[] delimiter,
+                                          boolean precededByLineBreak) {
+        outer:
+        for (int offset = index; offset <= content.length - delimiter.length; offset++) {
+            for (int i = 0; i < delimiter.length; i++) {
+                if (content[offset + i] != delimiter[i]) {
+                    continue outer;
+                }
+            }
+            if (!precededByLineBreak || offset == readerIndex) {
+                return offset - readerIndex;
+            }
+            if (content[offset - 1] == HttpConstants.LF) {
+                int start = offset - 1;
+                if (start > readerIndex && content[start - 1] == HttpConstants.CR) {
+                    start--;
+                }
+                return start - readerIndex;
+            }
+        }
+        return -1;
+    }
+}
@@ -15,6 +15,7 @@
  */
 package io.netty.contrib.handler.codec.http.multipart;
 
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import io.netty5.buffer.Buffer;
 import io.netty5.buffer.DefaultBufferAllocators;
@@ -24,9 +25,11 @@ import io.netty5.handler.codec.http.DefaultHttpRequest;
 import io.netty5.handler.codec.http.DefaultLastHttpContent;
 import io.netty5.handler.codec.http.FullHttpRequest;
 import io.netty5.handler.codec.http.HttpConstants;
+import io.netty5.handler.codec.http.HttpContent;
 import io.netty5.handler.codec.http.HttpHeaderNames;
 import io.netty5.handler.codec.http.HttpMethod;
 import io.netty5.handler.codec.http.HttpRequest;
+import io.netty5.handler.codec.http.HttpUtil;
 import io.netty5.handler.codec.http.HttpVersion;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -94,6 +97,250 @@ public class HttpPostMultiPartRequestDecoderTest {
         }
     }
 
+    @Test
+    public void testPartHeaderParameters() throws IOException {
+        String content = "--861fbeab-cd20-470c-9609-d40a0f704466\r\n" +
+                "X-Ignored: form-data; name=\"other\"\r\n" +
+                "Content-Disposition: form-data; NAME=\"field\"; size=5\r\n" +
+                "Content-Type: text/plain; Charset=ISO-8859-1\r\n" +
+                "\r\n" +
+                "value\r\n" +
+                "--861fbeab-cd20-470c-9609-d40a0f704466\r\n" +
+                "Content-Disposition: form-data; name=\"file\"; FILENAME=\"a.txt\"\r\n" +
+                "\r\n" +
+                "data\r\n" +
+                "--861fbeab-cd20-470c-9609-d40a0f704466--\r\n";
+
+        FullHttpRequest req = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/upload",
+                Helpers.copiedBuffer(content, StandardCharsets.US_ASCII));
+        req.headers().set("content-type", "multipart/form-data; boundary=861fbeab-cd20-470c-9609-d40a0f704466");
+        DefaultHttpDataFactory factory = new DefaultHttpDataFactory(true);
+        HttpPostMultipartRequestDecoder decoder = new HttpPostMultipartRequestDecoder(factory, req);
+        try {
+            List<InterfaceHttpData> datas = decoder.getBodyHttpDatas();
+            assertEquals(2, datas.size());
+            Attribute attribute = (Attribute) datas.get(0);
+            assertEquals("field", attribute.getName());
+            assertEquals(StandardCharsets.ISO_8859_1, attribute.getCharset());
+            assertEquals("value", attribute.getValue());
+            FileUpload fileUpload = (FileUpload) datas.get(1);
+            assertEquals("file", fileUpload.getName());
+            assertEquals("a.txt", fileUpload.getFilename());
+        } finally {
+            decoder.destroy();
+            req.close();
+        }
+    }
+
+    @Test
+    public void testReleaseOnConsume() throws IOException {
+        String boundary = "861fbeab-cd20-470c-9609-d40a0f704466";
+        HttpRequest req = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/upload");
+        req.headers().set("content-type", "multipart/form-data; boundary=" + boundary);
+        DefaultHttpDataFactory factory = new DefaultHttpDataFactory(true);
+        HttpPostMultipartRequestDecoder decoder = new HttpPostMultipartRequestDecoder(factory, req);
+        decoder.setReleaseOnConsume(true);
+        List<InterfaceHttpData> consumed = new ArrayList<InterfaceHttpData>();
+        try {
+            for (int i = 0; i < 50; i++) {
+                try (DefaultHttpContent content = new DefaultHttpContent(
+                        Helpers.copiedBuffer(filePart(boundary, i), StandardCharsets.US_ASCII))) {
+                    decoder.offer(content);
+                }
+                while (decoder.hasNext()) {
+                    consumed.add(decoder.next());
+                }
+                // A part is only decoded once the next delimiter is received
+                assertEquals(i, consumed.size());
+            }
+            StringBuilder lastParts = new StringBuilder();
+            for (int i = 50; i < 100; i++) {
+                lastParts.append(filePart(boundary, i));
+            }
+            lastParts.append("--").append(boundary).append("--\r\n");
+            try (DefaultLastHttpContent content = new DefaultLastHttpContent(
+                    Helpers.copiedBuffer(lastParts.toString(), StandardCharsets.US_ASCII))) {
+                decoder.offer(content);
+            }
+            assertEquals(51, decoder.getBodyHttpDatas("FILE").size());
+            for (int i = 0; i < 11; i++) {
+                consumed.add(decoder.next());
+            }
+            // The consumed data are dropped from the list and from the index
+            assertEquals(40, decoder.getBodyHttpDatas().size());
+            assertEquals(40, decoder.getBodyHttpDatas("file").size());
+            assertEquals("60.txt", ((FileUpload) decoder.getBodyHttpData("file")).getFilename());
+        } finally {
+            decoder.destroy();
+            factory.cleanAllHttpData();
+        }
+        // The consumed data are owned by the caller
+        assertEquals(60, consumed.size());
+        for (int i = 0; i < consumed.size(); i++) {
+            FileUpload fileUpload = (FileUpload) consumed.get(i);
+            assertTrue(fileUpload.isAccessible());
+            assertEquals("data" + i, fileUpload.getString(StandardCharsets.US_ASCII));
+            fileUpload.close();
+        }
+    }
+
+    private static String filePart(String boundary, int i) {
+        return "--" + boundary + "\r\n" +
+                "Content-Disposition: form-data; name=\"file\"; filename=\"" + i + ".txt\"\r\n" +
+                "\r\n" +
+                "data" + i + "\r\n";
+    }
+
+    @Test
+    public void testMaxParts() {
+        String boundary = "861fbeab-cd20-470c-9609-d40a0f704466";
+        HttpPostMultipartRequestDecoder decoder = newDecoder(boundary);
+        decoder.setMaxParts(3);
+        try {
+            offer(decoder, filePart(boundary, 0) + filePart(boundary, 1) + filePart(boundary, 2), false);
+            // The fourth part is rejected once its headers are read
+            offer(decoder, "--" + boundary + "\r\nContent-Disposition: form-data; name=\"field\"\r\n", false);
+            assertThrows(HttpPostRequestDecoder.TooManyPartsDecoderException.class,
+                    () -> offer(decoder, "\r\n", false));
+        } finally {
+            decoder.destroy();
+        }
+    }
+
+    @Test
+    public void testMaxPartHeaderBytes() {
+        String boundary = "861fbeab-cd20-470c-9609-d40a0f704466";
+        HttpPostMultipartRequestDecoder decoder = newDecoder(boundary);
+        decoder.setMaxPartHeaderBytes(100);
+        try {
+            offer(decoder, filePart(boundary, 0), false);
+            offer(decoder, "--" + boundary + "\r\nX-Header: ", false);
+            // The header line does not need to end to be rejected
+            char[] value = new char[100];
+            Arrays.fill(value, 'a');
+            assertThrows(HttpPostRequestDecoder.PartHeaderTooLargeDecoderException.class,
+                    () -> offer(decoder, new String(value), false));
+        } finally {
+            decoder.destroy();
+        }
+    }
+
+    @Test
+    public void testMaxPartHeaderLines() {
+        String boundary = "861fbeab-cd20-470c-9609-d40a0f704466";
+        HttpPostMultipartRequestDecoder decoder = newDecoder(boundary);
+        decoder.setMaxPartHeaderLines(2);
+        try {
+            offer(decoder, "--" + boundary + "\r\n" +
+                    "Content-Disposition: form-data; name=\"field\"\r\n" +
+                    "Content-Type: text/plain\r\n" +
+                    "\r\nvalue\r\n", false);
+            assertThrows(HttpPostRequestDecoder.TooManyHeaderLinesDecoderException.class,
+                    () -> offer(decoder, "--" + boundary + "\r\n" +
+                            "Content-Disposition: form-data; name=\"field\"\r\n" +
+                            "Content-Type: text/plain\r\n" +
+                            "X-Header: value\r\n", false));
+        } finally {
+            decoder.destroy();
+        }
+    }
+
+    @Test
+    public void testMaxBodyBytes() {
+        String boundary = "861fbeab-cd20-470c-9609-d40a0f704466";
+        HttpPostMultipartRequestDecoder decoder = newDecoder(boundary);
+        decoder.setMaxBodyBytes(150);
+        try {
+            offer(decoder, filePart(boundary, 0), false);
+            // The rejected content is still owned, and closed, by the caller
+            try (HttpContent<?> content = new DefaultHttpContent(
+                    Helpers.copiedBuffer(filePart(boundary, 1), StandardCharsets.US_ASCII))) {
+                assertThrows(HttpPostRequestDecoder.BodyTooLargeDecoderException.class,
+                        () -> decoder.offer(content));
+                assertTrue(content.payload().isAccessible());
+            }
+        } finally {
+            decoder.destroy();
+        }
+
+        // A larger declared Content-Length is rejected before decoding anything
+        HttpRequest req = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/upload");
+        req.headers().set("content-type", "multipart/form-data; boundary=" + boundary);
+        HttpUtil.setContentLength(req, 151);
+        HttpPostMultipartRequestDecoder declared = new HttpPostMultipartRequestDecoder(req);
+        declared.setMaxBodyBytes(150);
+        try {
+            assertThrows(HttpPostRequestDecoder.BodyTooLargeDecoderException.class,
+                    () -> offer(declared, filePart(boundary, 0), false));
+            assertFalse(declared.hasNext());
+        } finally {
+            declared.destroy();
+        }
+    }
+
+    @Test
+    public void testMaxInMemoryBytes() {
+        String boundary = "861fbeab-cd20-470c-9609-d40a0f704466";
+        HttpPostMultipartRequestDecoder decoder = newDecoder(boundary);
+        decoder.setMaxInMemoryBytes(15);
+        decoder.setReleaseOnConsume(true);
+        try {
+            offer(decoder, filePart(boundary, 0) + filePart(boundary, 1) + filePart(boundary, 2), false);
+            // The consumed data do not count anymore
+            try (InterfaceHttpData data = decoder.next()) {
+                assertEquals("file", data.getName());
+            }
+            offer(decoder, filePart(boundary, 3), false);
+            // "data1" to "data4" exceed the limit
+            assertThrows(HttpPostRequestDecoder.InMemoryTooLargeDecoderException.class,
+                    () -> offer(decoder, filePart(boundary, 4) + "--" + boundary + "--\r\n", true));
+        } finally {
+            decoder.destroy();
+        }
+    }
+
+    @Test
+    public void testLimitsOfFullRequest() {
+        String boundary = "861fbeab-cd20-470c-9609-d40a0f704466";
+        String body = filePart(boundary, 0) + filePart(boundary, 1) + "--" + boundary + "--\r\n";
+        HttpPostMultipartLimits limits = new HttpPostMultipartLimits();
+        limits.setMaxParts(1);
+        try (FullHttpRequest req = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/upload",
+                Helpers.copiedBuffer(body, StandardCharsets.US_ASCII))) {
+            req.headers().set("content-type", "multipart/form-data; boundary=" + boundary);
+            // The request is decoded by the constructor, with the limits already in force
+            assertThrows(HttpPostRequestDecoder.TooManyPartsDecoderException.class,
+                    () -> new HttpPostRequestDecoder(
+                            new DefaultHttpDataFactory(false), req, StandardCharsets.UTF_8, limits));
+        }
+
+        limits.setMaxParts(2);
+        try (FullHttpRequest req = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/upload",
+                Helpers.copiedBuffer(body, StandardCharsets.US_ASCII))) {
+            req.headers().set("content-type", "multipart/form-data; boundary=" + boundary);
+            HttpPostRequestDecoder decoder =
+                    new HttpPostRequestDecoder(new DefaultHttpDataFactory(false), req, StandardCharsets.UTF_8, limits);
+            try {
+                assertEquals(2, decoder.getBodyHttpDatas().size());
+            } finally {
+                decoder.destroy();
+            }
+        }
+    }
+
+    private static HttpPostMultipartRequestDecoder newDecoder(String boundary) {
+        HttpRequest req = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/upload");
+        req.headers().set("content-type", "multipart/form-data; boundary=" + boundary);
+        return new HttpPostMultipartRequestDecoder(new DefaultHttpDataFactory(false), req);
+    }
+
+    private static void offer(HttpPostMultipartRequestDecoder decoder, String content, boolean last) {
+        Buffer buffer = Helpers.copiedBuffer(content, StandardCharsets.US_ASCII);
+        try (HttpContent<?> httpContent = last ? new DefaultLastHttpContent(buffer) : new DefaultHttpContent(buffer)) {
+            decoder.offer(httpContent);
+        }
+    }
+
     @Test
     public void testDelimiterExceedLeftSpaceInCurrentBuffer() throws IOException {
         String delimiter = "--861fbeab-cd20-470c-9609-d40a0f704466";
@@ -517,4 +764,193 @@ public class HttpPostMultiPartRequestDecoderTest {
         commonTestFileDelimiterLFLastChunk(factory, false);
     }
 
+    @Test
+    public void testDelimiterSplitAcrossChunks() throws IOException {
+        String boundary = "861fbeab-cd20-470c-9609-d40a0f704466";
+        // content containing line breaks and partial delimiters
+        String body = "a\r\n--861fbeab\n\r\n--861fbeab-cd20-470c-9609-d40a0f70446\r\n\r\r\n-\n";
+        String content = "--" + boundary + "\r\n" +
+                "Content-Disposition: form-data; name=\"file\"; filename=\"file.txt\"\r\n" +
+                "Content-Type: text/plain\r\n\r\n" +
+                body + "\r\n--" + boundary + "--\r\n";
+
+        HttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/upload");
+        request.headers().set("content-type", "multipart/form-data; boundary=" + boundary);
+        HttpPostMultipartRequestDecoder decoder =
+                new HttpPostMultipartRequestDecoder(new DefaultHttpDataFactory(false), request);
+        byte[] bytes = content.getBytes(StandardCharsets.US_ASCII);
+        for (byte b : bytes) {
+            try (DefaultHttpContent httpContent = new DefaultHttpContent(Helpers.copiedBuffer(new byte[] { b }))) {
+                decoder.offer(httpContent);
+            }
+        }
+        try (DefaultLastHttpContent last = Helpers.defaultLastHttpContent()) {
+            decoder.offer(last);
+        }
+        FileUpload data = (FileUpload) decoder.getBodyHttpData("file");
+        assertEquals(body, data.getString(StandardCharsets.US_ASCII));
+        decoder.destroy();
+    }
+
+    @Test
+    public void testDelimiterInsideContentFedByteByByte() throws IOException {
+        // the boundary text within a line is only content, whatever the size of the chunks
+        String content = "--bb\r\n" +
+                "Content-Disposition: form-data; name=\"f\"\r\n\r\n" +
+                "ab--bbcd\r\n" +
+                "--bb\r\n" +
+                "Content-Disposition: form-data; name=\"g\"\r\n\r\n" +
+                "x--bb--bb\r\n" +
+                "--bb--\r\n";
+        byte[] bytes = content.getBytes(StandardCharsets.US_ASCII);
+        for (int chunkSize = 1; chunkSize <= 3; chunkSize++) {
+            HttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/upload");
+            request.headers().set("content-type", "multipart/form-data; boundary=bb");
+            HttpPostMultipartRequestDecoder decoder =
+                    new HttpPostMultipartRequestDecoder(new DefaultHttpDataFactory(false), request);
+            for (int i = 0; i < bytes.length; i += chunkSize) {
+                int length = Math.min(chunkSize, bytes.length - i);
+                try (DefaultHttpContent httpContent =
+                             new DefaultHttpContent(Helpers.copiedBuffer(bytes, i, length))) {
+                    decoder.offer(httpContent);
+                }
+            }
+            try (DefaultLastHttpContent last = Helpers.defaultLastHttpContent()) {
+                decoder.offer(last);
+            }
+            assertEquals(2, decoder.getBodyHttpDatas().size());
+            assertEquals("ab--bbcd", ((Attribute) decoder.getBodyHttpData("f")).getValue());
+            assertEquals("x--bb--bb", ((Attribute) decoder.getBodyHttpData("g")).getValue());
+            decoder.destroy();
+        }
+    }
+
+    @Test
+    public void testZeroCopy() throws IOException {
+        String boundary = "861fbeab-cd20-470c-9609-d40a0f704466";
+        byte[] body = new byte[20000];
+        for (int i = 0; i < body.length; i++) {
+            body[i] = (byte) i;
+        }
+        byte[] prefix = ("--" + boundary + "\r\n" +
+                "Content-Disposition: form-data; name=\"field\"\r\n\r\nvalue\r\n" +
+                "--" + boundary + "\r\n" +
+                "Content-Disposition: form-data; name=\"file\"; filename=\"file.bin\"\r\n" +
+                "Content-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+        byte[] suffix = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        byte[] content = new byte[prefix.length + body.length + suffix.length];
+        System.arraycopy(prefix, 0, content, 0, prefix.length);
+        System.arraycopy(body, 0, content, prefix.length, body.length);
+        System.arraycopy(suffix, 0, content, prefix.length + body.length, suffix.length);
+
+        HttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/upload");
+        request.headers().set("content-type", "multipart/form-data; boundary=" + boundary);
+        HttpPostMultipartRequestDecoder decoder =
+                new HttpPostMultipartRequestDecoder(new DefaultHttpDataFactory(false), request);
+        decoder.setZeroCopy(true);
+        assertTrue(decoder.isZeroCopy());
+        int chunkSize = 1000;
+        for (int offset = 0; offset < content.length; offset += chunkSize) {
+            Buffer buffer = Helpers.copiedBuffer(content, offset, Math.min(chunkSize, content.length - offset));
+            try (DefaultHttpContent httpContent = new DefaultHttpContent(buffer)) {
+                decoder.offer(httpContent);
+            }
+        }
+        try (DefaultLastHttpContent last = Helpers.defaultLastHttpContent()) {
+            decoder.offer(last);
+        }
+        Attribute field = (Attribute) decoder.getBodyHttpData("field");
+        assertEquals("value", field.getValue());
+        FileUpload file = (FileUpload) decoder.getBodyHttpData("file");
+        assertArrayEquals(body, file.get());
+        decoder.destroy();
+    }
+
+    @Test
+    public void testOfferTakesPayloadOwnership() throws IOException {
+        String boundary = "861fbeab-cd20-470c-9609-d40a0f704466";
+        byte[] part1 = ("--" + boundary + "\r\n" +
+                "Content-Disposition: form-data; name=\"field\"\r\n\r\nval").getBytes(StandardCharsets.US_ASCII);
+        byte[] part2 = ("ue\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+
+        HttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/upload");
+        request.headers().set("content-type", "multipart/form-data; boundary=" + boundary);
+        HttpPostMultipartRequestDecoder decoder =
+                new HttpPostMultipartRequestDecoder(new DefaultHttpDataFactory(false), request);
+        Buffer buffer1 = Helpers.copiedBuffer(part1);
+        try (DefaultHttpContent httpContent = new DefaultHttpContent(buffer1)) {
+            decoder.offer(httpContent);
+        }
+        assertFalse(buffer1.isAccessible());
+        // read-only payloads are copied
+        Buffer buffer2 = Helpers.copiedBuffer(part2).makeReadOnly();
+        try (DefaultLastHttpContent last = new DefaultLastHttpContent(buffer2)) {
+            decoder.offer(last);
+            assertTrue(buffer2.isAccessible());
+        }
+        Attribute field = (Attribute) decoder.getBodyHttpData("field");
+        assertEquals("value", field.getValue());
+        decoder.destroy();
+    }
+
+    @Test
+    public void testListener() throws IOException {
+        String boundary = "861fbeab-cd20-470c-9609-d40a0f704466";
+        String content = "--" + boundary + "\r\n" +
+                "Content-Disposition: form-data; name=\"field\"\r\n\r\nvalue\r\n" +
+                "--" + boundary + "\r\n" +
+                "Content-Disposition: form-data; name=\"file\"; filename=\"file.txt\"\r\n" +
+                "Content-Type: text/plain\r\n" +
+                "Content-Length: 26\r\n\r\n" +
+                "abcdefghijklmnopqrstuvwxyz\r\n" +
+                "--" + boundary + "--\r\n";
+        List<String> events = new ArrayList<>();
+        StringBuilder partContent = new StringBuilder();
+        HttpPostMultipartListener listener = new HttpPostMultipartListener() {
+            @Override
+            public void onPartStart(String name, String filename, String contentType,
+                                    String contentTransferEncoding, Charset charset,
+                                    long definedLength) {
+                events.add("start " + name + ' ' + filename + ' ' + contentType + ' ' + definedLength);
+            }
+
+            @Override
+            public void onPartContent(Buffer content, boolean last) {
+                try (content) {
+                    partContent.append(content.toString(StandardCharsets.US_ASCII));
+                }
+                if (last) {
+                    events.add("content " + partContent);
+                    partContent.setLength(0);
+                }
+            }
+
+            @Override
+            public void onPartEnd() {
+                events.add("end");
+            }
+        };
+
+        HttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/upload");
+        request.headers().set("content-type", "multipart/form-data; boundary=" + boundary);
+        HttpPostMultipartRequestDecoder decoder = new HttpPostMultipartRequestDecoder(
+                new DefaultHttpDataFactory(false), request, StandardCharsets.UTF_8, listener);
+        byte[] bytes = content.getBytes(StandardCharsets.US_ASCII);
+        int chunkSize = 7;
+        for (int offset = 0; offset < bytes.length; offset += chunkSize) {
+            Buffer buffer = Helpers.copiedBuffer(bytes, offset, Math.min(chunkSize, bytes.length - offset));
+            try (DefaultHttpContent httpContent = new DefaultHttpContent(buffer)) {
+                decoder.offer(httpContent);
+            }
+        }
+        try (DefaultLastHttpContent last = Helpers.defaultLastHttpContent()) {
+            decoder.offer(last);
+        }
+        assertEquals(Arrays.asList(
+                "start field null null 0", "content value", "end",
+                "start file file.txt text/plain 26", "content abcdefghijklmnopqrstuvwxyz", "end"), events);
+        assertTrue(decoder.getBodyHttpDatas().isEmpty());
+        decoder.destroy();
+    }
+
 }
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.contrib.handler.codec.http.multipart;
+
+import io.netty5.buffer.Buffer;
+import io.netty5.channel.ChannelOption;
+import io.netty5.channel.embedded.EmbeddedChannel;
+import io.netty5.handler.codec.http.DefaultHttpContent;
+import io.netty5.handler.codec.http.DefaultHttpRequest;
+import io.netty5.handler.codec.http.DefaultLastHttpContent;
+import io.netty5.handler.codec.http.HttpMethod;
+import io.netty5.handler.codec.http.HttpRequest;
+import io.netty5.handler.codec.http.HttpVersion;
+import io.netty5.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(GCExtension.class)
+public class HttpPostMultipartPublisherTest {
+    private static final String BOUNDARY = "861fbeab-cd20-470c-9609-d40a0f704466";
+
+    @Test
+    public void testBackpressure() throws Throwable {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        runInEventLoop(channel, () -> testBackpressure(channel));
+        channel.finishAndReleaseAll();
+    }
+
+    private static void testBackpressure(EmbeddedChannel channel) {
+        HttpPostMultipartPublisher publisher = new HttpPostMultipartPublisher(
+                channel, new DefaultHttpDataFactory(false), newRequest());
+        RecordingSubscriber<HttpPostMultipartPublisher.Part> parts = new RecordingSubscriber<>();
+        publisher.subscribe(parts);
+        assertTrue(channel.getOption(ChannelOption.AUTO_READ));
+
+        offer(publisher, "--" + BOUNDARY + "\r\n" +
+                "Content-Disposition: form-data; name=\"file\"; filename=\"file.txt\"\r\n" +
+                "Content-Type: text/plain\r\n\r\nabcdef");
+        // No demand for the part
+        assertFalse(channel.getOption(ChannelOption.AUTO_READ));
+        assertTrue(parts.items.isEmpty());
+
+        parts.subscription.request(1);
+        assertEquals(1, parts.items.size());
+        HttpPostMultipartPublisher.Part part = parts.items.get(0);
+        assertEquals("file", part.name());
+        assertEquals("file.txt", part.filename());
+        assertEquals("text/plain", part.contentType());
+        // No demand for the content
+        assertFalse(channel.getOption(ChannelOption.AUTO_READ));
+
+        RecordingSubscriber<Buffer> content = new RecordingSubscriber<>();
+        part.subscribe(content);
+        content.subscription.request(1);
+        assertEquals(1, content.items.size());
+        // The demand is exhausted
+        assertFalse(channel.getOption(ChannelOption.AUTO_READ));
+        content.subscription.request(1);
+        assertTrue(channel.getOption(ChannelOption.AUTO_READ));
+
+        offer(publisher, "ghij");
+        assertEquals(2, content.items.size());
+        assertFalse(channel.getOption(ChannelOption.AUTO_READ));
+        content.subscription.request(Long.MAX_VALUE);
+        assertTrue(channel.getOption(ChannelOption.AUTO_READ));
+
+        offer(publisher, "klm\r\n--" + BOUNDARY + "\r\n" +
+                "Content-Disposition: form-data; name=\"field\"\r\n\r\nvalue\r\n" +
+                "--" + BOUNDARY + "--\r\n");
+        assertTrue(content.complete);
+        assertEquals("abcdefghijklm", content.text());
+        // The second part is waiting for demand
+        assertFalse(channel.getOption(ChannelOption.AUTO_READ));
+        assertFalse(parts.complete);
+
+        parts.subscription.request(1);
+        RecordingSubscriber<Buffer> fieldContent = new RecordingSubscriber<>();
+        parts.items.get(1).subscribe(fieldContent);
+        fieldContent.subscription.request(Long.MAX_VALUE);
+        assertEquals("value", fieldContent.text());
+        assertTrue(fieldContent.complete);
+        assertTrue(channel.getOption(ChannelOption.AUTO_READ));
+
+        try (DefaultLastHttpContent last = Helpers.defaultLastHttpContent()) {
+            publisher.offer(last);
+        }
+        assertTrue(parts.complete);
+        assertNull(parts.error);
+    }
+
+    @Test
+    public void testTruncatedBody() throws Throwable {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        runInEventLoop(channel, () -> testTruncatedBody(channel));
+        channel.finishAndReleaseAll();
+    }
+
+    private static void testTruncatedBody(EmbeddedChannel channel) {
+        HttpPostMultipartPublisher publisher = new HttpPostMultipartPublisher(
+                channel, new DefaultHttpDataFactory(false), newRequest());
+        RecordingSubscriber<HttpPostMultipartPublisher.Part> parts = new RecordingSubscriber<>();
+        publisher.subscribe(parts);
+        parts.subscription.request(Long.MAX_VALUE);
+        offer(publisher, "--" + BOUNDARY + "\r\n" +
+                "Content-Disposition: form-data; name=\"field\"\r\n\r\nval");
+        RecordingSubscriber<Buffer> content = new RecordingSubscriber<>();
+        parts.items.get(0).subscribe(content);
+        content.subscription.request(Long.MAX_VALUE);
+
+        try (DefaultLastHttpContent last = Helpers.defaultLastHttpContent()) {
+            assertThrows(HttpPostRequestDecoder.ErrorDataDecoderException.class, () -> publisher.offer(last));
+        }
+        assertTrue(parts.error instanceof HttpPostRequestDecoder.ErrorDataDecoderException);
+        assertTrue(content.error instanceof HttpPostRequestDecoder.ErrorDataDecoderException);
+        assertTrue(channel.getOption(ChannelOption.AUTO_READ));
+        content.release();
+    }
+
+    /**
+     * The publisher must be driven from the event loop, which is only the case of an {@link EmbeddedChannel}
+     * while it runs its tasks.
+     */
+    private static void runInEventLoop(EmbeddedChannel channel, Runnable test) throws Throwable {
+        Future<Void> future = channel.executor().submit(test);
+        channel.runPendingTasks();
+        assertTrue(future.isDone());
+        if (future.isFailed()) {
+            throw future.cause();
+        }
+    }
+
+    private static HttpRequest newRequest() {
+        HttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/upload");
+        request.headers().set("content-type", "multipart/form-data; boundary=" + BOUNDARY);
+        return request;
+    }
+
+    private static void offer(HttpPostMultipartPublisher publisher, String data) {
+        Buffer buffer = Helpers.copiedBuffer(data, StandardCharsets.US_ASCII);
+        try (DefaultHttpContent httpContent = new DefaultHttpContent(buffer)) {
+            publisher.offer(httpContent);
+        }
+    }
+
+    private static final class RecordingSubscriber<T> implements Flow.Subscriber<T> {
+        final List<T> items = new ArrayList<>();
+        Flow.Subscription subscription;
+        boolean complete;
+        Throwable error;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(T item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            complete = true;
+        }
+
+        String text() {
+            StringBuilder builder = new StringBuilder();
+            for (T item : items) {
+                builder.append(((Buffer) item).toString(StandardCharsets.US_ASCII));
+            }
+            release();
+            return builder.toString();
+        }
+
+        void release() {
+            for (T item : items) {
+                ((Buffer) item).close();
+            }
+            items.clear();
+        }
+    }
+}
@@ -1059,4 +1059,61 @@ public class HttpPostRequestDecoderTest {
         }
     }
 
+    @Test
+    public void testZeroCopyDelegated() throws Exception {
+        final String boundary = "dLV9Wyq26L_-JQxk6ferf-RT153LhOO";
+        final DefaultHttpRequest req = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST,
+                "http://localhost");
+        req.headers().add(HttpHeaderNames.CONTENT_TYPE, "multipart/form-data; boundary=" + boundary);
+        final HttpPostRequestDecoder decoder = new HttpPostRequestDecoder(new DefaultHttpDataFactory(false), req);
+        assertFalse(decoder.isZeroCopy());
+        decoder.setZeroCopy(true);
+        assertTrue(decoder.isZeroCopy());
+        final String body = "--" + boundary + "\r\n" +
+                "Content-Disposition: form-data; name=\"field\"\r\n" +
+                "\r\n" +
+                "value\r\n" +
+                "--" + boundary + "--\r\n";
+        try (LastHttpContent<?> content = new DefaultLastHttpContent(
+                Helpers.copiedBuffer(body, StandardCharsets.US_ASCII))) {
+            decoder.offer(content);
+        }
+        assertEquals("value", ((Attribute) decoder.getBodyHttpData("field")).getValue());
+        decoder.destroy();
+
+        // Ignored by a request which is not multipart
+        final HttpPostRequestDecoder standard = new HttpPostRequestDecoder(new DefaultHttpDataFactory(false),
+                new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "http://localhost"));
+        standard.setZeroCopy(true);
+        assertFalse(standard.isZeroCopy());
+        standard.destroy();
+    }
+
+    @Test
+    public void testLazyDecodingDelegated() throws Exception {
+        final HttpPostRequestDecoder decoder = new HttpPostRequestDecoder(new DefaultHttpDataFactory(false),
+                new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "http://localhost"));
+        assertFalse(decoder.isLazyDecoding());
+        decoder.setLazyDecoding(true);
+        assertTrue(decoder.isLazyDecoding());
+        try (LastHttpContent<?> content = new DefaultLastHttpContent(
+                Helpers.copiedBuffer("valid=a%20b&invalid=%zz", StandardCharsets.US_ASCII))) {
+            // The invalid value is only reported once accessed
+            decoder.offer(content);
+        }
+        assertEquals("a b", ((Attribute) decoder.getBodyHttpData("valid")).getValue());
+        final Attribute invalid = (Attribute) decoder.getBodyHttpData("invalid");
+        assertThrows(HttpPostRequestDecoder.ErrorDataDecoderException.class, invalid::getValue);
+        decoder.destroy();
+
+        // Ignored by a multipart request
+        final DefaultHttpRequest req = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST,
+                "http://localhost");
+        req.headers().add(HttpHeaderNames.CONTENT_TYPE, "multipart/form-data; boundary=dLV9Wyq26L");
+        final HttpPostRequestDecoder multipart = new HttpPostRequestDecoder(new DefaultHttpDataFactory(false), req);
+        multipart.setLazyDecoding(true);
+        assertFalse(multipart.isLazyDecoding());
+        multipart.destroy();
+    }
+
 }
@@ -22,6 +22,7 @@ import io.netty5.util.internal.StringUtil;
 import io.netty5.buffer.Buffer;
 import io.netty5.buffer.BufferAllocator;
 import io.netty5.buffer.DefaultBufferAllocators;
+import io.netty5.channel.FileRegion;
 import io.netty5.handler.codec.http.DefaultFullHttpRequest;
 import io.netty5.handler.codec.http.DefaultHttpRequest;
 import io.netty5.handler.codec.http.HttpConstants;
@@ -34,7 +35,10 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -134,6 +138,66 @@ public class HttpPostRequestEncoderTest {
         }
     }
 
+    @Test
+    public void testFileRegionMode() throws Exception {
+        DefaultHttpDataFactory factory = new DefaultHttpDataFactory(true);
+        HttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "http://localhost");
+        HttpPostRequestEncoder encoder = new HttpPostRequestEncoder(factory, request, true);
+        encoder.setFileRegionMode(true);
+        File file1 = new File(getClass().getResource("/file-01.txt").toURI());
+        encoder.addBodyAttribute("foo", "bar");
+        encoder.addBodyFileUpload("quux", "", file1, "text/plain", false);
+        assertNotNull(encoder.finalizeRequest());
+        assertThrows(IllegalStateException.class, () -> encoder.readChunk((BufferAllocator) null));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        WritableByteChannel channel = Channels.newChannel(out);
+        int regions = 0;
+        while (!encoder.isEndOfInput()) {
+            Object message = encoder.readMessage(null);
+            if (message instanceof FileRegion) {
+                FileRegion region = (FileRegion) message;
+                assertEquals(file1.length(), region.count());
+                while (region.transferred() < region.count()) {
+                    region.transferTo(channel, region.transferred());
+                }
+                region.release();
+                regions++;
+            } else {
+                try (HttpContent<?> httpContent = (HttpContent<?>) message) {
+                    Buffer payload = httpContent.payload();
+                    byte[] bytes = new byte[payload.readableBytes()];
+                    payload.copyInto(payload.readerOffset(), bytes, 0, bytes.length);
+                    out.write(bytes);
+                }
+            }
+        }
+        assertNull(encoder.readMessage(null));
+        assertEquals(1, regions);
+        assertEquals(encoder.length(), encoder.progress());
+
+        String multipartDataBoundary = encoder.multipartDataBoundary;
+        String expected = "--" + multipartDataBoundary + "\r\n" +
+                CONTENT_DISPOSITION + ": form-data; name=\"foo\"" + "\r\n" +
+                CONTENT_LENGTH + ": 3" + "\r\n" +
+                CONTENT_TYPE + ": text/plain; charset=UTF-8" + "\r\n" +
+                "\r\n" +
+                "bar" +
+                "\r\n" +
+                "--" + multipartDataBoundary + "\r\n" +
+                CONTENT_DISPOSITION + ": form-data; name=\"quux\"\r\n" +
+                CONTENT_LENGTH + ": " + file1.length() + "\r\n" +
+                CONTENT_TYPE + ": text/plain" + "\r\n" +
+                CONTENT_TRANSFER_ENCODING + ": binary" + "\r\n" +
+                "\r\n" +
+                "File 01" + StringUtil.NEWLINE +
+                "\r\n" +
+                "--" + multipartDataBoundary + "--" + "\r\n";
+        assertEquals(expected, out.toString(StandardCharsets.UTF_8));
+        encoder.cleanFiles();
+        encoder.close();
+    }
+
     @Test
     public void testMultiFileUploadInMixedMode() throws Exception {
         try (DefaultFullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1,
@@ -17,12 +17,16 @@ package io.netty.contrib.handler.codec.http.multipart;
 
 import io.netty5.buffer.Buffer;
 import io.netty5.buffer.DefaultBufferAllocators;
+import io.netty5.handler.codec.http.DefaultHttpContent;
 import io.netty5.handler.codec.http.DefaultHttpRequest;
 import io.netty5.handler.codec.http.DefaultLastHttpContent;
 import io.netty5.handler.codec.http.HttpMethod;
 import io.netty5.handler.codec.http.HttpRequest;
 import io.netty5.handler.codec.http.HttpVersion;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Queue;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
@@ -82,6 +86,115 @@ class HttpPostStandardRequestDecoderTest {
         decoder.destroy();
     }
 
+    @Test
+    void testDecodeAttributesByteByByte() {
+        byte[] requestBody = "a=1%2B2+3&empty=&c%3D=x%26y\r\nignored".getBytes(StandardCharsets.UTF_8);
+
+        HttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/upload");
+
+        HttpPostStandardRequestDecoder decoder = new HttpPostStandardRequestDecoder(httpDiskDataFactory(), request);
+        for (byte b : requestBody) {
+            Buffer buf = DefaultBufferAllocators.preferredAllocator().copyOf(new byte[] { b });
+            try (DefaultHttpContent httpContent = new DefaultHttpContent(buf)) {
+                decoder.offer(httpContent);
+            }
+        }
+        try (DefaultLastHttpContent httpContent = new DefaultLastHttpContent(
+                DefaultBufferAllocators.preferredAllocator().allocate(0))) {
+            decoder.offer(httpContent);
+        }
+
+        assertEquals(3, decoder.getBodyHttpDatas().size());
+        assertMemoryAttribute(decoder.getBodyHttpData("a"), "1+2 3");
+        assertMemoryAttribute(decoder.getBodyHttpData("empty"), "");
+        assertMemoryAttribute(decoder.getBodyHttpData("c="), "x&y");
+        decoder.destroy();
+    }
+
+    @Test
+    void testMalformedEscapeInSmallChunks() {
+        for (String requestBody : new String[] { "FazF=%z&=b\nz+", "bbz\n=%2\n%", "FF\na\r=%&&2F&%" }) {
+            byte[] bytes = requestBody.getBytes(StandardCharsets.UTF_8);
+            for (int chunkSize = 1; chunkSize <= 5; chunkSize++) {
+                HttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/upload");
+
+                HttpPostStandardRequestDecoder decoder =
+                        new HttpPostStandardRequestDecoder(httpDiskDataFactory(), request);
+                int size = chunkSize;
+                assertThrows(HttpPostRequestDecoder.ErrorDataDecoderException.class, () -> {
+                    for (int i = 0; i < bytes.length; i += size) {
+                        Buffer buf = Helpers.copiedBuffer(bytes, i, Math.min(size, bytes.length - i));
+                        try (DefaultHttpContent httpContent = new DefaultHttpContent(buf)) {
+                            decoder.offer(httpContent);
+                        }
+                    }
+                    try (DefaultLastHttpContent httpContent = new DefaultLastHttpContent(
+                            DefaultBufferAllocators.preferredAllocator().allocate(0))) {
+                        decoder.offer(httpContent);
+                    }
+                }, requestBody);
+                decoder.destroy();
+            }
+        }
+    }
+
+    @Test
+    void testDecodeValuesOnDiskWithWriteExecutor() throws IOException {
+        byte[] requestBody = "a=%41%42cdef+g&b=x".getBytes(StandardCharsets.UTF_8);
+
+        HttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/upload");
+
+        Queue<Runnable> writes = new ArrayDeque<>();
+        DefaultHttpDataFactory factory = new DefaultHttpDataFactory(4);
+        factory.setWriteExecutor(writes::add);
+        HttpPostStandardRequestDecoder decoder = new HttpPostStandardRequestDecoder(factory, request);
+        // the values are decoded as received, never read back while being written
+        for (int i = 0; i < requestBody.length; i += 2) {
+            Buffer buf = Helpers.copiedBuffer(requestBody, i, Math.min(2, requestBody.length - i));
+            try (DefaultHttpContent httpContent = new DefaultHttpContent(buf)) {
+                decoder.offer(httpContent);
+            }
+        }
+        try (DefaultLastHttpContent httpContent = new DefaultLastHttpContent(
+                DefaultBufferAllocators.preferredAllocator().allocate(0))) {
+            decoder.offer(httpContent);
+        }
+        assertFalse(writes.isEmpty());
+        Runnable write;
+        while ((write = writes.poll()) != null) {
+            write.run();
+        }
+
+        Attribute a = (Attribute) decoder.getBodyHttpData("a");
+        assertFalse(a.isInMemory());
+        assertEquals("ABcdef g", a.getValue());
+        assertEquals("x", ((Attribute) decoder.getBodyHttpData("b")).getValue());
+        decoder.destroy();
+    }
+
+    @Test
+    void testLazyDecoding() throws IOException {
+        String requestBody = "a=1%2B2&bad=%zz&c=x+y";
+
+        HttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/upload");
+
+        HttpPostStandardRequestDecoder decoder = new HttpPostStandardRequestDecoder(httpDiskDataFactory(), request);
+        decoder.setLazyDecoding(true);
+        Buffer buf = DefaultBufferAllocators.preferredAllocator().copyOf(requestBody.getBytes(StandardCharsets.UTF_8));
+        try (DefaultLastHttpContent httpContent = new DefaultLastHttpContent(buf)) {
+            // The invalid value is not decoded yet
+            decoder.offer(httpContent);
+        }
+
+        assertEquals(3, decoder.getBodyHttpDatas().size());
+        assertMemoryAttribute(decoder.getBodyHttpData("a"), "1+2");
+        assertEquals(3, ((Attribute) decoder.getBodyHttpData("a")).length());
+        assertThrows(HttpPostRequestDecoder.ErrorDataDecoderException.class,
+                () -> ((Attribute) decoder.getBodyHttpData("bad")).getValue());
+        assertEquals("x y", ((Attribute) decoder.getBodyHttpData("c")).getString());
+        decoder.destroy();
+    }
+
     private static DefaultHttpDataFactory httpDiskDataFactory() {
         return new DefaultHttpDataFactory(false);
     }
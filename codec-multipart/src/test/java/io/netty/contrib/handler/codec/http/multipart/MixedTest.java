@@ -23,6 +23,9 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 @ExtendWith(GCExtension.class)
 public class MixedTest {
@@ -44,6 +47,60 @@ public class MixedTest {
         attribute.close();
     }
 
+    @Test
+    public void mixedDataOnDiskFromDeclaredSize() throws IOException {
+        try (MixedAttribute attribute = new MixedAttribute("foo", 200, 100)) {
+            Assertions.assertFalse(attribute.isInMemory());
+        }
+        try (MixedFileUpload upload = new MixedFileUpload("foo", "foo", "foo", "UTF-8", StandardCharsets.UTF_8,
+                200, 100)) {
+            Assertions.assertFalse(upload.isInMemory());
+        }
+
+        // The declared size does not fit in the memory budget left
+        HttpDataMemoryBudget budget = new HttpDataMemoryBudget(300);
+        try (MixedFileUpload upload = new MixedFileUpload("foo", "foo", "foo", "UTF-8", StandardCharsets.UTF_8,
+                 0, 250)) {
+            upload.setMemoryBudget(budget);
+            upload.addContent(DefaultBufferAllocators.onHeapAllocator().copyOf(new byte[200]), true);
+            Assertions.assertTrue(upload.isInMemory());
+            try (MixedAttribute attribute = new MixedAttribute("foo", 150, 250)) {
+                attribute.setMemoryBudget(budget);
+                Assertions.assertFalse(attribute.isInMemory());
+            }
+        }
+    }
+
+    @Test
+    public void mixedFileUploadMovedToDisk() throws IOException {
+        List<Runnable> writes = new ArrayList<>();
+        try (MixedFileUpload upload = new MixedFileUpload("foo", "foo", "foo", "UTF-8", StandardCharsets.UTF_8,
+                0, 100)) {
+            upload.setWriteExecutor(writes::add);
+            byte[] bytes = new byte[120];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = (byte) i;
+            }
+            Buffer first = DefaultBufferAllocators.onHeapAllocator().copyOf(Arrays.copyOfRange(bytes, 0, 60));
+            Buffer second = DefaultBufferAllocators.onHeapAllocator().copyOf(Arrays.copyOfRange(bytes, 60, 120));
+            upload.addContent(first, false);
+            Assertions.assertTrue(upload.isInMemory());
+            upload.addContent(second, true);
+            Assertions.assertFalse(upload.isInMemory());
+            Assertions.assertFalse(second.isAccessible());
+
+            // The content kept in memory and the new buffer are written together, by the write executor
+            Assertions.assertEquals(1, writes.size());
+            Assertions.assertFalse(upload.writeFuture().isDone());
+            writes.remove(0).run();
+            // Then the file is closed
+            Assertions.assertEquals(1, writes.size());
+            writes.remove(0).run();
+            Assertions.assertTrue(upload.writeFuture().isDone());
+            Assertions.assertArrayEquals(bytes, upload.get());
+        }
+    }
+
     @Test
     public void mixedFileUploadClosed() throws IOException {
         MixedFileUpload upload = new MixedFileUpload("foo", "foo", "foo", "UTF-8", StandardCharsets.UTF_8, 0, 100);
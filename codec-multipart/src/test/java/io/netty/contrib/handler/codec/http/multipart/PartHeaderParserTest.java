@@ -0,0 +1,95 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.contrib.handler.codec.http.multipart;
+
+import io.netty5.buffer.Buffer;
+import io.netty5.buffer.DefaultBufferAllocators;
+import io.netty5.handler.codec.http.HttpHeaderNames;
+import io.netty5.handler.codec.http.HttpHeaderValues;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(GCExtension.class)
+public class PartHeaderParserTest {
+
+    @Test
+    public void testContentDisposition() {
+        PartHeaderParser parser = new PartHeaderParser(UTF_8);
+        try (Buffer buffer = DefaultBufferAllocators.onHeapAllocator().copyOf(
+                (" content-DISPOSITION : form-data; name=\"field\"; filename=\"a;b é.txt\" \r\n" +
+                        "X-Other: value\n").getBytes(UTF_8))) {
+            assertTrue(parser.readLine(buffer));
+            assertTrue(parser.nameEquals(HttpHeaderNames.CONTENT_DISPOSITION));
+            assertTrue(parser.nextValue());
+            assertTrue(parser.valueEquals(HttpHeaderValues.FORM_DATA));
+
+            assertTrue(parser.nextValue());
+            int equals = parser.valueEqualsSign();
+            assertTrue(parser.valueBeforeEquals(equals, HttpHeaderValues.NAME, false));
+            assertEquals("field", parser.cleanValueAfter(equals));
+
+            assertTrue(parser.nextValue());
+            equals = parser.valueEqualsSign();
+            assertFalse(parser.valueBeforeEquals(equals, HttpHeaderValues.NAME, true));
+            assertTrue(parser.valueBeforeEquals(equals, HttpHeaderValues.FILENAME, false));
+            assertEquals("a;b é.txt", parser.unquotedValueAfter(equals));
+            assertFalse(parser.nextValue());
+
+            assertTrue(parser.readLine(buffer));
+            assertFalse(parser.nameEquals(HttpHeaderNames.CONTENT_DISPOSITION));
+            assertEquals(0, buffer.readableBytes());
+        }
+    }
+
+    @Test
+    public void testCommaSeparatedValues() {
+        PartHeaderParser parser = new PartHeaderParser(UTF_8);
+        try (Buffer buffer = DefaultBufferAllocators.onHeapAllocator().copyOf(
+                "Content-Type: text/plain , charset=\"utf-8\",,\r\nContent-Length:\r\n".getBytes(UTF_8))) {
+            assertTrue(parser.readLine(buffer));
+            assertTrue(parser.nameEquals(HttpHeaderNames.CONTENT_TYPE));
+            assertTrue(parser.nextValue());
+            assertEquals("text/plain", parser.value());
+            assertTrue(parser.nextValue());
+            assertTrue(parser.valueStartsWith(HttpHeaderValues.CHARSET));
+            assertEquals("utf-8", parser.cleanValueAfter(parser.valueEqualsSign()));
+            // Trailing empty values are dropped
+            assertFalse(parser.nextValue());
+
+            assertTrue(parser.readLine(buffer));
+            assertTrue(parser.nameEquals(HttpHeaderNames.CONTENT_LENGTH));
+            // A header without value has one empty value
+            assertTrue(parser.nextValue());
+            assertEquals("", parser.cleanValue());
+            assertFalse(parser.nextValue());
+        }
+    }
+
+    @Test
+    public void testIncompleteLine() {
+        PartHeaderParser parser = new PartHeaderParser(UTF_8);
+        try (Buffer buffer = DefaultBufferAllocators.onHeapAllocator().copyOf(
+                "Content-Type: text/pl".getBytes(UTF_8))) {
+            assertFalse(parser.readLine(buffer));
+            assertEquals(0, buffer.readerOffset());
+        }
+    }
+}
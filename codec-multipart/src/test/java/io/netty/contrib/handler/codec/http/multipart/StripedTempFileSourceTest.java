@@ -0,0 +1,160 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.contrib.handler.codec.http.multipart;
+
+import io.netty.contrib.handler.codec.http.multipart.StripedTempFileSource.Placement;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(GCExtension.class)
+public class StripedTempFileSourceTest {
+    private static final String BASE_DIR = "target/StripedTempFileSourceTest";
+
+    private static String directory(String name) {
+        File directory = new File(BASE_DIR, name);
+        directory.mkdirs();
+        return directory.getPath();
+    }
+
+    private static DiskFileUpload newUpload(TempFileSource source, long size) {
+        DiskFileUpload upload = new DiskFileUpload("file", "file.txt", "text/plain", null, UTF_8, size);
+        upload.setTempFileSource(source);
+        return upload;
+    }
+
+    private static File parentOf(DiskFileUpload upload) throws IOException {
+        return upload.getFile().getParentFile().getAbsoluteFile();
+    }
+
+    @Test
+    public void testRoundRobin() throws IOException {
+        File first = new File(directory("a")).getAbsoluteFile();
+        File second = new File(directory("b")).getAbsoluteFile();
+        StripedTempFileSource source = StripedTempFileSource.of(
+                Arrays.asList(first.getPath(), second.getPath()), Placement.roundRobin());
+        try (DiskFileUpload upload1 = newUpload(source, 0);
+             DiskFileUpload upload2 = newUpload(source, 0);
+             DiskFileUpload upload3 = newUpload(source, 0)) {
+            upload1.addContent(Helpers.copiedBuffer(new byte[] { 1 }), true);
+            upload2.addContent(Helpers.copiedBuffer(new byte[] { 2 }), true);
+            upload3.addContent(Helpers.copiedBuffer(new byte[] { 3 }), true);
+            assertEquals(first, parentOf(upload1));
+            assertEquals(second, parentOf(upload2));
+            assertEquals(first, parentOf(upload3));
+            assertEquals(2, source.stripes().get(0).leasedFiles());
+            assertEquals(1, source.stripes().get(1).leasedFiles());
+        }
+        assertEquals(0, source.stripes().get(0).leasedFiles());
+        assertEquals(0, source.stripes().get(1).leasedFiles());
+    }
+
+    @Test
+    public void testLeastInFlight() throws IOException {
+        File first = new File(directory("a")).getAbsoluteFile();
+        File second = new File(directory("b")).getAbsoluteFile();
+        StripedTempFileSource source = StripedTempFileSource.of(
+                Arrays.asList(first.getPath(), second.getPath()), Placement.leastInFlight());
+        try (DiskFileUpload big = newUpload(source, 100);
+             DiskFileUpload small1 = newUpload(source, 10);
+             DiskFileUpload small2 = newUpload(source, 10)) {
+            big.addContent(Helpers.copiedBuffer(new byte[] { 1 }), false);
+            small1.addContent(Helpers.copiedBuffer(new byte[] { 2 }), false);
+            small2.addContent(Helpers.copiedBuffer(new byte[] { 3 }), false);
+            assertEquals(first, parentOf(big));
+            assertEquals(second, parentOf(small1));
+            assertEquals(second, parentOf(small2));
+            assertEquals(100, source.stripes().get(0).leasedBytes());
+            assertEquals(20, source.stripes().get(1).leasedBytes());
+            assertArrayEquals(new byte[] { 3 }, small2.get());
+        }
+        assertEquals(0, source.stripes().get(0).leasedBytes());
+        assertEquals(0, source.stripes().get(1).leasedBytes());
+    }
+
+    @Test
+    public void testRenamedFileLeavesTheSource() throws IOException {
+        File first = new File(directory("a")).getAbsoluteFile();
+        StripedTempFileSource source = StripedTempFileSource.of(
+                Collections.singletonList(first.getPath()), Placement.leastInFlight());
+        File dest = new File(BASE_DIR, "renamed.txt");
+        dest.delete();
+        try (DiskFileUpload upload = newUpload(source, 10)) {
+            upload.addContent(Helpers.copiedBuffer(new byte[] { 1, 2 }), true);
+            assertEquals(1, source.stripes().get(0).leasedFiles());
+            assertEquals(10, source.stripes().get(0).leasedBytes());
+            assertTrue(upload.renameTo(dest));
+            // The lease ends with the rename, not with the deletion of the data
+            assertEquals(0, source.stripes().get(0).leasedFiles());
+            assertEquals(0, source.stripes().get(0).leasedBytes());
+        }
+        assertTrue(dest.delete());
+    }
+
+    @Test
+    public void testFallbackOnFailure() throws IOException {
+        File missing = new File(BASE_DIR, "missing");
+        missing.delete();
+        File existing = new File(directory("a")).getAbsoluteFile();
+        StripedTempFileSource source = StripedTempFileSource.of(
+                Arrays.asList(missing.getPath(), existing.getPath()), (stripes, expectedSize) -> 0);
+        try (DiskFileUpload upload = newUpload(source, 0)) {
+            upload.addContent(Helpers.copiedBuffer(new byte[] { 1, 2 }), true);
+            assertEquals(existing, parentOf(upload));
+            assertArrayEquals(new byte[] { 1, 2 }, upload.get());
+        }
+        assertFalse(missing.exists());
+    }
+
+    @Test
+    public void testFallbackOnFullVolume() throws IOException {
+        File first = new File(directory("a")).getAbsoluteFile();
+        File second = new File(directory("b")).getAbsoluteFile();
+        StripedTempFileSource source = StripedTempFileSource.of(
+                Arrays.asList(first.getPath(), second.getPath()), (stripes, expectedSize) -> 0);
+        // More than any volume can hold: every volume but the last one is skipped
+        File file = source.lease(Long.MAX_VALUE);
+        try {
+            assertEquals(second, file.getParentFile().getAbsoluteFile());
+            assertEquals(1, source.stripes().get(1).leasedFiles());
+        } finally {
+            source.release(file);
+        }
+        assertFalse(file.exists());
+        assertEquals(0, source.stripes().get(1).leasedFiles());
+    }
+
+    @Test
+    public void testAllVolumesFail() {
+        File missing = new File(BASE_DIR, "missing");
+        missing.delete();
+        StripedTempFileSource source = StripedTempFileSource.of(
+                Arrays.asList(missing.getPath(), missing.getPath()), Placement.mostUsableSpace());
+        IOException e = assertThrows(IOException.class, () -> source.lease(0));
+        assertEquals(1, e.getSuppressed().length);
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.contrib.handler.codec.http.multipart;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(GCExtension.class)
+public class TempFilePoolTest {
+    private static final String BASE_DIR = "target/TempFilePoolTest";
+
+    private static DiskFileUpload newUpload(TempFilePool pool) {
+        DiskFileUpload upload = new DiskFileUpload("file", "file.txt", "text/plain", null, UTF_8, 0);
+        upload.setTempFileSource(pool);
+        return upload;
+    }
+
+    @Test
+    public void testFilesAreReused() throws IOException {
+        new File(BASE_DIR).mkdirs();
+        TempFilePool pool = new TempFilePool(BASE_DIR, 1, false);
+        File file;
+        try (DiskFileUpload upload = newUpload(pool)) {
+            upload.addContent(Helpers.copiedBuffer(new byte[] { 1, 2, 3 }), true);
+            file = upload.getFile();
+            assertTrue(file.getAbsolutePath().startsWith(new File(BASE_DIR).getAbsolutePath()));
+            assertEquals(0, pool.idleFiles());
+        }
+        // Truncated and kept for the next upload
+        assertEquals(1, pool.idleFiles());
+        assertTrue(file.exists());
+        assertEquals(0, file.length());
+
+        try (DiskFileUpload upload = newUpload(pool);
+             DiskFileUpload other = newUpload(pool)) {
+            upload.addContent(Helpers.copiedBuffer(new byte[] { 4, 5 }), true);
+            assertEquals(file, upload.getFile());
+            assertArrayEquals(new byte[] { 4, 5 }, upload.get());
+            other.addContent(Helpers.copiedBuffer(new byte[] { 6 }), true);
+            assertNotEquals(file, other.getFile());
+        }
+        // Only one file is kept
+        assertEquals(1, pool.idleFiles());
+        pool.clear();
+        assertEquals(0, pool.idleFiles());
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void testContentFromStreamIsGivenBack() throws IOException {
+        new File(BASE_DIR).mkdirs();
+        TempFilePool pool = new TempFilePool(BASE_DIR, 1, false);
+        File file;
+        try (DiskFileUpload upload = newUpload(pool)) {
+            upload.setContent(new ByteArrayInputStream(new byte[] { 1, 2, 3 }));
+            file = upload.getFile();
+            assertArrayEquals(new byte[] { 1, 2, 3 }, upload.get());
+            assertEquals(0, pool.idleFiles());
+        }
+        assertEquals(1, pool.idleFiles());
+        assertEquals(0, file.length());
+        pool.clear();
+    }
+
+    @Test
+    public void testCreatedFiles() throws IOException {
+        new File(BASE_DIR).mkdirs();
+        TempFilePool pool = new TempFilePool(BASE_DIR, 2, false);
+        pool.createFiles(3);
+        assertEquals(2, pool.idleFiles());
+        try (DiskFileUpload upload = newUpload(pool)) {
+            upload.addContent(Helpers.copiedBuffer(new byte[] { 1, 2, 3 }), true);
+            File file = upload.getFile();
+            assertEquals(3, file.length());
+            assertArrayEquals(new byte[] { 1, 2, 3 }, upload.get());
+
+            // An empty content truncates the leased file rather than recreating it
+            upload.setContent(Helpers.copiedBuffer(new byte[0]));
+            assertEquals(file, upload.getFile());
+            assertEquals(0, file.length());
+
+            // A renamed file leaves the pool
+            File dest = new File(BASE_DIR, "testCreatedFiles.txt");
+            dest.delete();
+            assertTrue(upload.renameTo(dest));
+            assertEquals(1, pool.idleFiles());
+            upload.delete();
+            assertEquals(1, pool.idleFiles());
+            assertTrue(dest.delete());
+        } finally {
+            pool.clear();
+        }
+    }
+}
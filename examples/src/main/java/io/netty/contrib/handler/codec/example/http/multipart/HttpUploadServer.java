@@ -33,6 +33,8 @@ import io.netty5.handler.ssl.util.SelfSignedCertificate;
 public final class HttpUploadServer {
 
     static final boolean SSL = System.getProperty("ssl") != null;
+    // Use HttpUploadStreamingServerHandler instead of HttpUploadServerHandler for the multipart uploads
+    static final boolean STREAMING = System.getProperty("streaming") != null;
     static final int PORT = Integer.parseInt(System.getProperty("port", SSL? "8443" : "8080"));
 
     public static void main(String[] args) throws Exception {
@@ -21,7 +21,6 @@ import io.netty.contrib.handler.codec.http.multipart.DiskAttribute;
 import io.netty.contrib.handler.codec.http.multipart.DiskFileUpload;
 import io.netty.contrib.handler.codec.http.multipart.FileUpload;
 import io.netty.contrib.handler.codec.http.multipart.HttpData;
-import io.netty.contrib.handler.codec.http.multipart.HttpDataFactory;
 import io.netty.contrib.handler.codec.http.multipart.HttpPostRequestDecoder;
 import io.netty.contrib.handler.codec.http.multipart.InterfaceHttpData;
 import io.netty.contrib.handler.codec.http.multipart.InterfaceHttpData.HttpDataType;
@@ -30,6 +29,7 @@ import io.netty5.buffer.Buffer;
 import io.netty5.channel.Channel;
 import io.netty5.channel.ChannelFutureListeners;
 import io.netty5.channel.ChannelHandlerContext;
+import io.netty5.channel.ChannelOption;
 import io.netty5.channel.SimpleChannelInboundHandler;
 import io.netty5.handler.codec.http.DefaultFullHttpResponse;
 import io.netty5.handler.codec.http.FullHttpResponse;
@@ -46,13 +46,17 @@ import io.netty5.handler.codec.http.LastHttpContent;
 import io.netty5.handler.codec.http.QueryStringDecoder;
 import io.netty5.handler.codec.http.headers.DefaultHttpSetCookie;
 import io.netty5.handler.codec.http.headers.HttpCookiePair;
+import io.netty5.util.concurrent.DefaultThreadFactory;
 import io.netty5.util.concurrent.Future;
 
 import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -66,12 +70,16 @@ public class HttpUploadServerHandler extends SimpleChannelInboundHandler<HttpObj
 
     private final StringBuilder responseContent = new StringBuilder();
 
-    private static final HttpDataFactory factory =
+    private static final DefaultHttpDataFactory factory =
             new DefaultHttpDataFactory(DefaultHttpDataFactory.MINSIZE); // Disk if size exceed
 
     private HttpPostRequestDecoder decoder;
 
+    private List<HttpData> receivedData = new ArrayList<>();
+
     static {
+        // the disk writes are done out of the event loop
+        factory.setWriteExecutor(Executors.newSingleThreadExecutor(new DefaultThreadFactory("upload-writes", true)));
         DiskFileUpload.deleteOnExitTemporaryFile = true; // should delete file
                                                          // on exit (in normal
                                                          // exit)
@@ -175,9 +183,7 @@ public class HttpUploadServerHandler extends SimpleChannelInboundHandler<HttpObj
                 readHttpDataChunkByChunk();
                 // example of reading only if at the end
                 if (chunk instanceof LastHttpContent) {
-                    writeResponse(ctx);
-
-                    reset();
+                    writeResponseOnceStored(ctx);
                 }
             }
         } else {
@@ -185,12 +191,37 @@ public class HttpUploadServerHandler extends SimpleChannelInboundHandler<HttpObj
         }
     }
 
-    private void reset() {
-        request = null;
+    /**
+     * A data on disk can't be read while its writes are pending: read it once its {@link HttpData#writeFuture()}
+     * is completed, without waiting for it on the event loop. The state of the request is taken with it, the
+     * handler being free for the next request meanwhile.
+     */
+    private void writeResponseOnceStored(ChannelHandlerContext ctx) {
+        HttpRequest request = this.request;
+        HttpPostRequestDecoder decoder = this.decoder;
+        List<HttpData> received = receivedData;
+        StringBuilder content = new StringBuilder(responseContent);
+        this.request = null;
+        this.decoder = null;
+        receivedData = new ArrayList<>();
+        responseContent.setLength(0);
+        // Don't read the next request before this one is answered
+        ctx.channel().setOption(ChannelOption.AUTO_READ, false);
+
+        CompletableFuture<?>[] writeFutures = new CompletableFuture<?>[received.size()];
+        for (int i = 0; i < writeFutures.length; i++) {
+            writeFutures[i] = received.get(i).writeFuture();
+        }
+        CompletableFuture.allOf(writeFutures).whenCompleteAsync((ignored, cause) -> {
+            for (HttpData data : received) {
+                writeHttpData(data, content);
+            }
+            writeResponse(ctx, request, content.toString(), false);
 
-        // destroy the decoder to release all resources
-        decoder.destroy();
-        decoder = null;
+            // destroy the decoder to release all resources
+            decoder.destroy();
+            ctx.channel().setOption(ChannelOption.AUTO_READ, true);
+        }, ctx.executor());
     }
 
     /**
@@ -206,8 +237,8 @@ public class HttpUploadServerHandler extends SimpleChannelInboundHandler<HttpObj
                         logger.info(" 100% (FinalSize: " + partialContent.length() + ")");
                         partialContent = null;
                     }
-                    // new value
-                    writeHttpData(data);
+                    // new value, written out once stored
+                    receivedData.add((HttpData) data);
                 }
             }
             // Check partial decoding for a FileUpload
@@ -240,7 +271,7 @@ public class HttpUploadServerHandler extends SimpleChannelInboundHandler<HttpObj
         }
     }
 
-    private void writeHttpData(InterfaceHttpData data) {
+    private static void writeHttpData(InterfaceHttpData data, StringBuilder content) {
         if (data.getHttpDataType() == HttpDataType.Attribute) {
             Attribute attribute = (Attribute) data;
             String value;
@@ -249,43 +280,43 @@ public class HttpUploadServerHandler extends SimpleChannelInboundHandler<HttpObj
             } catch (IOException e1) {
                 // Error while reading data from File, only print name and error
                 e1.printStackTrace();
-                responseContent.append("\r\nBODY Attribute: " + attribute.getHttpDataType().name() + ": "
+                content.append("\r\nBODY Attribute: " + attribute.getHttpDataType().name() + ": "
                         + attribute.getName() + " Error while reading value: " + e1.getMessage() + "\r\n");
                 return;
             }
             if (value.length() > 100) {
-                responseContent.append("\r\nBODY Attribute: " + attribute.getHttpDataType().name() + ": "
+                content.append("\r\nBODY Attribute: " + attribute.getHttpDataType().name() + ": "
                         + attribute.getName() + " data too long\r\n");
             } else {
-                responseContent.append("\r\nBODY Attribute: " + attribute.getHttpDataType().name() + ": "
+                content.append("\r\nBODY Attribute: " + attribute.getHttpDataType().name() + ": "
                         + attribute + "\r\n");
             }
         } else {
-            responseContent.append("\r\nBODY FileUpload: " + data.getHttpDataType().name() + ": " + data
+            content.append("\r\nBODY FileUpload: " + data.getHttpDataType().name() + ": " + data
                     + "\r\n");
             if (data.getHttpDataType() == HttpDataType.FileUpload) {
                 FileUpload fileUpload = (FileUpload) data;
                 if (fileUpload.isCompleted()) {
                     if (fileUpload.length() < 10000) {
-                        responseContent.append("\tContent of file\r\n");
+                        content.append("\tContent of file\r\n");
                         try {
-                            responseContent.append(fileUpload.getString(fileUpload.getCharset()));
+                            content.append(fileUpload.getString(fileUpload.getCharset()));
                         } catch (IOException e1) {
                             // do nothing for the example
                             e1.printStackTrace();
                         }
-                        responseContent.append("\r\n");
+                        content.append("\r\n");
                     } else {
-                        responseContent.append("\tFile too long to be printed out:" + fileUpload.length() + "\r\n");
+                        content.append("\tFile too long to be printed out:" + fileUpload.length() + "\r\n");
                     }
                     // fileUpload.isInMemory();// tells if the file is in Memory
                     // or on File
-                    // fileUpload.renameTo(dest); // enable to move into another
-                    // File dest
+                    // fileUpload.renameToAsync(dest); // enable to move into another
+                    // File dest without blocking the event loop
                     // decoder.removeFileUploadFromClean(fileUpload); //remove
                     // the File of to delete file
                 } else {
-                    responseContent.append("\tFile to be continued but should not!\r\n");
+                    content.append("\tFile to be continued but should not!\r\n");
                 }
             }
         }
@@ -296,10 +327,15 @@ public class HttpUploadServerHandler extends SimpleChannelInboundHandler<HttpObj
     }
 
     private void writeResponse(ChannelHandlerContext ctx, boolean forceClose) {
+        writeResponse(ctx, request, responseContent.toString(), forceClose);
+        responseContent.setLength(0);
+    }
+
+    private static void writeResponse(ChannelHandlerContext ctx, HttpRequest request, String content,
+                                      boolean forceClose) {
         Channel channel = ctx.channel();
         // Convert the response content to a ChannelBuffer.
-        Buffer buf = channel.bufferAllocator().copyOf(responseContent.toString(), StandardCharsets.UTF_8);
-        responseContent.setLength(0);
+        Buffer buf = channel.bufferAllocator().copyOf(content, StandardCharsets.UTF_8);
 
         // Decide whether to close the connection or not.
         boolean keepAlive = HttpUtil.isKeepAlive(request) && !forceClose;
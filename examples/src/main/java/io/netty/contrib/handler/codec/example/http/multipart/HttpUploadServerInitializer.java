@@ -45,6 +45,7 @@ public class HttpUploadServerInitializer extends ChannelInitializer<SocketChanne
         // Remove the following line if you don't want automatic content compression.
         pipeline.addLast(new HttpContentCompressor());
 
-        pipeline.addLast(new HttpUploadServerHandler());
+        pipeline.addLast(HttpUploadServer.STREAMING ? new HttpUploadStreamingServerHandler()
+                                                    : new HttpUploadServerHandler());
     }
 }
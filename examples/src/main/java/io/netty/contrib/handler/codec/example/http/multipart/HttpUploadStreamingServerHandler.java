@@ -0,0 +1,233 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.contrib.handler.codec.example.http.multipart;
+
+import io.netty.contrib.handler.codec.http.multipart.DefaultHttpDataFactory;
+import io.netty.contrib.handler.codec.http.multipart.HttpDataFactory;
+import io.netty.contrib.handler.codec.http.multipart.HttpPostMultipartPublisher;
+import io.netty.contrib.handler.codec.http.multipart.HttpPostMultipartPublisher.Part;
+import io.netty.contrib.handler.codec.http.multipart.HttpPostRequestDecoder;
+import io.netty5.buffer.Buffer;
+import io.netty5.channel.Channel;
+import io.netty5.channel.ChannelFutureListeners;
+import io.netty5.channel.ChannelHandlerContext;
+import io.netty5.channel.SimpleChannelInboundHandler;
+import io.netty5.handler.codec.http.DefaultFullHttpResponse;
+import io.netty5.handler.codec.http.FullHttpResponse;
+import io.netty5.handler.codec.http.HttpContent;
+import io.netty5.handler.codec.http.HttpHeaderNames;
+import io.netty5.handler.codec.http.HttpHeaderValues;
+import io.netty5.handler.codec.http.HttpMethod;
+import io.netty5.handler.codec.http.HttpObject;
+import io.netty5.handler.codec.http.HttpRequest;
+import io.netty5.handler.codec.http.HttpResponseStatus;
+import io.netty5.handler.codec.http.HttpUtil;
+import io.netty5.handler.codec.http.HttpVersion;
+import io.netty5.handler.codec.http.LastHttpContent;
+import io.netty5.util.concurrent.Future;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Flow;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Same as {@link HttpUploadServerHandler} for the multipart uploads, but instead of polling the decoder after
+ * each chunk, the parts are consumed as they are decoded through a {@link HttpPostMultipartPublisher}.
+ * Nothing is stored in memory or on disk by the decoder, and the channel stops reading while the subscribers
+ * are busy with the received content.
+ */
+public class HttpUploadStreamingServerHandler extends SimpleChannelInboundHandler<HttpObject> {
+
+    private static final Logger logger = Logger.getLogger(HttpUploadStreamingServerHandler.class.getName());
+
+    // Only used for the headers of the parts
+    private static final HttpDataFactory factory = new DefaultHttpDataFactory(false);
+
+    private HttpRequest request;
+
+    private HttpPostMultipartPublisher publisher;
+
+    private final StringBuilder responseContent = new StringBuilder();
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) {
+        if (publisher != null) {
+            publisher.destroy();
+            publisher = null;
+        }
+    }
+
+    @Override
+    public void messageReceived(ChannelHandlerContext ctx, HttpObject msg) {
+        if (msg instanceof HttpRequest) {
+            request = (HttpRequest) msg;
+            responseContent.setLength(0);
+            if (!HttpMethod.POST.equals(request.method()) || !HttpPostRequestDecoder.isMultipart(request)) {
+                responseContent.append("Only multipart POST requests are accepted\r\n");
+                writeResponse(ctx, HttpResponseStatus.BAD_REQUEST, true);
+                return;
+            }
+            try {
+                publisher = new HttpPostMultipartPublisher(ctx.channel(), factory, request);
+            } catch (HttpPostRequestDecoder.ErrorDataDecoderException e1) {
+                responseContent.append(e1.getMessage());
+                writeResponse(ctx, HttpResponseStatus.BAD_REQUEST, true);
+                return;
+            }
+            publisher.subscribe(new PartsSubscriber(ctx));
+        }
+
+        if (publisher != null && msg instanceof HttpContent) {
+            HttpPostMultipartPublisher publisher = this.publisher;
+            if (msg instanceof LastHttpContent) {
+                this.publisher = null;
+            }
+            try {
+                publisher.offer((HttpContent<?>) msg);
+            } catch (HttpPostRequestDecoder.ErrorDataDecoderException e1) {
+                // Already signalled to the subscribers
+                this.publisher = null;
+            }
+        }
+    }
+
+    /**
+     * Subscribe to the content of each part, one part after the other
+     */
+    private final class PartsSubscriber implements Flow.Subscriber<Part> {
+        private final ChannelHandlerContext ctx;
+        private Flow.Subscription subscription;
+
+        PartsSubscriber(ChannelHandlerContext ctx) {
+            this.ctx = ctx;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(Part part) {
+            part.subscribe(new ContentSubscriber(part, subscription));
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            logger.log(Level.WARNING, "Error while decoding the multipart body", throwable);
+            responseContent.append("\r\n\r\nERROR: ").append(throwable.getMessage()).append("\r\n");
+            writeResponse(ctx, HttpResponseStatus.BAD_REQUEST, true);
+        }
+
+        @Override
+        public void onComplete() {
+            responseContent.append("\r\n\r\nEND OF CONTENT\r\n");
+            writeResponse(ctx, HttpResponseStatus.OK, false);
+        }
+    }
+
+    /**
+     * Consume the content of one part, one buffer after the other. An application would typically write
+     * each buffer to its storage, and request the next one once the write is done.
+     */
+    private final class ContentSubscriber implements Flow.Subscriber<Buffer> {
+        private final Part part;
+        private final Flow.Subscription partsSubscription;
+        private final StringBuilder value = new StringBuilder();
+        private Flow.Subscription subscription;
+        private long length;
+
+        ContentSubscriber(Part part, Flow.Subscription partsSubscription) {
+            this.part = part;
+            this.partsSubscription = partsSubscription;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(Buffer buffer) {
+            try (buffer) {
+                length += buffer.readableBytes();
+                if (part.filename() == null && value.length() < 100) {
+                    value.append(buffer.toString(part.charset() != null ? part.charset() : StandardCharsets.UTF_8));
+                }
+            }
+            if (part.definedLength() > 0) {
+                logger.info(part.name() + ' ' + length * 100 / part.definedLength() + "% ");
+            }
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            // Reported by the subscriber of the parts
+        }
+
+        @Override
+        public void onComplete() {
+            if (part.filename() == null) {
+                responseContent.append("\r\nBODY Attribute: ").append(part.name()).append('=');
+                responseContent.append(value.length() < 100 ? value : "data too long").append("\r\n");
+            } else {
+                responseContent.append("\r\nBODY FileUpload: ").append(part.name())
+                        .append(" filename=").append(part.filename())
+                        .append(" contentType=").append(part.contentType())
+                        .append(" length=").append(length).append("\r\n");
+            }
+            // Ready for the next part
+            partsSubscription.request(1);
+        }
+    }
+
+    private void writeResponse(ChannelHandlerContext ctx, HttpResponseStatus status, boolean forceClose) {
+        Channel channel = ctx.channel();
+        Buffer buf = channel.bufferAllocator().copyOf(responseContent.toString(), StandardCharsets.UTF_8);
+        responseContent.setLength(0);
+
+        // Decide whether to close the connection or not.
+        boolean keepAlive = HttpUtil.isKeepAlive(request) && !forceClose;
+
+        // Build the response object.
+        FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status, buf);
+        response.headers().set(HttpHeaderNames.CONTENT_TYPE, "text/plain; charset=UTF-8");
+        response.headers().set(HttpHeaderNames.CONTENT_LENGTH, String.valueOf(buf.readableBytes()));
+
+        if (!keepAlive) {
+            response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE);
+        } else if (request.protocolVersion().equals(HttpVersion.HTTP_1_0)) {
+            response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+        }
+
+        // Write the response.
+        Future<Void> future = channel.writeAndFlush(response);
+        // Close the connection after the write operation is done if necessary.
+        if (!keepAlive) {
+            future.addListener(ctx, ChannelFutureListeners.CLOSE);
+        }
+    }
+
+    @Override
+    public void channelExceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+        logger.log(Level.WARNING, responseContent.toString(), cause);
+        ctx.channel().close();
+    }
+}